@@ -0,0 +1,48 @@
+package mpigott.sort;
+
+/**
+ * An {@link Element} wrapping a <code>byte[]</code>.  Elements are compared
+ * lexicographically, treating each byte as unsigned, and the distance between two
+ * elements is the difference between their {@link PrefixPartitionFunction#getPrefix(byte[], int)
+ * prefixes}, so only the first few bytes of each array are used to compute it.
+ * Arrays which differ later are zero distance apart.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public final class ByteArrayElement implements Element<byte[]> {
+
+	public ByteArrayElement(byte[] value) {
+		this.value = value;
+	}
+
+	public byte[] getValue() {
+		return value;
+	}
+
+	/**
+	 * Compares the two arrays lexicographically, treating each byte as unsigned.
+	 * If one array is a prefix of the other, the shorter array is smaller.
+	 */
+	public static int compare(byte[] first, byte[] second) {
+		final int length = Math.min(first.length, second.length);
+		for (int index = 0; index < length; ++index) {
+			if (first[index] != second[index]) {
+				return (first[index] & 0xFF) - (second[index] & 0xFF);
+			}
+		}
+		return first.length - second.length;
+	}
+
+	@Override
+	public int compareTo(Element<byte[]> other) {
+		return compare(value, other.getValue());
+	}
+
+	@Override
+	public double distance(Element<byte[]> other) {
+		return (double) PrefixPartitionFunction.getPrefix(value, 0) - (double) PrefixPartitionFunction.getPrefix(other.getValue(), 0);
+	}
+
+	private final byte[] value;
+}
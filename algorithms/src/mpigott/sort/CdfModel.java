@@ -0,0 +1,107 @@
+package mpigott.sort;
+
+/**
+ * The cumulative distribution function (CDF) built by the CDF-based partition
+ * functions.  The range between the minimum and maximum keys is divided into
+ * equal-width cells, and each cell stores the cumulative probability of all of
+ * the cells up to and including it.  Within a cell, the distribution is assumed
+ * to be uniform.
+ *
+ * The model only deals with distances from the minimum key, so it can be shared
+ * by the {@link Element}-based and the primitive partition functions.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+final class CdfModel {
+
+	/**
+	 * Creates an empty model over <code>numCells</code> cells.
+	 * {@link #fit(int[], int)} must be called before classifying.
+	 *
+	 * @param range    The distance between the minimum and maximum keys.
+	 * @param numCells The number of cells, and classes.
+	 */
+	CdfModel(double range, int numCells) {
+		this.numCells = numCells;
+		this.perCellRange = range / this.numCells;
+		this.cdf = new double[numCells];
+	}
+
+	/**
+	 * Returns the cell a key <code>distance</code> away from the minimum falls in.
+	 * Keys outside of the model's range fall in the first or last cell.
+	 */
+	int getCell(double distance) {
+		int cell = (int) (distance / perCellRange);
+		if (cell >= cdf.length) {
+			cell = cdf.length - 1;
+		} else if (cell < 0) {
+			cell = 0;
+		}
+		return cell;
+	}
+
+	/**
+	 * Calculates the cumulative distribution function from the number
+	 * of samples that fell in each cell.
+	 *
+	 * @param sampleCountsPerCell The number of samples in each cell.
+	 * @param numSamples          The total number of samples taken.
+	 */
+	void fit(int[] sampleCountsPerCell, int numSamples) {
+		final double sc = numSamples + numCells;
+		double prevSi = 0.0;
+		for (int cellIndex = 0; cellIndex < sampleCountsPerCell.length; ++cellIndex) {
+			cdf[cellIndex] = (sampleCountsPerCell[cellIndex] + 1.0) / sc + prevSi;
+			prevSi = cdf[cellIndex];
+		}
+	}
+
+	/**
+	 * Returns the class of a key <code>distance</code> away
+	 * from the minimum, based on the CDF of the samples.
+	 */
+	int getClass(double distance) {
+		final int cellNum = getCell(distance);
+
+		/* "The second step finds px, the cumulative probability or CDF of x.
+		 *  It equals to the cumulative probability of its preceding cell
+		 *  plus the cumulative probability of elements smaller than x in
+		 *  this cell.  The latter term is calculated based on the slope
+		 *  of the cell.  The calculation assumes a uniform distribution 
+		 *  within each cell."
+		 *
+		 * This is implemented as y = mx + b, where b is the cdf of the
+		 * previous cell, m is the slope calculated above, and x is the
+		 * current value.
+		 */
+		double prevRange = cellNum * perCellRange;
+		double prevCdf = (cellNum == 0) ? 0.0 : cdf[cellNum - 1];
+
+		final double slope = (cdf[cellNum] - prevCdf) / perCellRange;
+		final double x = distance - prevRange;
+		final double px = slope * x + prevCdf;
+
+		double classification = (int)(px * numCells);
+
+		if (classification >= numCells) {
+			classification = (numCells - 1.0);
+		} else if (classification < 0.0) {
+			classification = 0.0;
+		}
+
+		return (int) classification;
+	}
+
+	/**
+	 * The total number of classes that a key can be partitioned into.
+	 */
+	int getNumClasses() {
+		return (int) numCells;
+	}
+
+	private final double[] cdf;
+	private final double numCells;
+	private final double perCellRange;
+}
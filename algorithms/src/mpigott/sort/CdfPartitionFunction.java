@@ -2,6 +2,7 @@ package mpigott.sort;
 
 import java.util.List;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.math3.special.Erf;
 
@@ -91,7 +92,7 @@ public final class CdfPartitionFunction<T extends Element<U>, U> implements Part
 	 */
 	public CdfPartitionFunction(List<T> input, int cellSize, double alpha, double cdfDistance) {
 		final double inputSize = input.size();
-		numCells = Math.ceil(inputSize / (double) cellSize);
+		final double numCells = Math.ceil(inputSize / (double) cellSize);
 
 		// First we'll determine the range of values.
 		min = input.get(0);
@@ -108,7 +109,7 @@ public final class CdfPartitionFunction<T extends Element<U>, U> implements Part
 			}
 		}
 
-		perCellRange = max.distance(min) / numCells;
+		model = new CdfModel(max.distance(min), (int) numCells);
 
 		int[] sampleCountsPerCell = new int[(int) numCells];
 
@@ -116,70 +117,90 @@ public final class CdfPartitionFunction<T extends Element<U>, U> implements Part
 		 * build a cumulative distribution function from.  For simplicity,
 		 * we'll choose every (size/sample)th element.
 		 */
-		final double numSamples = Math.min(getMinSamplesPerCategory(alpha, cdfDistance), inputSize);
-
-		final int randomSampleIndex = (int) Math.floor(inputSize / numSamples);
+		final int randomSampleIndex = getSampleStride(input.size(), alpha, cdfDistance);
 		int actualNumSamples = 0;
 		for (int index = 0; index < input.size(); index += randomSampleIndex) {
-			int cell = (int) (input.get(index).distance(min) / perCellRange);
-			if (cell >= sampleCountsPerCell.length) {
-				cell = sampleCountsPerCell.length - 1;
-			}
-			++sampleCountsPerCell[cell];
+			++sampleCountsPerCell[model.getCell(input.get(index).distance(min))];
 			++actualNumSamples;
 		}
 
 		/* Now that we have a distribution for the set of samples,
 		 * we can calculate the cumulative distribution function.
 		 */
-		cdf = new double[sampleCountsPerCell.length];
-		final double sc = actualNumSamples + numCells;
-		double prevSi = 0.0;
-		for (int cellIndex = 0; cellIndex < sampleCountsPerCell.length; ++cellIndex) {
-			cdf[cellIndex] = (sampleCountsPerCell[cellIndex] + 1.0) / sc + prevSi;
-			prevSi = cdf[cellIndex];
-		}
+		model.fit(sampleCountsPerCell, actualNumSamples);
 	}
 
 	/**
-	 * Returns the class of the input <code>element</code>
-	 * based on the CDF function of the sample sizes.
+	 * Generates the same cumulative distribution function (CDF) as
+	 * {@link #CdfPartitionFunction(List, int, double, double)}, but scans the
+	 * <code>input</code> for its range and samples it in parallel on the
+	 * <code>pool</code>.  The per-chunk minimums, maximums and samples are
+	 * merged into a single model.
 	 *
-	 * @see PartitionFunction#getClass(Element)
+	 * @param input       The population to retrieve samples from.
+	 * @param cellSize    The size of each cell.
+	 * @param alpha       <code>1 - alpha</code> is the confidence level that the sample CDF is within the <code>cdfDistance</code> of the population CDF.
+	 * @param cdfDistance The distance between the sample CDF and the population CDF, with a confidence level of <code>1 - alpha</code>.
+	 * @param pool        The pool to scan and sample the input on.
 	 */
-	public int getClass(T element) {
-		double value = element.distance(min);
+	public CdfPartitionFunction(List<T> input, int cellSize, double alpha, double cdfDistance, ForkJoinPool pool) {
+		final int numCells = (int) Math.ceil(input.size() / (double) cellSize);
 
-		int cellNum = (int) (value / perCellRange);
-		if (cellNum >= cdf.length) {
-			cellNum = cdf.length - 1;
-		}
+		final ParallelScan.Range<T> range = ParallelScan.findRange(input, pool);
+		min = range.min;
 
-		/* "The second step finds px, the cumulative probability or CDF of x.
-		 *  It equals to the cumulative probability of its preceding cell
-		 *  plus the cumulative probability of elements smaller than x in
-		 *  this cell.  The latter term is calculated based on the slope
-		 *  of the cell.  The calculation assumes a uniform distribution 
-		 *  within each cell."
-		 *
-		 * This is implemented as y = mx + b, where b is the cdf of the
-		 * previous cell, m is the slope calculated above, and x is the
-		 * current value.
-		 */
-		double prevRange = cellNum * perCellRange;
-		double prevCdf = (cellNum == 0) ? 0.0 : cdf[cellNum - 1];
+		model = new CdfModel(range.max.distance(min), numCells);
 
-		final double slope = (cdf[cellNum] - prevCdf) / perCellRange;
-		final double x = value - prevRange;
-		final double px = slope * x + prevCdf;
+		final int randomSampleIndex = getSampleStride(input.size(), alpha, cdfDistance);
+		final int actualNumSamples = (input.size() + randomSampleIndex - 1) / randomSampleIndex;
 
-		double classification = (int)(px * numCells);
+		model.fit(ParallelScan.countSamples(input, randomSampleIndex, min, model, pool), actualNumSamples);
+	}
+
+	/* Generates the CDF for numClasses classes from the samples,
+	 * which were taken from a population known to lie in [min, max].
+	 */
+	CdfPartitionFunction(T min, T max, List<T> samples, int numClasses) {
+		this.min = min;
+		model = new CdfModel(max.distance(min), numClasses);
 
-		if (classification >= numCells) {
-			classification = (numCells - 1.0);
+		int[] sampleCountsPerCell = new int[numClasses];
+		for (T sample : samples) {
+			++sampleCountsPerCell[model.getCell(sample.distance(min))];
 		}
 
-		return (int) classification;
+		model.fit(sampleCountsPerCell, samples.size());
+	}
+
+	/* Returns the distance between the indices of consecutive samples, so that
+	 * enough samples are taken from the input for the requested confidence.
+	 */
+	static int getSampleStride(int inputSize, double alpha, double cdfDistance) {
+		final double numSamples = Math.min(getMinSamplesPerCategory(alpha, cdfDistance), inputSize);
+
+		return (int) Math.floor(inputSize / numSamples);
+	}
+
+	/**
+	 * Returns the class of the input <code>element</code>
+	 * based on the CDF function of the sample sizes.
+	 *
+	 * @see PartitionFunction#getClass(Element)
+	 */
+	public int getClass(T element) {
+		return model.getClass(element.distance(min));
+	}
+
+	/**
+	 * @see PartitionFunction#getClasses(List, int, int, int[])
+	 */
+	@Override
+	public void getClasses(List<T> input, int fromIndex, int toIndex, int[] classes) {
+		final CdfModel model = this.model;
+		final T min = this.min;
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = model.getClass(input.get(index).distance(min));
+		}
 	}
 
 	/**
@@ -188,11 +209,9 @@ public final class CdfPartitionFunction<T extends Element<U>, U> implements Part
 	 * @see PartitionFunction#getNumClasses()
 	 */
 	public int getNumClasses() {
-		return (int) numCells;
+		return model.getNumClasses();
 	}
 
 	private T min;
-	private double[] cdf;
-	private final double numCells;
-	private final double perCellRange;
+	private final CdfModel model;
 }
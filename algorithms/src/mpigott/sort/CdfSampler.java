@@ -0,0 +1,446 @@
+package mpigott.sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds a CDF-based partition function from a stream of keys, rather than from
+ * a fully materialized input.  Keys are added one at a time (or a batch at a time),
+ * and a uniform random sample of all of the keys seen so far is kept in a fixed-size
+ * reservoir ( Vitter, "Random Sampling with a Reservoir", Algorithm R ).  Unlike the
+ * fixed-stride sample the partition function constructors take, the reservoir is not
+ * biased by periodic or partially-sorted input.
+ *
+ * Once the keys of a stream window have been added, {@link OfLongs#toPartitionFunction(int)}
+ * (and its siblings) freeze the sample into an immutable partition function.  The
+ * partition function can then be reused to partition any number of batches of the
+ * window, so the model is only built once per window.  Keys outside of the range seen
+ * by the sampler are partitioned into the first or last class.
+ *
+ * The reservoir is sampled with the {@link #DEFAULT_SEED}, unless a source of randomness
+ * is given, so the same stream always builds the same partition function.
+ *
+ * A sampler is not thread-safe.  The partition functions it builds are.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public abstract class CdfSampler {
+
+	/**
+	 * The seed of the reservoir, when no source of randomness is given, so the
+	 * same stream is always sampled the same way.
+	 */
+	public static final long DEFAULT_SEED = 42L;
+
+	/**
+	 * The most samples a reservoir can hold.  A reservoir is allocated up front,
+	 * so a <code>cdfDistance</code> too small to sample with fewer is rejected
+	 * rather than allocating an array close to the largest a JVM allows.
+	 */
+	public static final int MAX_RESERVOIR_SIZE = 1 << 24;
+
+	/**
+	 * Creates a sampler that keeps <code>reservoirSize</code> samples, chosen with the <code>random</code> source.
+	 *
+	 * @param reservoirSize The maximum number of samples to keep.
+	 * @param random        The source of randomness to choose the samples with.
+	 *
+	 * @throws IllegalArgumentException If <code>reservoirSize</code> is less than one or more than
+	 *                                  the {@link #MAX_RESERVOIR_SIZE}, or <code>random</code> is <code>null</code>.
+	 */
+	CdfSampler(int reservoirSize, Random random) {
+		if ((reservoirSize < 1) || (reservoirSize > MAX_RESERVOIR_SIZE)) {
+			throw new IllegalArgumentException("The reservoir must hold between 1 and " + MAX_RESERVOIR_SIZE + " samples, not " + reservoirSize + ".");
+		} else if (random == null) {
+			throw new IllegalArgumentException("The source of randomness cannot be null.");
+		}
+
+		this.reservoirSize = reservoirSize;
+		this.random = random;
+		this.numSeen = 0;
+	}
+
+	/**
+	 * Creates a sampler that keeps enough samples that, with a confidence level of
+	 * <code>1 - alpha</code>, the sample CDF is within <code>cdfDistance</code> of
+	 * the population CDF.
+	 *
+	 * @throws IllegalArgumentException If more than the {@link #MAX_RESERVOIR_SIZE} samples are needed.
+	 *
+	 * @see CdfPartitionFunction#CdfPartitionFunction(List, int, double, double)
+	 */
+	CdfSampler(double alpha, double cdfDistance, Random random) {
+		this(getReservoirSize(alpha, cdfDistance), random);
+	}
+
+	/* The number of samples for the sample CDF to be within the cdfDistance of the
+	 * population CDF.  Very small distances need far more samples than fit in memory.
+	 */
+	private static int getReservoirSize(double alpha, double cdfDistance) {
+		final double numSamples = CdfPartitionFunction.getMinSamplesPerCategory(alpha, cdfDistance);
+		if (numSamples > MAX_RESERVOIR_SIZE) {
+			throw new IllegalArgumentException("A CDF distance of " + cdfDistance + " needs " + (long) Math.ceil(numSamples)
+					+ " samples, more than the " + MAX_RESERVOIR_SIZE + " a reservoir can hold.");
+		}
+		return (int) numSamples;
+	}
+
+	/**
+	 * The number of keys added since the sampler was created or last reset.
+	 */
+	public long getNumSeen() {
+		return numSeen;
+	}
+
+	/**
+	 * The number of samples currently held, which is the smaller
+	 * of the number of keys seen and the reservoir size.
+	 */
+	public int getNumSamples() {
+		return (int) Math.min(numSeen, reservoirSize);
+	}
+
+	/**
+	 * Discards all of the samples, to start sampling a new stream window.
+	 * Partition functions already built are not affected.
+	 */
+	public void reset() {
+		numSeen = 0;
+	}
+
+	/* Counts a new key, and returns the position in the reservoir to store it
+	 * in, or -1 if it should not be sampled.  The first reservoirSize keys are
+	 * always sampled.  After that, the nth key replaces a random sample with a
+	 * probability of reservoirSize / n.
+	 */
+	int reserve() {
+		final long seen = numSeen++;
+		if (seen < reservoirSize) {
+			return (int) seen;
+		}
+
+		final long slot = (long) (random.nextDouble() * (seen + 1));
+		return (slot < reservoirSize) ? (int) slot : -1;
+	}
+
+	void checkCanBuild(int numClasses) {
+		if (numSeen == 0) {
+			throw new IllegalStateException("No keys have been sampled.");
+		} else if (numClasses < 1) {
+			throw new IllegalArgumentException("There must be at least one class, not " + numClasses + ".");
+		}
+	}
+
+	/**
+	 * Samples <code>long</code> (and <code>int</code>) keys, and builds a {@link LongCdfPartitionFunction}.
+	 */
+	public static final class OfLongs extends CdfSampler {
+
+		/**
+		 * Samples with the {@link CdfSampler#DEFAULT_SEED}.
+		 *
+		 * @param reservoirSize The maximum number of samples to keep.
+		 */
+		public OfLongs(int reservoirSize) {
+			this(reservoirSize, new Random(DEFAULT_SEED));
+		}
+
+		/**
+		 * @param reservoirSize The maximum number of samples to keep.
+		 * @param random        The source of randomness to choose the samples with.
+		 */
+		public OfLongs(int reservoirSize, Random random) {
+			super(reservoirSize, random);
+			samples = new long[reservoirSize];
+		}
+
+		/**
+		 * Samples with the {@link CdfSampler#DEFAULT_SEED}.
+		 *
+		 * @param alpha       <code>1 - alpha</code> is the confidence level that the sample CDF is within the <code>cdfDistance</code> of the population CDF.
+		 * @param cdfDistance The distance between the sample CDF and the population CDF, with a confidence level of <code>1 - alpha</code>.
+		 *
+		 * @throws IllegalArgumentException If more than the {@link CdfSampler#MAX_RESERVOIR_SIZE} samples are needed.
+		 */
+		public OfLongs(double alpha, double cdfDistance) {
+			this(alpha, cdfDistance, new Random(DEFAULT_SEED));
+		}
+
+		/**
+		 * @param alpha       <code>1 - alpha</code> is the confidence level that the sample CDF is within the <code>cdfDistance</code> of the population CDF.
+		 * @param cdfDistance The distance between the sample CDF and the population CDF, with a confidence level of <code>1 - alpha</code>.
+		 * @param random      The source of randomness to choose the samples with.
+		 *
+		 * @throws IllegalArgumentException If more than the {@link CdfSampler#MAX_RESERVOIR_SIZE} samples are needed.
+		 */
+		public OfLongs(double alpha, double cdfDistance, Random random) {
+			super(alpha, cdfDistance, random);
+			samples = new long[reservoirSize];
+		}
+
+		/**
+		 * Adds the <code>key</code> to the stream.
+		 */
+		public void add(long key) {
+			if ((numSeen == 0) || (key < min)) {
+				min = key;
+			}
+			if ((numSeen == 0) || (key > max)) {
+				max = key;
+			}
+
+			final int slot = reserve();
+			if (slot >= 0) {
+				samples[slot] = key;
+			}
+		}
+
+		/**
+		 * Adds every key in the <code>batch</code> to the stream.
+		 */
+		public void add(long[] batch) {
+			for (long key : batch) {
+				add(key);
+			}
+		}
+
+		/**
+		 * Adds every key in the <code>batch</code> to the stream.
+		 */
+		public void add(int[] batch) {
+			for (int key : batch) {
+				add(key);
+			}
+		}
+
+		/**
+		 * Builds a partition function into <code>numClasses</code> classes from the current sample.
+		 *
+		 * @throws IllegalStateException If no keys have been added.
+		 * @throws IllegalArgumentException If <code>numClasses</code> is less than one.
+		 */
+		public LongCdfPartitionFunction toPartitionFunction(int numClasses) {
+			checkCanBuild(numClasses);
+			return new LongCdfPartitionFunction(min, max, samples, getNumSamples(), numClasses);
+		}
+
+		private final long[] samples;
+		private long min;
+		private long max;
+	}
+
+	/**
+	 * Samples <code>double</code> (and <code>float</code>) keys, and builds a {@link DoubleCdfPartitionFunction}.
+	 */
+	public static final class OfDoubles extends CdfSampler {
+
+		/**
+		 * Samples with the {@link CdfSampler#DEFAULT_SEED}.
+		 *
+		 * @param reservoirSize The maximum number of samples to keep.
+		 */
+		public OfDoubles(int reservoirSize) {
+			this(reservoirSize, new Random(DEFAULT_SEED));
+		}
+
+		/**
+		 * @param reservoirSize The maximum number of samples to keep.
+		 * @param random        The source of randomness to choose the samples with.
+		 */
+		public OfDoubles(int reservoirSize, Random random) {
+			super(reservoirSize, random);
+			samples = new double[reservoirSize];
+		}
+
+		/**
+		 * Samples with the {@link CdfSampler#DEFAULT_SEED}.
+		 *
+		 * @param alpha       <code>1 - alpha</code> is the confidence level that the sample CDF is within the <code>cdfDistance</code> of the population CDF.
+		 * @param cdfDistance The distance between the sample CDF and the population CDF, with a confidence level of <code>1 - alpha</code>.
+		 *
+		 * @throws IllegalArgumentException If more than the {@link CdfSampler#MAX_RESERVOIR_SIZE} samples are needed.
+		 */
+		public OfDoubles(double alpha, double cdfDistance) {
+			this(alpha, cdfDistance, new Random(DEFAULT_SEED));
+		}
+
+		/**
+		 * @param alpha       <code>1 - alpha</code> is the confidence level that the sample CDF is within the <code>cdfDistance</code> of the population CDF.
+		 * @param cdfDistance The distance between the sample CDF and the population CDF, with a confidence level of <code>1 - alpha</code>.
+		 * @param random      The source of randomness to choose the samples with.
+		 *
+		 * @throws IllegalArgumentException If more than the {@link CdfSampler#MAX_RESERVOIR_SIZE} samples are needed.
+		 */
+		public OfDoubles(double alpha, double cdfDistance, Random random) {
+			super(alpha, cdfDistance, random);
+			samples = new double[reservoirSize];
+		}
+
+		/**
+		 * Adds the <code>key</code> to the stream.
+		 *
+		 * @throws IllegalArgumentException If the key is NaN.
+		 */
+		public void add(double key) {
+			if (Double.isNaN(key)) {
+				throw new IllegalArgumentException("NaN cannot be sampled.");
+			}
+
+			if ((numSeen == 0) || (key < min)) {
+				min = key;
+			}
+			if ((numSeen == 0) || (key > max)) {
+				max = key;
+			}
+
+			final int slot = reserve();
+			if (slot >= 0) {
+				samples[slot] = key;
+			}
+		}
+
+		/**
+		 * Adds every key in the <code>batch</code> to the stream.
+		 */
+		public void add(double[] batch) {
+			for (double key : batch) {
+				add(key);
+			}
+		}
+
+		/**
+		 * Adds every key in the <code>batch</code> to the stream.
+		 */
+		public void add(float[] batch) {
+			for (float key : batch) {
+				add(key);
+			}
+		}
+
+		/**
+		 * Builds a partition function into <code>numClasses</code> classes from the current sample.
+		 *
+		 * @throws IllegalStateException If no keys have been added.
+		 * @throws IllegalArgumentException If <code>numClasses</code> is less than one.
+		 */
+		public DoubleCdfPartitionFunction toPartitionFunction(int numClasses) {
+			checkCanBuild(numClasses);
+			return new DoubleCdfPartitionFunction(min, max, samples, getNumSamples(), numClasses);
+		}
+
+		private final double[] samples;
+		private double min;
+		private double max;
+	}
+
+	/**
+	 * Samples {@link Element}s, and builds a {@link CdfPartitionFunction}.
+	 */
+	public static final class OfElements<T extends Element<U>, U> extends CdfSampler {
+
+		/**
+		 * Samples with the {@link CdfSampler#DEFAULT_SEED}.
+		 *
+		 * @param reservoirSize The maximum number of samples to keep.
+		 */
+		public OfElements(int reservoirSize) {
+			this(reservoirSize, new Random(DEFAULT_SEED));
+		}
+
+		/**
+		 * @param reservoirSize The maximum number of samples to keep.
+		 * @param random        The source of randomness to choose the samples with.
+		 */
+		public OfElements(int reservoirSize, Random random) {
+			super(reservoirSize, random);
+			samples = new ArrayList<T>();
+		}
+
+		/**
+		 * Samples with the {@link CdfSampler#DEFAULT_SEED}.
+		 *
+		 * @param alpha       <code>1 - alpha</code> is the confidence level that the sample CDF is within the <code>cdfDistance</code> of the population CDF.
+		 * @param cdfDistance The distance between the sample CDF and the population CDF, with a confidence level of <code>1 - alpha</code>.
+		 *
+		 * @throws IllegalArgumentException If more than the {@link CdfSampler#MAX_RESERVOIR_SIZE} samples are needed.
+		 */
+		public OfElements(double alpha, double cdfDistance) {
+			this(alpha, cdfDistance, new Random(DEFAULT_SEED));
+		}
+
+		/**
+		 * @param alpha       <code>1 - alpha</code> is the confidence level that the sample CDF is within the <code>cdfDistance</code> of the population CDF.
+		 * @param cdfDistance The distance between the sample CDF and the population CDF, with a confidence level of <code>1 - alpha</code>.
+		 * @param random      The source of randomness to choose the samples with.
+		 *
+		 * @throws IllegalArgumentException If more than the {@link CdfSampler#MAX_RESERVOIR_SIZE} samples are needed.
+		 */
+		public OfElements(double alpha, double cdfDistance, Random random) {
+			super(alpha, cdfDistance, random);
+			samples = new ArrayList<T>();
+		}
+
+		/**
+		 * Adds the <code>element</code> to the stream.
+		 *
+		 * @throws IllegalArgumentException If the element is <code>null</code>.
+		 */
+		public void add(T element) {
+			if (element == null) {
+				throw new IllegalArgumentException("A null element cannot be sampled.");
+			}
+
+			if ((numSeen == 0) || (element.compareTo(min) < 0)) {
+				min = element;
+			}
+			if ((numSeen == 0) || (element.compareTo(max) > 0)) {
+				max = element;
+			}
+
+			final int slot = reserve();
+			if (slot == samples.size()) {
+				samples.add(element);
+			} else if (slot >= 0) {
+				samples.set(slot, element);
+			}
+		}
+
+		/**
+		 * Adds every element in the <code>batch</code> to the stream.
+		 */
+		public void add(List<T> batch) {
+			for (T element : batch) {
+				add(element);
+			}
+		}
+
+		/**
+		 * Builds a partition function into <code>numClasses</code> classes from the current sample.
+		 *
+		 * @throws IllegalStateException If no elements have been added.
+		 * @throws IllegalArgumentException If <code>numClasses</code> is less than one.
+		 */
+		public CdfPartitionFunction<T, U> toPartitionFunction(int numClasses) {
+			checkCanBuild(numClasses);
+			return new CdfPartitionFunction<T, U>(min, max, samples.subList(0, getNumSamples()), numClasses);
+		}
+
+		@Override
+		public void reset() {
+			super.reset();
+			samples.clear();
+			min = null;
+			max = null;
+		}
+
+		private final List<T> samples;
+		private T min;
+		private T max;
+	}
+
+	final int reservoirSize;
+	long numSeen;
+	private final Random random;
+}
@@ -0,0 +1,124 @@
+package mpigott.sort;
+
+/**
+ * Classifies every element of a {@link PartitionTarget} once, up front, and
+ * remembers each element's class.  The classes are swapped in lockstep with the
+ * elements, so the partition function is called exactly once per element, no
+ * matter how many times the partitioner looks at it.
+ *
+ * The classes are stored in the narrowest array that can hold them: one byte
+ * per element for up to 256 classes, two bytes for up to 65,536 classes, and
+ * four bytes otherwise.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+abstract class ClassOracle extends PartitionTarget {
+
+	/**
+	 * Classifies every element of the <code>target</code>, and returns a
+	 * target that answers {@link #getClass(int)} from those classes.
+	 */
+	static ClassOracle of(PartitionTarget target) {
+		final int numClasses = target.getNumClasses();
+		if (numClasses <= (1 << Byte.SIZE)) {
+			return new OfBytes(target);
+		} else if (numClasses <= (1 << Short.SIZE)) {
+			return new OfShorts(target);
+		}
+		return new OfInts(target);
+	}
+
+	ClassOracle(PartitionTarget target) {
+		this.target = target;
+	}
+
+	int size() {
+		return target.size();
+	}
+
+	int getNumClasses() {
+		return target.getNumClasses();
+	}
+
+	protected final PartitionTarget target;
+
+	static final class OfBytes extends ClassOracle {
+		OfBytes(PartitionTarget target) {
+			super(target);
+			classes = new byte[target.size()];
+
+			final int[] batch = new int[BATCH_SIZE];
+			for (int fromIndex = 0; fromIndex < classes.length; fromIndex += BATCH_SIZE) {
+				final int toIndex = Math.min(classes.length, fromIndex + BATCH_SIZE);
+				target.getClasses(fromIndex, toIndex, batch);
+				for (int index = fromIndex; index < toIndex; ++index) {
+					classes[index] = (byte) batch[index - fromIndex];
+				}
+			}
+		}
+
+		int getClass(int index) {
+			return classes[index] & 0xFF;
+		}
+
+		void swap(int first, int second) {
+			target.swap(first, second);
+			final byte classification = classes[first];
+			classes[first] = classes[second];
+			classes[second] = classification;
+		}
+
+		private final byte[] classes;
+	}
+
+	static final class OfShorts extends ClassOracle {
+		OfShorts(PartitionTarget target) {
+			super(target);
+			classes = new short[target.size()];
+
+			final int[] batch = new int[BATCH_SIZE];
+			for (int fromIndex = 0; fromIndex < classes.length; fromIndex += BATCH_SIZE) {
+				final int toIndex = Math.min(classes.length, fromIndex + BATCH_SIZE);
+				target.getClasses(fromIndex, toIndex, batch);
+				for (int index = fromIndex; index < toIndex; ++index) {
+					classes[index] = (short) batch[index - fromIndex];
+				}
+			}
+		}
+
+		int getClass(int index) {
+			return classes[index] & 0xFFFF;
+		}
+
+		void swap(int first, int second) {
+			target.swap(first, second);
+			final short classification = classes[first];
+			classes[first] = classes[second];
+			classes[second] = classification;
+		}
+
+		private final short[] classes;
+	}
+
+	static final class OfInts extends ClassOracle {
+		OfInts(PartitionTarget target) {
+			super(target);
+			classes = new int[target.size()];
+			target.getClasses(0, classes.length, classes);
+		}
+
+		int getClass(int index) {
+			return classes[index];
+		}
+
+		void swap(int first, int second) {
+			target.swap(first, second);
+			final int classification = classes[first];
+			classes[first] = classes[second];
+			classes[second] = classification;
+		}
+
+		private final int[] classes;
+	}
+}
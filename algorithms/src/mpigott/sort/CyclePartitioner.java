@@ -1,6 +1,12 @@
 package mpigott.sort;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * Implementation of the Flash Sort cycle-based partitioner.
@@ -54,7 +60,7 @@ public class CyclePartitioner {
 	 * no side effects, and allows the algorithm to be
 	 * thread safe.
 	 */
-	private static final class State<T extends Element<U>, U> {
+	private static final class State {
 
 		public State(int classCount) {
 			numClasses = classCount;
@@ -62,6 +68,17 @@ public class CyclePartitioner {
 			classUpperBounds = null;
 			currInsertIndex = null;
 			cycleLeaderIndex = 0;
+			batchClasses = null;
+			batchStart = 0;
+			batchEnd = 0;
+			batchLength = MIN_LEADER_BATCH;
+			moves = 0;
+			cycles = 0;
+			expansions = 0;
+			neighborsShrunk = 0;
+			longestCascade = 0;
+			workBudget = Long.MAX_VALUE;
+			replanned = false;
 		}
 
 		int listSize;
@@ -69,41 +86,826 @@ public class CyclePartitioner {
 		int[] currInsertIndex;
 		int numClasses;
 		int cycleLeaderIndex;
+
+		// The classes of the candidate cycle leaders in [batchStart, batchEnd).
+		int[] batchClasses;
+		int batchStart;
+		int batchEnd;
+		int batchLength;
+
+		// Statistics.
+		long moves;
+		long cycles;
+		long expansions;
+		long neighborsShrunk;
+		int longestCascade;
+
+		// The moves and neighbor shrinks allowed before the bounds are counted exactly instead.
+		long workBudget;
+		boolean replanned;
+	}
+
+	/**
+	 * Partitions the input array into the provided number of classes in O(N) time, in-place,
+	 * unstably.  The upper bounds of all of the classes is returned, allowing for a
+	 * separate sorting algorithm to be conducted on each class, possibly in parallel.
+	 *
+	 * The original Dr. Dobbs article recommended the number of classes to be (0.43 * input.size)
+	 * if using serial insertion sort as the second sorting algorithm.  However, I found that a
+	 * smaller number of classes is better, to be followed by an N*log(N) algorithm.  For example,
+	 * with a list size of 1000 randomly-generated elements, a class size of 420 required ~38,000
+	 * moves to fill each class.  However, using 40 classes only required 1,651 moves to complete.
+	 * Adding in a secondary sort of 40*25*log(25), or 4644, brings the total computation to 6,295
+	 * moves.  1000*log(1000), in comparison, is 9,966.
+	 *
+	 * If the second stage will be done in parallel, choose the number of processors / hyper-threads
+	 * you have to do the work.  {@link FlashSort} performs both stages, sorting the classes in parallel.
+	 *
+	 * @param input The input array to bucket into classes.
+	 *
+	 * @param partitionFunction The function to use when partitioning elements into classes.
+	 *
+	 * @return The upper bounds of each class, in increasing order, or
+	 *         <code>null</code> if either the array has fewer than 2
+	 *         elements, or if the partition function requests fewer
+	 *         than two classes.
+	 */
+	public static <T extends Element<U>, U> int[] partition(List<T> input, PartitionFunction<T, U> partitionFunction) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfList<T, U>(input, partitionFunction));
+	}
+
+	/**
+	 * Partitions the <code>int</code> keys in place, without boxing them.
+	 *
+	 * @see #partition(List, PartitionFunction)
+	 */
+	public static int[] partition(int[] input, LongPartitionFunction partitionFunction) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfInts(input, partitionFunction));
+	}
+
+	/**
+	 * Partitions the <code>long</code> keys in place, without boxing them.
+	 *
+	 * @see #partition(List, PartitionFunction)
+	 */
+	public static int[] partition(long[] input, LongPartitionFunction partitionFunction) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfLongs(input, partitionFunction));
+	}
+
+	/**
+	 * Partitions the <code>float</code> keys in place, without boxing them.
+	 *
+	 * @see #partition(List, PartitionFunction)
+	 */
+	public static int[] partition(float[] input, DoublePartitionFunction partitionFunction) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfFloats(input, partitionFunction));
+	}
+
+	/**
+	 * Partitions the <code>double</code> keys in place, without boxing them.
+	 *
+	 * @see #partition(List, PartitionFunction)
+	 */
+	public static int[] partition(double[] input, DoublePartitionFunction partitionFunction) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfDoubles(input, partitionFunction));
+	}
+
+	/**
+	 * Partitions the <code>int</code> keys in place, moving the <code>payloads</code> at
+	 * each index along with the key at that index, in the same pass.
+	 *
+	 * @param input             The keys to partition.
+	 * @param partitionFunction The function to use when partitioning the keys into classes.
+	 * @param payloads          The payload arrays, which run parallel to the keys.
+	 *
+	 * @return The upper bounds of each class, in increasing order, or
+	 *         <code>null</code> if either the array has fewer than 2
+	 *         elements, or if the partition function requests fewer
+	 *         than two classes.
+	 *
+	 * @throws IllegalArgumentException If the payload arrays are not as long as the keys,
+	 *                                  or if the array of keys is also a payload.
+	 *
+	 * @see Payloads
+	 */
+	public static int[] partition(int[] input, LongPartitionFunction partitionFunction, Payloads payloads) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.WithPayloads(new PartitionTarget.OfInts(input, partitionFunction), input, payloads));
+	}
+
+	/**
+	 * Partitions the <code>long</code> keys in place, along with their <code>payloads</code>.
+	 *
+	 * @see #partition(int[], LongPartitionFunction, Payloads)
+	 */
+	public static int[] partition(long[] input, LongPartitionFunction partitionFunction, Payloads payloads) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.WithPayloads(new PartitionTarget.OfLongs(input, partitionFunction), input, payloads));
+	}
+
+	/**
+	 * Partitions the <code>float</code> keys in place, along with their <code>payloads</code>.
+	 *
+	 * @see #partition(int[], LongPartitionFunction, Payloads)
+	 */
+	public static int[] partition(float[] input, DoublePartitionFunction partitionFunction, Payloads payloads) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.WithPayloads(new PartitionTarget.OfFloats(input, partitionFunction), input, payloads));
+	}
+
+	/**
+	 * Partitions the <code>double</code> keys in place, along with their <code>payloads</code>.
+	 *
+	 * @see #partition(int[], LongPartitionFunction, Payloads)
+	 */
+	public static int[] partition(double[] input, DoublePartitionFunction partitionFunction, Payloads payloads) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.WithPayloads(new PartitionTarget.OfDoubles(input, partitionFunction), input, payloads));
+	}
+
+	/**
+	 * Partitions the records in place by their <code>long</code> keys,
+	 * without deserializing them.
+	 *
+	 * @see #partition(List, PartitionFunction)
+	 */
+	public static int[] partition(FixedWidthRecords input, LongPartitionFunction partitionFunction) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfLongRecords(input, partitionFunction));
+	}
+
+	/**
+	 * Partitions the records in place by their <code>double</code> keys,
+	 * without deserializing them.
+	 *
+	 * @see #partition(List, PartitionFunction)
+	 */
+	public static int[] partition(FixedWidthRecords input, DoublePartitionFunction partitionFunction) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfDoubleRecords(input, partitionFunction));
+	}
+
+	/**
+	 * Partitions the objects in place by the <code>long</code> keys the <code>key</code>
+	 * function extracts from them.  The objects do not need to implement {@link Element}.
+	 *
+	 * @see #partition(List, PartitionFunction)
+	 */
+	public static <T> int[] partition(List<T> input, ToLongFunction<? super T> key, LongPartitionFunction partitionFunction) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfLongKeys<T>(input, key, partitionFunction));
+	}
+
+	/**
+	 * Partitions the array of objects in place by the <code>long</code> keys the <code>key</code>
+	 * function extracts from them.
+	 *
+	 * @see #partition(List, ToLongFunction, LongPartitionFunction)
+	 */
+	public static <T> int[] partition(T[] input, ToLongFunction<? super T> key, LongPartitionFunction partitionFunction) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(Arrays.asList(input), key, partitionFunction);
+	}
+
+	/**
+	 * Partitions the objects in place by the <code>double</code> keys the <code>key</code>
+	 * function extracts from them.  The objects do not need to implement {@link Element}.
+	 *
+	 * @see #partition(List, PartitionFunction)
+	 */
+	public static <T> int[] partition(List<T> input, ToDoubleFunction<? super T> key, DoublePartitionFunction partitionFunction) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfDoubleKeys<T>(input, key, partitionFunction));
+	}
+
+	/**
+	 * Partitions the array of objects in place by the <code>double</code> keys the <code>key</code>
+	 * function extracts from them.
+	 *
+	 * @see #partition(List, ToDoubleFunction, DoublePartitionFunction)
+	 */
+	public static <T> int[] partition(T[] input, ToDoubleFunction<? super T> key, DoublePartitionFunction partitionFunction) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(Arrays.asList(input), key, partitionFunction);
+	}
+
+	/**
+	 * Partitions an index of row ids in place, by the <code>long</code> key of each row,
+	 * rather than partitioning the rows themselves.  This is an argsort: the rows of a
+	 * columnar table cannot be moved, but once the index is partitioned (or sorted),
+	 * every column can be gathered through it.  Only the 4-byte row ids are moved, so a
+	 * wide table costs no more to partition than a narrow one.  The <code>key</code>
+	 * function looks up a row's key, usually in a column:
+	 *
+	 *     int[] rowIds = new int[numRows];
+	 *     Arrays.setAll(rowIds, row -> row);
+	 *     int[] classBounds = CyclePartitioner.partition(rowIds, row -> prices[row], partitionFunction);
+	 *
+	 * The row ids may be any subset of the rows, in any order, and the key is looked up
+	 * every time a row is classified, so caching the classes (see {@link PartitionOptions})
+	 * saves a random access into the column per move.
+	 *
+	 * @param rowIds            The row ids to partition.
+	 * @param key               The function to look up the key of a row id with.
+	 * @param partitionFunction The function to use when partitioning the keys into classes.
+	 *
+	 * @return The upper bounds of each class in the index, in increasing order, or
+	 *         <code>null</code> if either there are fewer than 2 row ids, or if the
+	 *         partition function requests fewer than two classes.
+	 *
+	 * @see #partition(List, PartitionFunction)
+	 */
+	public static int[] partition(int[] rowIds, IntToLongFunction key, LongPartitionFunction partitionFunction) {
+		if (rowIds == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfLongIndex(rowIds, key, partitionFunction));
+	}
+
+	/**
+	 * Partitions an index of row ids in place, by the <code>double</code> key of each row.
+	 *
+	 * @see #partition(int[], IntToLongFunction, LongPartitionFunction)
+	 */
+	public static int[] partition(int[] rowIds, IntToDoubleFunction key, DoublePartitionFunction partitionFunction) {
+		if (rowIds == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfDoubleIndex(rowIds, key, partitionFunction));
+	}
+
+	/**
+	 * Partitions the input array into the provided number of classes, as
+	 * {@link #partition(List, PartitionFunction)} does, with the given <code>options</code>.
+	 *
+	 * @param input The input array to bucket into classes.
+	 *
+	 * @param partitionFunction The function to use when partitioning elements into classes.
+	 *
+	 * @param options How to partition the input.
+	 *
+	 * @return The upper bounds of each class, in increasing order, or
+	 *         <code>null</code> if either the array has fewer than 2
+	 *         elements, or if the partition function requests fewer
+	 *         than two classes.
+	 */
+	public static <T extends Element<U>, U> int[] partition(List<T> input, PartitionFunction<T, U> partitionFunction, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfList<T, U>(input, partitionFunction), options);
+	}
+
+	/**
+	 * Partitions the <code>int</code> keys in place, with the given <code>options</code>.
+	 *
+	 * @see #partition(List, PartitionFunction, PartitionOptions)
+	 */
+	public static int[] partition(int[] input, LongPartitionFunction partitionFunction, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfInts(input, partitionFunction), options);
+	}
+
+	/**
+	 * Partitions the <code>long</code> keys in place, with the given <code>options</code>.
+	 *
+	 * @see #partition(List, PartitionFunction, PartitionOptions)
+	 */
+	public static int[] partition(long[] input, LongPartitionFunction partitionFunction, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfLongs(input, partitionFunction), options);
+	}
+
+	/**
+	 * Partitions the <code>float</code> keys in place, with the given <code>options</code>.
+	 *
+	 * @see #partition(List, PartitionFunction, PartitionOptions)
+	 */
+	public static int[] partition(float[] input, DoublePartitionFunction partitionFunction, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfFloats(input, partitionFunction), options);
+	}
+
+	/**
+	 * Partitions the <code>double</code> keys in place, with the given <code>options</code>.
+	 *
+	 * @see #partition(List, PartitionFunction, PartitionOptions)
+	 */
+	public static int[] partition(double[] input, DoublePartitionFunction partitionFunction, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfDoubles(input, partitionFunction), options);
+	}
+
+	/**
+	 * Partitions the <code>int</code> keys in place, along with their <code>payloads</code>,
+	 * with the given <code>options</code>.
+	 *
+	 * @see #partition(int[], LongPartitionFunction, Payloads)
+	 */
+	public static int[] partition(int[] input, LongPartitionFunction partitionFunction, Payloads payloads, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.WithPayloads(new PartitionTarget.OfInts(input, partitionFunction), input, payloads), options);
+	}
+
+	/**
+	 * Partitions the <code>long</code> keys in place, along with their <code>payloads</code>,
+	 * with the given <code>options</code>.
+	 *
+	 * @see #partition(int[], LongPartitionFunction, Payloads)
+	 */
+	public static int[] partition(long[] input, LongPartitionFunction partitionFunction, Payloads payloads, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.WithPayloads(new PartitionTarget.OfLongs(input, partitionFunction), input, payloads), options);
+	}
+
+	/**
+	 * Partitions the <code>float</code> keys in place, along with their <code>payloads</code>,
+	 * with the given <code>options</code>.
+	 *
+	 * @see #partition(int[], LongPartitionFunction, Payloads)
+	 */
+	public static int[] partition(float[] input, DoublePartitionFunction partitionFunction, Payloads payloads, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.WithPayloads(new PartitionTarget.OfFloats(input, partitionFunction), input, payloads), options);
+	}
+
+	/**
+	 * Partitions the <code>double</code> keys in place, along with their <code>payloads</code>,
+	 * with the given <code>options</code>.
+	 *
+	 * @see #partition(int[], LongPartitionFunction, Payloads)
+	 */
+	public static int[] partition(double[] input, DoublePartitionFunction partitionFunction, Payloads payloads, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.WithPayloads(new PartitionTarget.OfDoubles(input, partitionFunction), input, payloads), options);
+	}
+
+	/**
+	 * Partitions the records in place by their <code>long</code> keys, with the given <code>options</code>.
+	 *
+	 * @see #partition(List, PartitionFunction, PartitionOptions)
+	 */
+	public static int[] partition(FixedWidthRecords input, LongPartitionFunction partitionFunction, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfLongRecords(input, partitionFunction), options);
+	}
+
+	/**
+	 * Partitions the records in place by their <code>double</code> keys, with the given <code>options</code>.
+	 *
+	 * @see #partition(List, PartitionFunction, PartitionOptions)
+	 */
+	public static int[] partition(FixedWidthRecords input, DoublePartitionFunction partitionFunction, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfDoubleRecords(input, partitionFunction), options);
+	}
+
+	/**
+	 * Partitions the objects in place by the <code>long</code> keys the <code>key</code>
+	 * function extracts from them, with the given <code>options</code>.
+	 *
+	 * @see #partition(List, PartitionFunction, PartitionOptions)
+	 */
+	public static <T> int[] partition(List<T> input, ToLongFunction<? super T> key, LongPartitionFunction partitionFunction, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfLongKeys<T>(input, key, partitionFunction), options);
+	}
+
+	/**
+	 * Partitions the array of objects in place by the <code>long</code> keys the <code>key</code>
+	 * function extracts from them, with the given <code>options</code>.
+	 *
+	 * @see #partition(List, ToLongFunction, LongPartitionFunction, PartitionOptions)
+	 */
+	public static <T> int[] partition(T[] input, ToLongFunction<? super T> key, LongPartitionFunction partitionFunction, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(Arrays.asList(input), key, partitionFunction, options);
 	}
 
 	/**
-	 * Partitions the input array into the provided number of classes in O(N) time, in-place,
-	 * unstably.  The upper bounds of all of the classes is returned, allowing for a
-	 * separate sorting algorithm to be conducted on each class, possibly in parallel.
+	 * Partitions the objects in place by the <code>double</code> keys the <code>key</code>
+	 * function extracts from them, with the given <code>options</code>.
 	 *
-	 * The original Dr. Dobbs article recommended the number of classes to be (0.43 * input.size)
-	 * if using serial insertion sort as the second sorting algorithm.  However, I found that a
-	 * smaller number of classes is better, to be followed by an N*log(N) algorithm.  For example,
-	 * with a list size of 1000 randomly-generated elements, a class size of 420 required ~38,000
-	 * moves to fill each class.  However, using 40 classes only required 1,651 moves to complete.
-	 * Adding in a secondary sort of 40*25*log(25), or 4644, brings the total computation to 6,295
-	 * moves.  1000*log(1000), in comparison, is 9,966.
+	 * @see #partition(List, PartitionFunction, PartitionOptions)
+	 */
+	public static <T> int[] partition(List<T> input, ToDoubleFunction<? super T> key, DoublePartitionFunction partitionFunction, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfDoubleKeys<T>(input, key, partitionFunction), options);
+	}
+
+	/**
+	 * Partitions the array of objects in place by the <code>double</code> keys the <code>key</code>
+	 * function extracts from them, with the given <code>options</code>.
 	 *
-	 * If the second stage will be done in parallel, choose the number of processors / hyper-threads
-	 * you have to do the work.
+	 * @see #partition(List, ToDoubleFunction, DoublePartitionFunction, PartitionOptions)
+	 */
+	public static <T> int[] partition(T[] input, ToDoubleFunction<? super T> key, DoublePartitionFunction partitionFunction, PartitionOptions options) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(Arrays.asList(input), key, partitionFunction, options);
+	}
+
+	/**
+	 * Partitions an index of row ids in place by the <code>long</code> key of each row,
+	 * with the given <code>options</code>.
+	 *
+	 * @see #partition(int[], IntToLongFunction, LongPartitionFunction)
+	 */
+	public static int[] partition(int[] rowIds, IntToLongFunction key, LongPartitionFunction partitionFunction, PartitionOptions options) {
+		if (rowIds == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfLongIndex(rowIds, key, partitionFunction), options);
+	}
+
+	/**
+	 * Partitions an index of row ids in place by the <code>double</code> key of each row,
+	 * with the given <code>options</code>.
+	 *
+	 * @see #partition(int[], IntToLongFunction, LongPartitionFunction)
+	 */
+	public static int[] partition(int[] rowIds, IntToDoubleFunction key, DoublePartitionFunction partitionFunction, PartitionOptions options) {
+		if (rowIds == null) {
+			return null;
+		}
+
+		return partition(new PartitionTarget.OfDoubleIndex(rowIds, key, partitionFunction), options);
+	}
+
+	/**
+	 * Partitions the input array into the provided number of classes using all of the
+	 * <code>pool</code>'s threads.  Each thread counts the classes of part of the input,
+	 * so the exact bounds of every class are known before any element is moved.  Then
+	 * the threads permute disjoint blocks of every class concurrently, and the class
+	 * boundaries are cleaned up, until every element is in its class.
+	 *
+	 * The partition function is called concurrently, so it must be thread-safe, and the
+	 * list must support concurrent calls to {@link List#set(int, Object)} at distinct
+	 * indices (as <code>ArrayList</code> does).  Small inputs are partitioned serially,
+	 * also counting the exact class bounds first.
 	 *
 	 * @param input The input array to bucket into classes.
 	 *
 	 * @param partitionFunction The function to use when partitioning elements into classes.
 	 *
+	 * @param pool The pool to partition the input on.
+	 *
 	 * @return The upper bounds of each class, in increasing order, or
 	 *         <code>null</code> if either the array has fewer than 2
 	 *         elements, or if the partition function requests fewer
 	 *         than two classes.
+	 *
+	 * @see #partition(List, PartitionFunction)
 	 */
-	public static <T extends Element<U>, U> int[] partition(List<T> input, PartitionFunction<T, U> partitionFunction) {
-		if ((input == null) || input.isEmpty() || (input.size() < 2) || (partitionFunction.getNumClasses() < 2)) {
+	public static <T extends Element<U>, U> int[] partition(List<T> input, PartitionFunction<T, U> partitionFunction, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.OfList<T, U>(input, partitionFunction), pool);
+	}
+
+	/**
+	 * Partitions the <code>int</code> keys in place, using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(List, PartitionFunction, ForkJoinPool)
+	 */
+	public static int[] partition(int[] input, LongPartitionFunction partitionFunction, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.OfInts(input, partitionFunction), pool);
+	}
+
+	/**
+	 * Partitions the <code>long</code> keys in place, using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(List, PartitionFunction, ForkJoinPool)
+	 */
+	public static int[] partition(long[] input, LongPartitionFunction partitionFunction, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.OfLongs(input, partitionFunction), pool);
+	}
+
+	/**
+	 * Partitions the <code>float</code> keys in place, using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(List, PartitionFunction, ForkJoinPool)
+	 */
+	public static int[] partition(float[] input, DoublePartitionFunction partitionFunction, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.OfFloats(input, partitionFunction), pool);
+	}
+
+	/**
+	 * Partitions the <code>double</code> keys in place, using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(List, PartitionFunction, ForkJoinPool)
+	 */
+	public static int[] partition(double[] input, DoublePartitionFunction partitionFunction, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.OfDoubles(input, partitionFunction), pool);
+	}
+
+	/**
+	 * Partitions the <code>int</code> keys in place, along with their <code>payloads</code>,
+	 * using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(int[], LongPartitionFunction, Payloads)
+	 */
+	public static int[] partition(int[] input, LongPartitionFunction partitionFunction, Payloads payloads, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.WithPayloads(new PartitionTarget.OfInts(input, partitionFunction), input, payloads), pool);
+	}
+
+	/**
+	 * Partitions the <code>long</code> keys in place, along with their <code>payloads</code>,
+	 * using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(int[], LongPartitionFunction, Payloads)
+	 */
+	public static int[] partition(long[] input, LongPartitionFunction partitionFunction, Payloads payloads, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.WithPayloads(new PartitionTarget.OfLongs(input, partitionFunction), input, payloads), pool);
+	}
+
+	/**
+	 * Partitions the <code>float</code> keys in place, along with their <code>payloads</code>,
+	 * using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(int[], LongPartitionFunction, Payloads)
+	 */
+	public static int[] partition(float[] input, DoublePartitionFunction partitionFunction, Payloads payloads, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.WithPayloads(new PartitionTarget.OfFloats(input, partitionFunction), input, payloads), pool);
+	}
+
+	/**
+	 * Partitions the <code>double</code> keys in place, along with their <code>payloads</code>,
+	 * using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(int[], LongPartitionFunction, Payloads)
+	 */
+	public static int[] partition(double[] input, DoublePartitionFunction partitionFunction, Payloads payloads, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.WithPayloads(new PartitionTarget.OfDoubles(input, partitionFunction), input, payloads), pool);
+	}
+
+	/**
+	 * Partitions the records in place by their <code>long</code> keys, using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(List, PartitionFunction, ForkJoinPool)
+	 */
+	public static int[] partition(FixedWidthRecords input, LongPartitionFunction partitionFunction, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.OfLongRecords(input, partitionFunction), pool);
+	}
+
+	/**
+	 * Partitions the records in place by their <code>double</code> keys, using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(List, PartitionFunction, ForkJoinPool)
+	 */
+	public static int[] partition(FixedWidthRecords input, DoublePartitionFunction partitionFunction, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.OfDoubleRecords(input, partitionFunction), pool);
+	}
+
+	/**
+	 * Partitions the objects in place by the <code>long</code> keys the <code>key</code>
+	 * function extracts from them, using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(List, PartitionFunction, ForkJoinPool)
+	 */
+	public static <T> int[] partition(List<T> input, ToLongFunction<? super T> key, LongPartitionFunction partitionFunction, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.OfLongKeys<T>(input, key, partitionFunction), pool);
+	}
+
+	/**
+	 * Partitions the array of objects in place by the <code>long</code> keys the <code>key</code>
+	 * function extracts from them, using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(List, ToLongFunction, LongPartitionFunction, ForkJoinPool)
+	 */
+	public static <T> int[] partition(T[] input, ToLongFunction<? super T> key, LongPartitionFunction partitionFunction, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(Arrays.asList(input), key, partitionFunction, pool);
+	}
+
+	/**
+	 * Partitions the objects in place by the <code>double</code> keys the <code>key</code>
+	 * function extracts from them, using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(List, PartitionFunction, ForkJoinPool)
+	 */
+	public static <T> int[] partition(List<T> input, ToDoubleFunction<? super T> key, DoublePartitionFunction partitionFunction, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.OfDoubleKeys<T>(input, key, partitionFunction), pool);
+	}
+
+	/**
+	 * Partitions the array of objects in place by the <code>double</code> keys the <code>key</code>
+	 * function extracts from them, using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(List, ToDoubleFunction, DoublePartitionFunction, ForkJoinPool)
+	 */
+	public static <T> int[] partition(T[] input, ToDoubleFunction<? super T> key, DoublePartitionFunction partitionFunction, ForkJoinPool pool) {
+		if (input == null) {
+			return null;
+		}
+
+		return partition(Arrays.asList(input), key, partitionFunction, pool);
+	}
+
+	/**
+	 * Partitions an index of row ids in place by the <code>long</code> key of each row,
+	 * using all of the <code>pool</code>'s threads.  The <code>key</code> function is
+	 * called concurrently, so it must be thread-safe.
+	 *
+	 * @see #partition(int[], IntToLongFunction, LongPartitionFunction)
+	 */
+	public static int[] partition(int[] rowIds, IntToLongFunction key, LongPartitionFunction partitionFunction, ForkJoinPool pool) {
+		if (rowIds == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.OfLongIndex(rowIds, key, partitionFunction), pool);
+	}
+
+	/**
+	 * Partitions an index of row ids in place by the <code>double</code> key of each row,
+	 * using all of the <code>pool</code>'s threads.
+	 *
+	 * @see #partition(int[], IntToLongFunction, LongPartitionFunction, ForkJoinPool)
+	 */
+	public static int[] partition(int[] rowIds, IntToDoubleFunction key, DoublePartitionFunction partitionFunction, ForkJoinPool pool) {
+		if (rowIds == null) {
+			return null;
+		}
+
+		return ParallelPartitioner.partition(new PartitionTarget.OfDoubleIndex(rowIds, key, partitionFunction), pool);
+	}
+
+	/* The partitioning itself, shared by all of the input types.  The element being carried
+	 * along the cycle is kept in the cycle leader's position, and swapped into each new
+	 * location in turn.  When the new location is the cycle leader, the cycle is complete.
+	 */
+	static int[] partition(PartitionTarget target) {
+		return partition(target, new PartitionOptions());
+	}
+
+	static int[] partition(PartitionTarget target, PartitionOptions options) {
+		if ((target.size() < 2) || (target.getNumClasses() < 2)) {
+			if (options.getStatistics() != null) {
+				options.getStatistics().record(0, 0, 0, 0, 0, false, null);
+			}
 			return null;
 		}
 
-		State<T, U> state = new State<T, U>(partitionFunction.getNumClasses());
+		if (options.isStable()) {
+			return partitionStably(target, options);
+		}
+
+		if (options.isCacheClasses()) {
+			target = ClassOracle.of(target);
+		}
+
+		State state = new State(target.getNumClasses());
 
-		state.listSize = input.size();
+		state.listSize = target.size();
 		state.classUpperBounds = new int[state.numClasses];
 		state.currInsertIndex = new int[state.numClasses];
 
@@ -116,14 +918,55 @@ public class CyclePartitioner {
 		state.currInsertIndex[state.numClasses - 1] = (state.listSize - 1); // Last class goes to the end of the array.
 		state.classUpperBounds[state.numClasses - 1] = (state.listSize - 1);
 
+		if (isCountingExactBounds(target, options)) {
+			countExactBounds(state, target);
+		} else {
+			state.workBudget = getWorkBudget(state.listSize, options.getCascadeBudget());
+		}
+
 		// Step 3: Classify and swap until the first class is full.
-		T element = null;
+		if (!moveElements(state, target)) {
+			/* The classes cascaded into their neighbors so often that the estimated bounds cost
+			 * more than counting would have.  Every move so far was a swap, so the input is still
+			 * a permutation of itself: count the classes exactly, and start over from the first
+			 * element.  No class expands with exact bounds, so the rest costs at most N moves.
+			 */
+			state.replanned = true;
+			state.workBudget = Long.MAX_VALUE;
+			state.cycleLeaderIndex = 0;
+			state.batchStart = 0;
+			state.batchEnd = 0;
+			state.batchLength = MIN_LEADER_BATCH;
+			countExactBounds(state, target);
+			moveElements(state, target);
+		}
+
+		if (options.getStatistics() != null) {
+			options.getStatistics().record(state.moves, state.cycles, state.expansions, state.neighborsShrunk, state.longestCascade, state.replanned, state.classUpperBounds);
+		}
+
+		return state.classUpperBounds;
+	}
+
+	/* Returns the most moves and neighbor shrinks allowed with estimated class bounds, before
+	 * the partitioner gives up on them and counts the bounds exactly.
+	 */
+	private static long getWorkBudget(int listSize, double cascadeBudget) {
+		final double budget = cascadeBudget * listSize;
+		return (budget >= Long.MAX_VALUE) ? Long.MAX_VALUE : (long) budget;
+	}
+
+	/* Moves every element into its class, following one cycle at a time.  Returns false,
+	 * leaving the input partly partitioned, if the state's work budget runs out first.
+	 */
+	private static boolean moveElements(State state, PartitionTarget target) {
+		int classification = -1;
 		int newLocation = -1;
 
 		while (state.cycleLeaderIndex < state.listSize) {
 			// Find the next location where the element is in the wrong class.
 			for (; state.cycleLeaderIndex < state.listSize; ++state.cycleLeaderIndex) {
-				final int classification = partitionFunction.getClass(input.get(state.cycleLeaderIndex));
+				classification = getLeaderClass(state, target);
 
 				final int lowerBound = getLowerBound(state, classification);
 
@@ -139,30 +982,168 @@ public class CyclePartitioner {
 				break;
 			}
 
-			element = input.get(state.cycleLeaderIndex);
-
-			while (state.cycleLeaderIndex != newLocation) {
-				final int classification = partitionFunction.getClass(element);
+			++state.cycles;
 
+			while (true) {
 				newLocation = getNextLocation(state, classification);
 
-				final T evicted = input.get(newLocation);
+				if (newLocation == state.cycleLeaderIndex) {
+					break;
+				}
+
+				if ((newLocation > state.cycleLeaderIndex) && (newLocation < state.batchEnd)) {
+					// The candidates from here on no longer hold the elements they were classified with.
+					state.batchEnd = newLocation;
+					state.batchLength = MIN_LEADER_BATCH;
+				}
+
+				target.swap(state.cycleLeaderIndex, newLocation);
+				++state.moves;
 
-				input.set(newLocation, element);
+				if (state.moves + state.neighborsShrunk > state.workBudget) {
+					return false;
+				}
 
-				element = evicted;
+				classification = target.getClass(state.cycleLeaderIndex);
 			}
 
 			++state.cycleLeaderIndex;
 		}
 
-		return state.classUpperBounds;
+		return true;
+	}
+
+	/* Partitions out of place: classifies every element, counts the classes, and sums the
+	 * counts into the first position of each class.  Then each element's class is replaced
+	 * with its destination, the next free position in its class, in input order, and the
+	 * target moves every element to its destination through a buffer.
+	 */
+	private static int[] partitionStably(PartitionTarget target, PartitionOptions options) {
+		final int size = target.size();
+		final int numClasses = target.getNumClasses();
+
+		final int[] destinations = new int[size];
+		target.getClasses(0, size, destinations);
+
+		final int[] classUpperBounds = new int[numClasses];
+		for (int index = 0; index < size; ++index) {
+			++classUpperBounds[destinations[index]];
+		}
+
+		final int[] nextPositions = new int[numClasses];
+		int upperBound = -1;
+		for (int classNum = 0; classNum < numClasses; ++classNum) {
+			nextPositions[classNum] = upperBound + 1;
+			upperBound += classUpperBounds[classNum];
+			classUpperBounds[classNum] = upperBound;
+		}
+
+		for (int index = 0; index < size; ++index) {
+			destinations[index] = nextPositions[destinations[index]]++;
+		}
+		target.permute(0, size, destinations);
+
+		if (options.getStatistics() != null) {
+			options.getStatistics().record(size, 0, 0, 0, 0, false, classUpperBounds);
+		}
+
+		return classUpperBounds;
+	}
+
+	/* The smallest number of candidate cycle leaders to classify at a time. */
+	private static final int MIN_LEADER_BATCH = 16;
+
+	/* Returns the class of the element at the cycle leader index.  Candidate cycle leaders are
+	 * classified a batch at a time, ahead of the search.  A cycle may move elements into the
+	 * batch, which truncates it, so the batch starts small and only doubles (up to the target's
+	 * batch size) while the batches are being used up without being truncated.
+	 */
+	private static int getLeaderClass(State state, PartitionTarget target) {
+		final int index = state.cycleLeaderIndex;
+		if (index >= state.batchEnd) {
+			if (state.batchClasses == null) {
+				state.batchClasses = new int[PartitionTarget.BATCH_SIZE];
+			} else if (state.batchEnd - state.batchStart == state.batchLength) {
+				state.batchLength = Math.min(PartitionTarget.BATCH_SIZE, state.batchLength * 2);
+			}
+			state.batchStart = index;
+			state.batchEnd = Math.min(state.listSize, index + state.batchLength);
+			target.getClasses(state.batchStart, state.batchEnd, state.batchClasses);
+		}
+		return state.batchClasses[index - state.batchStart];
+	}
+
+	/* The number of samples, per class, used to decide whether the classes are skewed. */
+	private static final int SAMPLES_PER_CLASS = 32;
+
+	/* If the classes of the samples are further than this (in total variation distance)
+	 * from being equally sized, the classes are considered skewed.
+	 */
+	private static final double MAX_SAMPLE_SKEW = 0.25;
+
+	/* Decides whether to count the exact bounds of each class before moving any elements. */
+	private static boolean isCountingExactBounds(PartitionTarget target, PartitionOptions options) {
+		switch (options.getClassBounds()) {
+		case EXACT:
+			return true;
+		case AUTOMATIC:
+			return (target instanceof ClassOracle) || isSkewed(target);
+		default:
+			return false;
+		}
+	}
+
+	/* Classifies evenly-spaced samples of the input, and returns whether their classes are
+	 * too unevenly sized for equally-sized classes to be a good first estimate.  If enough
+	 * samples are needed to classify half of the input, it's cheaper to just count exactly.
+	 */
+	static boolean isSkewed(PartitionTarget target) {
+		final int size = target.size();
+		final int numClasses = target.getNumClasses();
+		final long numSamples = (long) numClasses * SAMPLES_PER_CLASS;
+		if (numSamples > size / 2) {
+			return true;
+		}
+
+		final int[] sampleCounts = new int[numClasses];
+		final double stride = size / (double) numSamples;
+		for (int sample = 0; sample < numSamples; ++sample) {
+			++sampleCounts[target.getClass((int) (sample * stride))];
+		}
+
+		double distance = 0.0;
+		for (int count : sampleCounts) {
+			distance += Math.abs(count - SAMPLES_PER_CLASS);
+		}
+		return (distance / (2.0 * numSamples)) > MAX_SAMPLE_SKEW;
+	}
+
+	/* Counts the elements in each class, and sets each class's bounds to exactly fit them.
+	 * Then no class will ever need to be expanded into its neighbors.
+	 */
+	private static void countExactBounds(State state, PartitionTarget target) {
+		final int[] counts = new int[state.numClasses];
+		final int[] batch = new int[PartitionTarget.BATCH_SIZE];
+		for (int fromIndex = 0; fromIndex < state.listSize; fromIndex += PartitionTarget.BATCH_SIZE) {
+			final int batchSize = Math.min(PartitionTarget.BATCH_SIZE, state.listSize - fromIndex);
+			target.getClasses(fromIndex, fromIndex + batchSize, batch);
+			for (int index = 0; index < batchSize; ++index) {
+				++counts[batch[index]];
+			}
+		}
+
+		int upperBound = -1;
+		for (int classNum = 0; classNum < state.numClasses; ++classNum) {
+			upperBound += counts[classNum];
+			state.classUpperBounds[classNum] = upperBound;
+			state.currInsertIndex[classNum] = upperBound;
+		}
 	}
 
 	/* This determines the lower bound of any class.  This is the lowest element in the
 	 * array that could be inserted into without affecting the next lower neighbor.
 	 */
-	private static <T extends Element<U>, U> int getLowerBound(State<T, U> state, int classification) {
+	private static int getLowerBound(State state, int classification) {
 		return (classification == 0) ? 0 : state.classUpperBounds[classification - 1] + 1;
 	}
 
@@ -183,7 +1164,7 @@ public class CyclePartitioner {
 	 * If that neighboring class is empty, we expand into its neighbor, and likewise we
 	 * need to adjust both.  And so on down the line.
 	 */
-	private static <T extends Element<U>, U> int getNextLocation(State<T, U> state, int classification) {
+	private static int getNextLocation(State state, int classification) {
 		int location = state.currInsertIndex[classification];
 
 		int classLowerBound = getLowerBound(state, classification);
@@ -208,6 +1189,8 @@ public class CyclePartitioner {
 					--currClass;
 				}
 
+				recordExpansion(state, classification - currClass);
+
 			} else if (location < state.cycleLeaderIndex) {
 				++state.classUpperBounds[classification];
 				location = state.classUpperBounds[classification];
@@ -223,6 +1206,8 @@ public class CyclePartitioner {
 					++currClass;
 					++nextClass;
 				}
+
+				recordExpansion(state, currClass - classification);
 			}
 
 		} else {
@@ -231,4 +1216,13 @@ public class CyclePartitioner {
 
 		return location;
 	}
+
+	/* Counts an expansion of a full class, which shrank the given number of neighbors. */
+	private static void recordExpansion(State state, int neighborsShrunk) {
+		++state.expansions;
+		state.neighborsShrunk += neighborsShrunk;
+		if (neighborsShrunk > state.longestCascade) {
+			state.longestCascade = neighborsShrunk;
+		}
+	}
 }
@@ -0,0 +1,269 @@
+package mpigott.sort;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The {@link CdfPartitionFunction}, specialized for
+ * <code>float</code> and <code>double</code> keys.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public final class DoubleCdfPartitionFunction implements DoublePartitionFunction {
+
+	/**
+	 * Generates a cumulative distribution function (CDF) for
+	 * <code>Math.ceil(input.length / cellSize)</code> classes.
+	 *
+	 * @param input       The population to retrieve samples from.
+	 * @param cellSize    The size of each cell.
+	 * @param alpha       <code>1 - alpha</code> is the confidence level that the sample CDF is within the <code>cdfDistance</code> of the population CDF.
+	 * @param cdfDistance The distance between the sample CDF and the population CDF, with a confidence level of <code>1 - alpha</code>.
+	 *
+	 * @see CdfPartitionFunction#CdfPartitionFunction(java.util.List, int, double, double)
+	 */
+	public DoubleCdfPartitionFunction(double[] input, int cellSize, double alpha, double cdfDistance) {
+		final int numCells = (int) Math.ceil(input.length / (double) cellSize);
+
+		double minValue = input[0];
+		double maxValue = input[0];
+
+		for (int index = 0; index < input.length; ++index) {
+			final double value = input[index];
+			if (Double.isNaN(value)) {
+				throw new IllegalArgumentException("No value in the array can be NaN.");
+			} else if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		min = minValue;
+		model = new CdfModel(maxValue - minValue, numCells);
+
+		final int randomSampleIndex = CdfPartitionFunction.getSampleStride(input.length, alpha, cdfDistance);
+		final double[] samples = new double[(input.length + randomSampleIndex - 1) / randomSampleIndex];
+		for (int sample = 0; sample < samples.length; ++sample) {
+			samples[sample] = input[sample * randomSampleIndex];
+		}
+
+		heavyHitters = fit(model, min, samples, samples.length);
+		equalityClasses = getEqualityClasses(model, min, heavyHitters);
+	}
+
+	/**
+	 * @see #DoubleCdfPartitionFunction(double[], int, double, double)
+	 */
+	public DoubleCdfPartitionFunction(float[] input, int cellSize, double alpha, double cdfDistance) {
+		final int numCells = (int) Math.ceil(input.length / (double) cellSize);
+
+		double minValue = input[0];
+		double maxValue = input[0];
+
+		for (int index = 0; index < input.length; ++index) {
+			final float value = input[index];
+			if (Float.isNaN(value)) {
+				throw new IllegalArgumentException("No value in the array can be NaN.");
+			} else if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		min = minValue;
+		model = new CdfModel(maxValue - minValue, numCells);
+
+		final int randomSampleIndex = CdfPartitionFunction.getSampleStride(input.length, alpha, cdfDistance);
+		final double[] samples = new double[(input.length + randomSampleIndex - 1) / randomSampleIndex];
+		for (int sample = 0; sample < samples.length; ++sample) {
+			samples[sample] = input[sample * randomSampleIndex];
+		}
+
+		heavyHitters = fit(model, min, samples, samples.length);
+		equalityClasses = getEqualityClasses(model, min, heavyHitters);
+	}
+
+	/**
+	 * Generates the CDF from the <code>double</code> keys the
+	 * <code>key</code> function extracts from each element.
+	 *
+	 * @see #DoubleCdfPartitionFunction(double[], int, double, double)
+	 */
+	public <T> DoubleCdfPartitionFunction(List<T> input, ToDoubleFunction<? super T> key, int cellSize, double alpha, double cdfDistance) {
+		final int numCells = (int) Math.ceil(input.size() / (double) cellSize);
+
+		double minValue = key.applyAsDouble(input.get(0));
+		double maxValue = minValue;
+
+		for (int index = 0; index < input.size(); ++index) {
+			final double value = key.applyAsDouble(input.get(index));
+			if (Double.isNaN(value)) {
+				throw new IllegalArgumentException("No key in the list can be NaN.");
+			} else if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		min = minValue;
+		model = new CdfModel(maxValue - minValue, numCells);
+
+		final int randomSampleIndex = CdfPartitionFunction.getSampleStride(input.size(), alpha, cdfDistance);
+		final double[] samples = new double[(input.size() + randomSampleIndex - 1) / randomSampleIndex];
+		for (int sample = 0; sample < samples.length; ++sample) {
+			samples[sample] = key.applyAsDouble(input.get(sample * randomSampleIndex));
+		}
+
+		heavyHitters = fit(model, min, samples, samples.length);
+		equalityClasses = getEqualityClasses(model, min, heavyHitters);
+	}
+
+	/* Generates the CDF for numClasses classes from the first numSamples keys in samples,
+	 * which were taken from a population known to lie in [min, max].
+	 */
+	DoubleCdfPartitionFunction(double min, double max, double[] samples, int numSamples, int numClasses) {
+		this.min = min;
+		model = new CdfModel(max - min, numClasses);
+
+		heavyHitters = fit(model, min, samples, numSamples);
+		equalityClasses = getEqualityClasses(model, min, heavyHitters);
+	}
+
+	/* Finds the heavy hitters among the first numSamples samples: the keys sampled at least
+	 * EqualityClasses.getMinHeavyHitterSamples() times.  The model is fitted to the rest of
+	 * the samples, so the classes around each heavy hitter are sized for the other keys.
+	 * Returns the heavy hitters, in increasing order.
+	 */
+	private static double[] fit(CdfModel model, double min, double[] samples, int numSamples) {
+		final double[] sorted = Arrays.copyOf(samples, numSamples);
+		Arrays.sort(sorted);
+
+		final int minHeavyHitterSamples = EqualityClasses.getMinHeavyHitterSamples(numSamples, model.getNumClasses());
+		final double[] heavyHitters = new double[numSamples / minHeavyHitterSamples];
+		int numHeavyHitters = 0;
+
+		int[] sampleCountsPerCell = new int[model.getNumClasses()];
+		int numModelSamples = 0;
+		for (int runStart = 0, runEnd = 0; runStart < numSamples; runStart = runEnd) {
+			while ((runEnd < numSamples) && (Double.compare(sorted[runEnd], sorted[runStart]) == 0)) {
+				++runEnd;
+			}
+
+			if (runEnd - runStart >= minHeavyHitterSamples) {
+				heavyHitters[numHeavyHitters++] = sorted[runStart];
+			} else {
+				sampleCountsPerCell[model.getCell(sorted[runStart] - min)] += runEnd - runStart;
+				numModelSamples += runEnd - runStart;
+			}
+		}
+
+		model.fit(sampleCountsPerCell, numModelSamples);
+		return Arrays.copyOf(heavyHitters, numHeavyHitters);
+	}
+
+	private static EqualityClasses getEqualityClasses(CdfModel model, double min, double[] heavyHitters) {
+		if (heavyHitters.length == 0) {
+			return null;
+		}
+
+		final int[] heavyHitterModelClasses = new int[heavyHitters.length];
+		for (int heavyHitter = 0; heavyHitter < heavyHitters.length; ++heavyHitter) {
+			heavyHitterModelClasses[heavyHitter] = model.getClass(heavyHitters[heavyHitter] - min);
+		}
+		return new EqualityClasses(model.getNumClasses(), heavyHitterModelClasses);
+	}
+
+	/* Moves the key in the model class past each of the model class's heavy hitters it is larger than. */
+	private int getClass(double value, int modelClass) {
+		final int lastHeavyHitter = equalityClasses.getLastHeavyHitter(modelClass);
+		int heavyHitter = equalityClasses.getFirstHeavyHitter(modelClass);
+		int classNum = equalityClasses.getFirstClass(modelClass);
+		for (; heavyHitter < lastHeavyHitter; ++heavyHitter) {
+			final int comparison = Double.compare(value, heavyHitters[heavyHitter]);
+			if (comparison < 0) {
+				break;
+			} else if (comparison == 0) {
+				return classNum + 1;
+			}
+			classNum += 2;
+		}
+		return classNum;
+	}
+
+	/**
+	 * Returns the class of the input <code>value</code>
+	 * based on the CDF function of the sample sizes.  A heavy hitter
+	 * (a key which made up a large share of the samples) is in an equality class
+	 * of its own.  Keys are compared as {@link Double#compare(double, double)} does, so
+	 * <code>-0.0</code> and <code>0.0</code> are different keys.
+	 *
+	 * @see DoublePartitionFunction#getClass(double)
+	 */
+	public int getClass(double value) {
+		final int modelClass = model.getClass(value - min);
+		return (equalityClasses == null) ? modelClass : getClass(value, modelClass);
+	}
+
+	/**
+	 * @see DoublePartitionFunction#getClasses(double[], int, int, int[])
+	 */
+	@Override
+	public void getClasses(double[] keys, int fromIndex, int toIndex, int[] classes) {
+		if (equalityClasses != null) {
+			DoublePartitionFunction.super.getClasses(keys, fromIndex, toIndex, classes);
+			return;
+		}
+
+		final CdfModel model = this.model;
+		final double min = this.min;
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = model.getClass(keys[index] - min);
+		}
+	}
+
+	/**
+	 * @see DoublePartitionFunction#getClasses(float[], int, int, int[])
+	 */
+	@Override
+	public void getClasses(float[] keys, int fromIndex, int toIndex, int[] classes) {
+		if (equalityClasses != null) {
+			DoublePartitionFunction.super.getClasses(keys, fromIndex, toIndex, classes);
+			return;
+		}
+
+		final CdfModel model = this.model;
+		final double min = this.min;
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = model.getClass(keys[index] - min);
+		}
+	}
+
+	/**
+	 * The total number of classes that a key can be partitioned into.
+	 *
+	 * @see DoublePartitionFunction#getNumClasses()
+	 */
+	public int getNumClasses() {
+		return (equalityClasses == null) ? model.getNumClasses() : equalityClasses.getNumClasses();
+	}
+
+	/**
+	 * Returns whether the class holds the copies of a single heavy hitter.
+	 *
+	 * @see DoublePartitionFunction#isEqualityClass(int)
+	 */
+	@Override
+	public boolean isEqualityClass(int classNum) {
+		return (equalityClasses != null) && equalityClasses.isEqualityClass(classNum);
+	}
+
+	private final double min;
+	private final CdfModel model;
+	private final double[] heavyHitters;
+	private final EqualityClasses equalityClasses;
+}
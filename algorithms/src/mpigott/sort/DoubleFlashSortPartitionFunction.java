@@ -0,0 +1,207 @@
+package mpigott.sort;
+
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The {@link FlashSortPartitionFunction}, specialized for
+ * <code>float</code> and <code>double</code> keys.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public class DoubleFlashSortPartitionFunction implements DoublePartitionFunction {
+
+	/**
+	 * The number of classes is an upper bound.  If the range between the global
+	 * minimum and maximum is larger than the number of classes, only (max - min + 1)
+	 * classes will be used.
+	 *
+	 * @param input               The input to generate the classes from.
+	 * @param numClassesRequested The maximum number of classes to sort the input into.
+	 */
+	public DoubleFlashSortPartitionFunction(double[] input, int numClassesRequested) {
+		double minValue = input[0];
+		double maxValue = input[0];
+
+		for (int index = 0; index < input.length; ++index) {
+			final double value = input[index];
+
+			if (Double.isNaN(value)) {
+				throw new IllegalArgumentException("Input array cannot contain NaN.  The element at index " + index + " is NaN.");
+			}
+
+			if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		scale = getScale(minValue, maxValue);
+		min = minValue * scale;
+		range = maxValue * scale - min;
+		numClasses = limitNumClasses(maxValue - minValue, numClassesRequested);
+	}
+
+	/**
+	 * @see #DoubleFlashSortPartitionFunction(double[], int)
+	 */
+	public DoubleFlashSortPartitionFunction(float[] input, int numClassesRequested) {
+		double minValue = input[0];
+		double maxValue = input[0];
+
+		for (int index = 0; index < input.length; ++index) {
+			final float value = input[index];
+
+			if (Float.isNaN(value)) {
+				throw new IllegalArgumentException("Input array cannot contain NaN.  The element at index " + index + " is NaN.");
+			}
+
+			if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		scale = getScale(minValue, maxValue);
+		min = minValue * scale;
+		range = maxValue * scale - min;
+		numClasses = limitNumClasses(maxValue - minValue, numClassesRequested);
+	}
+
+	/**
+	 * Generates the classes from the <code>double</code> keys of the records.
+	 *
+	 * @see #DoubleFlashSortPartitionFunction(double[], int)
+	 */
+	public DoubleFlashSortPartitionFunction(FixedWidthRecords input, int numClassesRequested) {
+		double minValue = input.getDoubleKey(0);
+		double maxValue = minValue;
+
+		for (int index = 0; index < input.size(); ++index) {
+			final double value = input.getDoubleKey(index);
+
+			if (Double.isNaN(value)) {
+				throw new IllegalArgumentException("Input records cannot contain NaN keys.  The key at index " + index + " is NaN.");
+			}
+
+			if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		scale = getScale(minValue, maxValue);
+		min = minValue * scale;
+		range = maxValue * scale - min;
+		numClasses = limitNumClasses(maxValue - minValue, numClassesRequested);
+	}
+
+	/**
+	 * Generates the classes from the <code>double</code> keys the
+	 * <code>key</code> function extracts from each element.
+	 *
+	 * @see #DoubleFlashSortPartitionFunction(double[], int)
+	 */
+	public <T> DoubleFlashSortPartitionFunction(List<T> input, ToDoubleFunction<? super T> key, int numClassesRequested) {
+		double minValue = key.applyAsDouble(input.get(0));
+		double maxValue = minValue;
+
+		for (int index = 0; index < input.size(); ++index) {
+			final double value = key.applyAsDouble(input.get(index));
+
+			if (Double.isNaN(value)) {
+				throw new IllegalArgumentException("Input list cannot contain NaN keys.  The key at index " + index + " is NaN.");
+			}
+
+			if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		scale = getScale(minValue, maxValue);
+		min = minValue * scale;
+		range = maxValue * scale - min;
+		numClasses = limitNumClasses(maxValue - minValue, numClassesRequested);
+	}
+
+	/* Generates numClasses classes for keys known to lie in [min, max].  Unlike the
+	 * public constructors, the number of classes is not limited by the range, as the
+	 * keys are not assumed to be integral.
+	 */
+	DoubleFlashSortPartitionFunction(double min, double max, int numClasses) {
+		this.scale = getScale(min, max);
+		this.min = min * scale;
+		this.range = max * scale - this.min;
+		this.numClasses = numClasses;
+	}
+
+	/* The range between two finite keys can overflow to infinity, as between -1e308
+	 * and 1e308, so the keys are halved first; halving a double is exact, unless it
+	 * is subnormal, so the order of the keys is kept.
+	 */
+	private static double getScale(double min, double max) {
+		return Double.isInfinite(max - min) ? 0.5 : 1.0;
+	}
+
+	private static double limitNumClasses(double range, int numClassesRequested) {
+		if (range < numClassesRequested) {
+			return Math.floor(range + 1.0);
+		}
+		return numClassesRequested;
+	}
+
+	/**
+	 * @see FlashSortPartitionFunction#getClass(Element)
+	 */
+	public int getClass(double value) {
+		return FlashSortPartitionFunction.classify(value * scale - min, range, numClasses);
+	}
+
+	/**
+	 * @see DoublePartitionFunction#getClasses(double[], int, int, int[])
+	 */
+	@Override
+	public void getClasses(double[] keys, int fromIndex, int toIndex, int[] classes) {
+		final double numClasses = this.numClasses;
+		final double min = this.min;
+		final double range = this.range;
+		final double scale = this.scale;
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = FlashSortPartitionFunction.classify(keys[index] * scale - min, range, numClasses);
+		}
+	}
+
+	/**
+	 * @see DoublePartitionFunction#getClasses(float[], int, int, int[])
+	 */
+	@Override
+	public void getClasses(float[] keys, int fromIndex, int toIndex, int[] classes) {
+		final double numClasses = this.numClasses;
+		final double min = this.min;
+		final double range = this.range;
+		final double scale = this.scale;
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = FlashSortPartitionFunction.classify(keys[index] * scale - min, range, numClasses);
+		}
+	}
+
+	/**
+	 * The total number of classes that a key can be partitioned into.
+	 *
+	 * @see DoublePartitionFunction#getNumClasses()
+	 */
+	public int getNumClasses() {
+		return (int) numClasses;
+	}
+
+	private final double numClasses;
+	private final double min;
+	private final double range;
+	private final double scale;
+}
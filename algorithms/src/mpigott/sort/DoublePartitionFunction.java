@@ -0,0 +1,67 @@
+package mpigott.sort;
+
+/**
+ * Represents a partition function over primitive <code>double</code> keys, for
+ * use with the <code>float[]</code> and <code>double[]</code> overloads of the
+ * {@link CyclePartitioner}.  No keys are boxed to classify them.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public interface DoublePartitionFunction {
+
+	/**
+	 * The total number of classes that a key can be partitioned into.
+	 */
+	public int getNumClasses();
+
+	/**
+	 * Classifies the input <code>value</code>, returning its class.
+	 *
+	 * @param value The key to classify.
+	 * @return The <code>value</code>'s class number, in
+	 *         the range [0, {@link #getNumClasses()}).
+	 */
+	public int getClass(double value);
+
+	/**
+	 * Classifies the keys from <code>fromIndex</code> (inclusive) to <code>toIndex</code>
+	 * (exclusive), writing the class of <code>keys[fromIndex + i]</code> to
+	 * <code>classes[i]</code>.  The classes must be the same ones
+	 * {@link #getClass(double)} returns.
+	 *
+	 * Classifying a block of keys at a time costs one call per block rather than one
+	 * per key, and implementations override this with a loop the JIT can unroll.
+	 *
+	 * @param keys      The keys to classify.
+	 * @param fromIndex The index of the first key to classify.
+	 * @param toIndex   The index after the last key to classify.
+	 * @param classes   Where to write the classes.
+	 */
+	public default void getClasses(double[] keys, int fromIndex, int toIndex, int[] classes) {
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = getClass(keys[index]);
+		}
+	}
+
+	/**
+	 * @see #getClasses(double[], int, int, int[])
+	 */
+	public default void getClasses(float[] keys, int fromIndex, int toIndex, int[] classes) {
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = getClass(keys[index]);
+		}
+	}
+
+	/**
+	 * Returns whether every key in the class is equal, so that the class is
+	 * already sorted once the input is partitioned, and does not need to be
+	 * sorted again.  Partition functions which give heavily-repeated keys
+	 * a class of their own override this; by default, no class is.
+	 *
+	 * @param classNum The class number, in the range [0, {@link #getNumClasses()}).
+	 */
+	public default boolean isEqualityClass(int classNum) {
+		return false;
+	}
+}
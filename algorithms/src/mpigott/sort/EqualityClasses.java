@@ -0,0 +1,106 @@
+package mpigott.sort;
+
+/**
+ * The layout of the classes of a partition function which gives each heavy hitter
+ * (a key repeated so often that it would overflow any class it shared) a dedicated
+ * equality class of its own.  Every other key is classified by an underlying model,
+ * into a model class.  A model class holding <code>m</code> heavy hitters is split
+ * into <code>2m + 1</code> classes, alternating between the keys strictly between
+ * two heavy hitters and the copies of each heavy hitter:
+ *
+ *     [keys &lt; h0] [keys == h0] [h0 &lt; keys &lt; h1] [keys == h1] ... [keys &gt; hm-1]
+ *
+ * so the classes remain in key order.  The partition functions find a key's model
+ * class, and then compare the key against only the heavy hitters in that model
+ * class.  Every key in an equality class is equal, so the class is already sorted
+ * once it is partitioned.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+final class EqualityClasses {
+
+	/**
+	 * The fewest samples of a key that can make it a heavy hitter.
+	 */
+	static final int MIN_HEAVY_HITTER_SAMPLES = 4;
+
+	/**
+	 * A key is a heavy hitter if it makes up at least this many times the share
+	 * of the samples that a single class is expected to hold.
+	 */
+	static final int HEAVY_HITTER_CLASS_SHARES = 2;
+
+	/**
+	 * Returns the number of samples of a single key that make it a heavy hitter.
+	 *
+	 * @param numSamples      The total number of samples taken.
+	 * @param numModelClasses The number of classes in the underlying model.
+	 */
+	static int getMinHeavyHitterSamples(int numSamples, int numModelClasses) {
+		return (int) Math.max(MIN_HEAVY_HITTER_SAMPLES, ((long) HEAVY_HITTER_CLASS_SHARES * numSamples + numModelClasses - 1) / numModelClasses);
+	}
+
+	/**
+	 * Lays out the classes around the heavy hitters.
+	 *
+	 * @param numModelClasses         The number of classes in the underlying model.
+	 * @param heavyHitterModelClasses The model class of each heavy hitter, in increasing key order.
+	 */
+	EqualityClasses(int numModelClasses, int[] heavyHitterModelClasses) {
+		firstHeavyHitter = new int[numModelClasses + 1];
+		for (int modelClass : heavyHitterModelClasses) {
+			++firstHeavyHitter[modelClass + 1];
+		}
+		for (int modelClass = 0; modelClass < numModelClasses; ++modelClass) {
+			firstHeavyHitter[modelClass + 1] += firstHeavyHitter[modelClass];
+		}
+
+		numClasses = numModelClasses + 2 * heavyHitterModelClasses.length;
+		equalityClasses = new boolean[numClasses];
+		for (int heavyHitter = 0; heavyHitter < heavyHitterModelClasses.length; ++heavyHitter) {
+			equalityClasses[heavyHitterModelClasses[heavyHitter] + 2 * heavyHitter + 1] = true;
+		}
+	}
+
+	/**
+	 * The index of the first heavy hitter in the model class, or of the
+	 * first one in a later model class if the model class has none.
+	 */
+	int getFirstHeavyHitter(int modelClass) {
+		return firstHeavyHitter[modelClass];
+	}
+
+	/**
+	 * The index after the last heavy hitter in the model class.
+	 */
+	int getLastHeavyHitter(int modelClass) {
+		return firstHeavyHitter[modelClass + 1];
+	}
+
+	/**
+	 * The class of the keys in the model class which are smaller than all of its heavy hitters.
+	 * Each heavy hitter the key is larger than moves it two classes further along.
+	 */
+	int getFirstClass(int modelClass) {
+		return modelClass + 2 * firstHeavyHitter[modelClass];
+	}
+
+	/**
+	 * The total number of classes, including the equality classes.
+	 */
+	int getNumClasses() {
+		return numClasses;
+	}
+
+	/**
+	 * Whether the class holds the copies of a single heavy hitter.
+	 */
+	boolean isEqualityClass(int classNum) {
+		return equalityClasses[classNum];
+	}
+
+	private final int[] firstHeavyHitter;
+	private final boolean[] equalityClasses;
+	private final int numClasses;
+}
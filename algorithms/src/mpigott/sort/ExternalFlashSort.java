@@ -0,0 +1,356 @@
+package mpigott.sort;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sorts a file of fixed-width binary records that may be larger than memory.
+ * This follows the same two steps as {@link FlashSort}, but the classes are
+ * files on disk:
+ *
+ * 1. The file is scanned once for the range of its keys and a sample of them,
+ *    and a {@link LongCdfPartitionFunction} is fit to the sample.  The CDF model
+ *    predicts where each key falls in the whole file's distribution, so the
+ *    classes it defines are close to equally sized, whatever the distribution.
+ *
+ * 2. The file is scanned again, and each record is appended to the spill file of
+ *    its class.  Every key in a class is larger than every key in the classes
+ *    before it, so once each class is sorted, the classes only need to be written
+ *    one after the other.  There is no k-way merge.
+ *
+ * Each class is copied into its place in the output file through a memory-mapped
+ * buffer, and sorted there in place.  A class that is still too large to sort in
+ * memory (because the sample missed a cluster of keys) is sorted the same way, from
+ * its spill file.  Spill files are created next to the output file, and deleted as
+ * soon as their class has been sorted.  At most {@link #DEFAULT_MAX_SPILL_FILES} (or
+ * the number given) spill files are written at once; the classes of a larger file are
+ * wider, and are partitioned again from their spill files.  Each spill file is closed
+ * once its class is spilled, and is only reopened to sort it, so the spill files of
+ * the classes being sorted do not hold file descriptors while their subclasses are
+ * spilled.
+ *
+ * Records are laid out as in {@link FixedWidthRecords}, with big-endian keys.
+ * <code>double</code> keys are sorted in the same order as {@link Double#compare(double, double)}.
+ * The sort is not stable.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public final class ExternalFlashSort {
+
+	/**
+	 * The minimum number of keys sampled to fit the CDF model.
+	 */
+	public static final int MIN_SAMPLES = 1 << 14;
+
+	/**
+	 * The number of keys sampled per class, when that is more than {@link #MIN_SAMPLES}.
+	 */
+	public static final int SAMPLES_PER_CLASS = 256;
+
+	/**
+	 * The largest part of a file that is mapped into memory at a time while scanning it.
+	 */
+	static final int SCAN_WINDOW_SIZE = 1 << 26;
+
+	/**
+	 * The largest buffer each spill file is written through.
+	 */
+	static final int MAX_SPILL_BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * The default number of spill files that are open for writing at a time.
+	 */
+	public static final int DEFAULT_MAX_SPILL_FILES = 256;
+
+	private ExternalFlashSort() {
+	}
+
+	/**
+	 * Sorts the records in the <code>input</code> file by their <code>long</code>
+	 * keys, into the <code>output</code> file.
+	 *
+	 * @param input        The file of records to sort.
+	 * @param output       The file to write the sorted records to.  It is replaced if it exists.
+	 * @param recordSize   The size of each record, in bytes.
+	 * @param keyOffset    The offset of the 8-byte key in each record, in bytes.
+	 * @param memoryBudget The most bytes of records to sort in memory at a time.  The input
+	 *                     is partitioned into classes of about half this size.
+	 *
+	 * @throws IOException If the files could not be read or written.
+	 * @throws IllegalArgumentException If the key does not fit in the record, the file does not
+	 *                                  hold a whole number of records, or the memory budget is
+	 *                                  smaller than a record.
+	 */
+	public static void sortByLongKey(Path input, Path output, int recordSize, int keyOffset, long memoryBudget) throws IOException {
+		sort(input, output, recordSize, keyOffset, memoryBudget, DEFAULT_MAX_SPILL_FILES, false);
+	}
+
+	/**
+	 * Sorts the records in the <code>input</code> file by their <code>long</code>
+	 * keys, into the <code>output</code> file, writing to at most <code>maxSpillFiles</code>
+	 * spill files at a time.
+	 *
+	 * @param maxSpillFiles The most spill files to hold open at once.  Keep this well
+	 *                      below the process's limit on open files.
+	 *
+	 * @throws IllegalArgumentException If fewer than four spill files are allowed.
+	 *
+	 * @see #sortByLongKey(Path, Path, int, int, long)
+	 */
+	public static void sortByLongKey(Path input, Path output, int recordSize, int keyOffset, long memoryBudget, int maxSpillFiles) throws IOException {
+		sort(input, output, recordSize, keyOffset, memoryBudget, maxSpillFiles, false);
+	}
+
+	/**
+	 * Sorts the records in the <code>input</code> file by their <code>double</code>
+	 * keys, into the <code>output</code> file.
+	 *
+	 * @see #sortByLongKey(Path, Path, int, int, long)
+	 */
+	public static void sortByDoubleKey(Path input, Path output, int recordSize, int keyOffset, long memoryBudget) throws IOException {
+		sort(input, output, recordSize, keyOffset, memoryBudget, DEFAULT_MAX_SPILL_FILES, true);
+	}
+
+	/**
+	 * Sorts the records in the <code>input</code> file by their <code>double</code>
+	 * keys, into the <code>output</code> file, writing to at most <code>maxSpillFiles</code>
+	 * spill files at a time.
+	 *
+	 * @see #sortByLongKey(Path, Path, int, int, long, int)
+	 */
+	public static void sortByDoubleKey(Path input, Path output, int recordSize, int keyOffset, long memoryBudget, int maxSpillFiles) throws IOException {
+		sort(input, output, recordSize, keyOffset, memoryBudget, maxSpillFiles, true);
+	}
+
+	/* How the records are laid out, and how much of them can be sorted at once. */
+	private static final class Layout {
+		Layout(int recordSize, int keyOffset, boolean doubleKeys, int runSize, int maxSpillFiles, Path spillDirectory) {
+			this.recordSize = recordSize;
+			this.keyOffset = keyOffset;
+			this.doubleKeys = doubleKeys;
+			this.runSize = runSize;
+			this.maxSpillFiles = maxSpillFiles;
+			this.spillDirectory = spillDirectory;
+		}
+
+		final int recordSize;
+		final int keyOffset;
+		final boolean doubleKeys;
+		final int runSize;
+		final int maxSpillFiles;
+		final Path spillDirectory;
+	}
+
+	private static void sort(Path input, Path output, int recordSize, int keyOffset, long memoryBudget, int maxSpillFiles, boolean doubleKeys) throws IOException {
+		if ((keyOffset < 0) || (recordSize < keyOffset + 8)) {
+			throw new IllegalArgumentException("The 8-byte key at offset " + keyOffset + " does not fit in a record of " + recordSize + " bytes.");
+		} else if (memoryBudget < recordSize) {
+			throw new IllegalArgumentException("The memory budget of " + memoryBudget + " bytes cannot hold a " + recordSize + "-byte record.");
+		} else if (maxSpillFiles < 4) {
+			throw new IllegalArgumentException("At least 4 spill files must be allowed, not " + maxSpillFiles + ".");
+		}
+
+		// A mapped buffer can hold at most Integer.MAX_VALUE bytes.
+		final long runRecords = Math.min(memoryBudget, Integer.MAX_VALUE) / recordSize;
+		final Layout layout = new Layout(recordSize, keyOffset, doubleKeys, (int) (runRecords * recordSize), maxSpillFiles, output.toAbsolutePath().getParent());
+
+		try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+		     FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+			final long size = in.size();
+			if (size % recordSize != 0) {
+				throw new IllegalArgumentException("The file's " + size + " bytes are not a whole number of " + recordSize + "-byte records.");
+			}
+
+			sortInto(in, size, out, 0, layout);
+		}
+	}
+
+	/* Sorts the size bytes of records in the input, and writes them to the output at outputOffset. */
+	private static void sortInto(FileChannel input, long size, FileChannel output, long outputOffset, Layout layout) throws IOException {
+		if (size == 0) {
+			return;
+		}
+
+		if (size <= layout.runSize) {
+			final MappedByteBuffer run = output.map(FileChannel.MapMode.READ_WRITE, outputOffset, size);
+			readFully(input, run);
+			run.clear();
+			RecordSort.sort(new FixedWidthRecords(run, layout.recordSize, layout.keyOffset), layout.doubleKeys);
+			return;
+		}
+
+		// Step 1: Find the range of the keys, and sample them.  Each heavy hitter adds two
+		// classes, and there are at most half as many heavy hitters as requested classes,
+		// so requesting half of the spill files keeps every class's spill file open at once.
+		final long numRecords = size / layout.recordSize;
+		final int numClassesRequested = (int) Math.min(Math.min(RecordSort.MAX_CLASSES, layout.maxSpillFiles / 2), (2 * size + layout.runSize - 1) / layout.runSize);
+		final long[] samples = new long[(int) Math.min(numRecords, Math.max(MIN_SAMPLES, (long) SAMPLES_PER_CLASS * numClassesRequested))];
+		final long sampleStride = numRecords / samples.length;
+
+		int numSamples = 0;
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		final int windowSize = Math.max(1, SCAN_WINDOW_SIZE / layout.recordSize) * layout.recordSize;
+		for (long windowStart = 0; windowStart < size; windowStart += windowSize) {
+			final FixedWidthRecords window = new FixedWidthRecords(
+					input.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, size - windowStart)), layout.recordSize, layout.keyOffset);
+			final long firstRecord = windowStart / layout.recordSize;
+			for (int index = 0; index < window.size(); ++index) {
+				final long key = RecordSort.getSortableKey(window, index, layout.doubleKeys);
+				min = Math.min(min, key);
+				max = Math.max(max, key);
+				if (((firstRecord + index) % sampleStride == 0) && (numSamples < samples.length)) {
+					samples[numSamples++] = key;
+				}
+			}
+		}
+
+		// Every key is the same, so the input is already sorted.
+		if (min == max) {
+			copy(input, size, output, outputOffset);
+			return;
+		}
+
+		// Step 2: Spill each record into the file of its class.
+		final LongCdfPartitionFunction partitionFunction = new LongCdfPartitionFunction(min, max, samples, numSamples, numClassesRequested);
+		final int numClasses = partitionFunction.getNumClasses();
+		final int bufferSize = Math.max(1, Math.min(MAX_SPILL_BUFFER_SIZE, layout.runSize / 2 / numClasses) / layout.recordSize) * layout.recordSize;
+
+		final Path[] spillFiles = new Path[numClasses];
+		final FileChannel[] spills = new FileChannel[numClasses];
+		Throwable failure = null;
+		try {
+			final ByteBuffer[] buffers = new ByteBuffer[numClasses];
+			final long[] spillSizes = new long[numClasses];
+			for (int classNum = 0; classNum < numClasses; ++classNum) {
+				spillFiles[classNum] = Files.createTempFile(layout.spillDirectory, "flashsort-", ".spill");
+				spills[classNum] = FileChannel.open(spillFiles[classNum], StandardOpenOption.READ, StandardOpenOption.WRITE);
+				buffers[classNum] = ByteBuffer.allocate(bufferSize);
+			}
+
+			final byte[] record = new byte[layout.recordSize];
+			for (long windowStart = 0; windowStart < size; windowStart += windowSize) {
+				final int windowLength = (int) Math.min(windowSize, size - windowStart);
+				final MappedByteBuffer window = input.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+				final FixedWidthRecords records = new FixedWidthRecords(window, layout.recordSize, layout.keyOffset);
+				for (int index = 0; index < records.size(); ++index) {
+					final int classNum = partitionFunction.getClass(RecordSort.getSortableKey(records, index, layout.doubleKeys));
+					if (buffers[classNum].remaining() < layout.recordSize) {
+						spillSizes[classNum] += flush(buffers[classNum], spills[classNum]);
+					}
+					window.position(index * layout.recordSize);
+					window.get(record);
+					buffers[classNum].put(record);
+				}
+			}
+
+			for (int classNum = 0; classNum < numClasses; ++classNum) {
+				spillSizes[classNum] += flush(buffers[classNum], spills[classNum]);
+				buffers[classNum] = null;
+				spills[classNum].close();
+				spills[classNum] = null;
+			}
+
+			// Sort each class into its place in the output.  The copies of a heavy hitter are already sorted.
+			long classOffset = outputOffset;
+			for (int classNum = 0; classNum < numClasses; ++classNum) {
+				try (FileChannel spill = FileChannel.open(spillFiles[classNum], StandardOpenOption.READ)) {
+					if (partitionFunction.isEqualityClass(classNum)) {
+						copy(spill, spillSizes[classNum], output, classOffset);
+					} else {
+						sortInto(spill, spillSizes[classNum], output, classOffset, layout);
+					}
+				}
+				classOffset += spillSizes[classNum];
+
+				Files.delete(spillFiles[classNum]);
+				spillFiles[classNum] = null;
+			}
+
+		} catch (Throwable t) {
+			failure = t;
+			throw t;
+		} finally {
+			deleteSpills(spills, spillFiles, failure);
+		}
+	}
+
+	/* Closes and deletes every spill file that is left.  Each one is attempted even if
+	 * others fail.  If the sort already failed, the errors are suppressed by its failure;
+	 * otherwise, the first error is thrown, and suppresses the rest.
+	 */
+	private static void deleteSpills(FileChannel[] spills, Path[] spillFiles, Throwable failure) throws IOException {
+		IOException error = null;
+		for (int classNum = 0; classNum < spills.length; ++classNum) {
+			try {
+				if (spills[classNum] != null) {
+					spills[classNum].close();
+				}
+			} catch (IOException e) {
+				error = addError(error, e);
+			}
+
+			try {
+				if (spillFiles[classNum] != null) {
+					Files.deleteIfExists(spillFiles[classNum]);
+				}
+			} catch (IOException e) {
+				error = addError(error, e);
+			}
+		}
+
+		if (error == null) {
+			return;
+		} else if (failure != null) {
+			failure.addSuppressed(error);
+		} else {
+			throw error;
+		}
+	}
+
+	/* Returns the first error, with every later one suppressed by it. */
+	private static IOException addError(IOException first, IOException error) {
+		if (first == null) {
+			return error;
+		}
+		first.addSuppressed(error);
+		return first;
+	}
+
+	/* Copies the first size bytes of the input to the output, starting at outputOffset. */
+	private static void copy(FileChannel input, long size, FileChannel output, long outputOffset) throws IOException {
+		long transferred = 0;
+		while (transferred < size) {
+			output.position(outputOffset + transferred);
+			transferred += input.transferTo(transferred, size - transferred, output);
+		}
+	}
+
+	/* Writes the buffered records to the end of the spill file, and returns the number of bytes written. */
+	private static int flush(ByteBuffer buffer, FileChannel spill) throws IOException {
+		buffer.flip();
+		final int length = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			spill.write(buffer);
+		}
+		buffer.clear();
+		return length;
+	}
+
+	/* Fills the buffer from the start of the channel. */
+	private static void readFully(FileChannel input, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (input.read(buffer, buffer.position()) < 0) {
+				throw new EOFException("The file ended after " + buffer.position() + " bytes.");
+			}
+		}
+	}
+}
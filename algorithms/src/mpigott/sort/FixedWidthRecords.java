@@ -0,0 +1,113 @@
+package mpigott.sort;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packed, fixed-width binary records in a {@link ByteBuffer}, each carrying an
+ * 8-byte key (a <code>long</code> or a <code>double</code>) at the same offset.
+ * The {@link CyclePartitioner} can partition the records in place, reading the
+ * keys directly out of the buffer, so the records never need to be deserialized
+ * into heap objects.  With a direct buffer (or a memory-mapped file), the records
+ * create no garbage-collection pressure at all, however many there are.
+ *
+ * The records run from the buffer's position to its limit, and the keys are read
+ * in the buffer's byte order.  Only absolute reads and writes are used, so the
+ * buffer's position and limit are never changed, and distinct records may be
+ * accessed concurrently.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public final class FixedWidthRecords {
+
+	/**
+	 * Describes the records in the <code>buffer</code>.
+	 *
+	 * @param buffer     The buffer holding the records.
+	 * @param recordSize The size of each record, in bytes.
+	 * @param keyOffset  The offset of the 8-byte key in each record, in bytes.
+	 *
+	 * @throws IllegalArgumentException If the key does not fit in the record, or the
+	 *                                  buffer does not hold a whole number of records.
+	 */
+	public FixedWidthRecords(ByteBuffer buffer, int recordSize, int keyOffset) {
+		if (buffer == null) {
+			throw new IllegalArgumentException("The buffer cannot be null.");
+		} else if ((keyOffset < 0) || (recordSize < keyOffset + KEY_SIZE)) {
+			throw new IllegalArgumentException("The " + KEY_SIZE + "-byte key at offset " + keyOffset + " does not fit in a record of " + recordSize + " bytes.");
+		} else if (buffer.remaining() % recordSize != 0) {
+			throw new IllegalArgumentException("The buffer's " + buffer.remaining() + " bytes are not a whole number of " + recordSize + "-byte records.");
+		}
+
+		this.buffer = buffer;
+		this.recordSize = recordSize;
+		this.keyOffset = keyOffset;
+		this.start = buffer.position();
+		this.numRecords = buffer.remaining() / recordSize;
+	}
+
+	/**
+	 * The number of records.
+	 */
+	public int size() {
+		return numRecords;
+	}
+
+	/**
+	 * Reads the key of the record at <code>index</code> as a <code>long</code>.
+	 */
+	public long getLongKey(int index) {
+		return buffer.getLong(start + index * recordSize + keyOffset);
+	}
+
+	/**
+	 * Reads the key of the record at <code>index</code> as a <code>double</code>.
+	 */
+	public double getDoubleKey(int index) {
+		return buffer.getDouble(start + index * recordSize + keyOffset);
+	}
+
+	/* Swaps two whole records, eight bytes at a time where possible. */
+	void swap(int first, int second) {
+		final int firstOffset = start + first * recordSize;
+		final int secondOffset = start + second * recordSize;
+
+		int offset = 0;
+		for (; offset + 8 <= recordSize; offset += 8) {
+			final long value = buffer.getLong(firstOffset + offset);
+			buffer.putLong(firstOffset + offset, buffer.getLong(secondOffset + offset));
+			buffer.putLong(secondOffset + offset, value);
+		}
+		for (; offset < recordSize; ++offset) {
+			final byte value = buffer.get(firstOffset + offset);
+			buffer.put(firstOffset + offset, buffer.get(secondOffset + offset));
+			buffer.put(secondOffset + offset, value);
+		}
+	}
+
+	/* Moves the record at fromIndex + i to fromIndex + destinations[i], through a buffer. */
+	void permute(int fromIndex, int toIndex, int[] destinations) {
+		final ByteBuffer permuted = ByteBuffer.allocate((toIndex - fromIndex) * recordSize);
+		final ByteBuffer record = buffer.duplicate();
+		for (int index = fromIndex; index < toIndex; ++index) {
+			final int offset = start + index * recordSize;
+			record.limit(offset + recordSize);
+			record.position(offset);
+			permuted.position(destinations[index - fromIndex] * recordSize);
+			permuted.put(record);
+		}
+
+		permuted.clear();
+		record.limit(start + toIndex * recordSize);
+		record.position(start + fromIndex * recordSize);
+		record.put(permuted);
+	}
+
+	private static final int KEY_SIZE = 8;
+
+	private final ByteBuffer buffer;
+	private final int recordSize;
+	private final int keyOffset;
+	private final int start;
+	private final int numRecords;
+}
@@ -0,0 +1,274 @@
+package mpigott.sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+
+/**
+ * Selects the elements at given ranks of the input, as a quickselect would, without
+ * sorting all of it.  After one pass of the {@link CyclePartitioner}, the class upper
+ * bounds say which class holds each requested rank.  Only those classes are partitioned
+ * again (with the same functions {@link FlashSort} fits to oversized classes), and so
+ * on, until the classes holding the ranks are small enough to sort directly.  The rest
+ * of the input is left partitioned but unsorted, so a handful of ranks costs about
+ * <code>O(N)</code>, rather than the <code>O(N log N)</code> of a full sort.
+ *
+ * When the selection finishes, the element at each requested rank is the one that a
+ * full sort would have put there.  Every element before it is no greater, and every
+ * element after it is no smaller, so selecting rank <code>N - k</code> also leaves
+ * the top <code>k</code> elements (in no particular order) at the end of the input.
+ * Percentiles can be converted to ranks with {@link #getPercentileRank(double, int)}:
+ *
+ *     int p50 = FlashSelect.getPercentileRank(50.0, latencies.length);
+ *     int p99 = FlashSelect.getPercentileRank(99.0, latencies.length);
+ *     double[] values = FlashSelect.select(latencies, partitionFunction, p50, p99);
+ *
+ * Like the sort, the selection is in-place and unstable, and the first partition runs
+ * on a {@link ForkJoinPool}.  The classes holding the ranks are then refined serially.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public final class FlashSelect {
+
+	private FlashSelect() {
+	}
+
+	/**
+	 * Returns the rank of the <code>percentile</code> of <code>size</code> elements,
+	 * by the nearest-rank method: the smallest rank at or below which at least
+	 * <code>percentile</code> percent of the elements fall.
+	 *
+	 * @param percentile The percentile, from 0 to 100.
+	 * @param size       The number of elements.
+	 *
+	 * @throws IllegalArgumentException If the <code>percentile</code> is not between
+	 *                                  0 and 100, or if <code>size</code> is not positive.
+	 */
+	public static int getPercentileRank(double percentile, int size) {
+		if (!(percentile >= 0.0) || (percentile > 100.0)) {
+			throw new IllegalArgumentException("The percentile must be between 0 and 100, not " + percentile + ".");
+		} else if (size < 1) {
+			throw new IllegalArgumentException("There must be at least one element, not " + size + ".");
+		}
+		return (int) Math.max(0L, (long) Math.ceil(percentile / 100.0 * size) - 1);
+	}
+
+	/**
+	 * Selects the <code>ranks</code> on the common fork-join pool.
+	 *
+	 * @see #select(List, PartitionFunction, ForkJoinPool, int...)
+	 */
+	public static <T extends Element<U>, U> List<T> select(List<T> input, PartitionFunction<T, U> partitionFunction, int... ranks) {
+		return select(input, partitionFunction, ForkJoinPool.commonPool(), ranks);
+	}
+
+	/**
+	 * Rearranges the <code>input</code> so that the element at each of the <code>ranks</code>
+	 * is the one a full sort would place there, and returns those elements.
+	 *
+	 * @param input             The list to select from.
+	 * @param partitionFunction The function to partition the list with first.
+	 * @param pool              The pool to partition the list on.
+	 * @param ranks             The zero-based ranks to select, in any order.
+	 *
+	 * @return The element at each of the <code>ranks</code>, in the order they were requested.
+	 *
+	 * @throws IllegalArgumentException If a rank is outside the <code>input</code>.
+	 */
+	public static <T extends Element<U>, U> List<T> select(List<T> input, PartitionFunction<T, U> partitionFunction, ForkJoinPool pool, int... ranks) {
+		final int[] sortedRanks = getSortedRanks(ranks, input.size());
+		if (input.size() > 1) {
+			selectClasses(CyclePartitioner.partition(input, partitionFunction, pool), input.size(), new FlashSort.ListSorter<T, U>(input), partitionFunction::isEqualityClass, sortedRanks);
+		}
+
+		final List<T> selected = new ArrayList<T>(ranks.length);
+		for (int rank : ranks) {
+			selected.add(input.get(rank));
+		}
+		return selected;
+	}
+
+	/**
+	 * Selects the <code>ranks</code> on the common fork-join pool.
+	 *
+	 * @see #select(int[], LongPartitionFunction, ForkJoinPool, int...)
+	 */
+	public static int[] select(int[] input, LongPartitionFunction partitionFunction, int... ranks) {
+		return select(input, partitionFunction, ForkJoinPool.commonPool(), ranks);
+	}
+
+	/**
+	 * Selects the <code>ranks</code> of the <code>int</code> keys without boxing them.
+	 *
+	 * @see #select(List, PartitionFunction, ForkJoinPool, int...)
+	 */
+	public static int[] select(int[] input, LongPartitionFunction partitionFunction, ForkJoinPool pool, int... ranks) {
+		final int[] sortedRanks = getSortedRanks(ranks, input.length);
+		if (input.length > 1) {
+			selectClasses(CyclePartitioner.partition(input, partitionFunction, pool), input.length, new FlashSort.IntSorter(input), partitionFunction::isEqualityClass, sortedRanks);
+		}
+
+		final int[] selected = new int[ranks.length];
+		for (int index = 0; index < ranks.length; ++index) {
+			selected[index] = input[ranks[index]];
+		}
+		return selected;
+	}
+
+	/**
+	 * Selects the <code>ranks</code> on the common fork-join pool.
+	 *
+	 * @see #select(long[], LongPartitionFunction, ForkJoinPool, int...)
+	 */
+	public static long[] select(long[] input, LongPartitionFunction partitionFunction, int... ranks) {
+		return select(input, partitionFunction, ForkJoinPool.commonPool(), ranks);
+	}
+
+	/**
+	 * Selects the <code>ranks</code> of the <code>long</code> keys without boxing them.
+	 *
+	 * @see #select(List, PartitionFunction, ForkJoinPool, int...)
+	 */
+	public static long[] select(long[] input, LongPartitionFunction partitionFunction, ForkJoinPool pool, int... ranks) {
+		final int[] sortedRanks = getSortedRanks(ranks, input.length);
+		if (input.length > 1) {
+			selectClasses(CyclePartitioner.partition(input, partitionFunction, pool), input.length, new FlashSort.LongSorter(input), partitionFunction::isEqualityClass, sortedRanks);
+		}
+
+		final long[] selected = new long[ranks.length];
+		for (int index = 0; index < ranks.length; ++index) {
+			selected[index] = input[ranks[index]];
+		}
+		return selected;
+	}
+
+	/**
+	 * Selects the <code>ranks</code> on the common fork-join pool.
+	 *
+	 * @see #select(float[], DoublePartitionFunction, ForkJoinPool, int...)
+	 */
+	public static float[] select(float[] input, DoublePartitionFunction partitionFunction, int... ranks) {
+		return select(input, partitionFunction, ForkJoinPool.commonPool(), ranks);
+	}
+
+	/**
+	 * Selects the <code>ranks</code> of the <code>float</code> keys without boxing them.
+	 *
+	 * @see #select(List, PartitionFunction, ForkJoinPool, int...)
+	 */
+	public static float[] select(float[] input, DoublePartitionFunction partitionFunction, ForkJoinPool pool, int... ranks) {
+		final int[] sortedRanks = getSortedRanks(ranks, input.length);
+		if (input.length > 1) {
+			selectClasses(CyclePartitioner.partition(input, partitionFunction, pool), input.length, new FlashSort.FloatSorter(input), partitionFunction::isEqualityClass, sortedRanks);
+		}
+
+		final float[] selected = new float[ranks.length];
+		for (int index = 0; index < ranks.length; ++index) {
+			selected[index] = input[ranks[index]];
+		}
+		return selected;
+	}
+
+	/**
+	 * Selects the <code>ranks</code> on the common fork-join pool.
+	 *
+	 * @see #select(double[], DoublePartitionFunction, ForkJoinPool, int...)
+	 */
+	public static double[] select(double[] input, DoublePartitionFunction partitionFunction, int... ranks) {
+		return select(input, partitionFunction, ForkJoinPool.commonPool(), ranks);
+	}
+
+	/**
+	 * Selects the <code>ranks</code> of the <code>double</code> keys without boxing them.
+	 *
+	 * @see #select(List, PartitionFunction, ForkJoinPool, int...)
+	 */
+	public static double[] select(double[] input, DoublePartitionFunction partitionFunction, ForkJoinPool pool, int... ranks) {
+		final int[] sortedRanks = getSortedRanks(ranks, input.length);
+		if (input.length > 1) {
+			selectClasses(CyclePartitioner.partition(input, partitionFunction, pool), input.length, new FlashSort.DoubleSorter(input), partitionFunction::isEqualityClass, sortedRanks);
+		}
+
+		final double[] selected = new double[ranks.length];
+		for (int index = 0; index < ranks.length; ++index) {
+			selected[index] = input[ranks[index]];
+		}
+		return selected;
+	}
+
+	/* Checks the ranks are within the input, and returns them sorted, without duplicates. */
+	private static int[] getSortedRanks(int[] ranks, int size) {
+		final int[] sortedRanks = ranks.clone();
+		Arrays.sort(sortedRanks);
+
+		int numRanks = 0;
+		for (int rank : sortedRanks) {
+			if ((rank < 0) || (rank >= size)) {
+				throw new IllegalArgumentException("Rank " + rank + " is outside of an input of " + size + " elements.");
+			} else if ((numRanks == 0) || (sortedRanks[numRanks - 1] != rank)) {
+				sortedRanks[numRanks++] = rank;
+			}
+		}
+		return Arrays.copyOf(sortedRanks, numRanks);
+	}
+
+	/* Refines each class holding one of the ranks, except for the sortedClasses (the partition
+	 * function's equality classes), whose elements are all equal.  If the input could not be
+	 * partitioned (there were fewer than two classes), the whole input is refined.
+	 */
+	private static void selectClasses(int[] classUpperBounds, int size, FlashSort.RangeSorter sorter, IntPredicate sortedClasses, int[] ranks) {
+		if (classUpperBounds == null) {
+			selectRange(sorter, 0, size, ranks, 0, ranks.length);
+		} else {
+			selectClasses(sorter, classUpperBounds, 0, sortedClasses, ranks, 0, ranks.length);
+		}
+	}
+
+	/* Refines the classes holding the ranks in [fromRank, toRank).  The classes, like the ranks,
+	 * are in increasing order, so both are walked together, and empty classes are skipped.
+	 */
+	private static void selectClasses(FlashSort.RangeSorter sorter, int[] classUpperBounds, int offset, IntPredicate sortedClasses, int[] ranks, int fromRank, int toRank) {
+		int rank = fromRank;
+		for (int classNum = 0; (classNum < classUpperBounds.length) && (rank < toRank); ++classNum) {
+			final int upperBound = offset + classUpperBounds[classNum];
+			if (ranks[rank] > upperBound) {
+				continue;
+			}
+
+			final int firstRank = rank;
+			while ((rank < toRank) && (ranks[rank] <= upperBound)) {
+				++rank;
+			}
+			if (!sortedClasses.test(classNum)) {
+				selectRange(sorter, offset + FlashSort.getLowerBound(classUpperBounds, classNum), upperBound + 1, ranks, firstRank, rank);
+			}
+		}
+	}
+
+	/* Places the ranks in [fromRank, toRank), which all fall in the range, by sorting the range
+	 * if it is small enough, or by partitioning it again and refining only the classes holding
+	 * the ranks.
+	 */
+	private static void selectRange(FlashSort.RangeSorter sorter, int fromIndex, int toIndex, int[] ranks, int fromRank, int toRank) {
+		final int size = toIndex - fromIndex;
+		if (size <= FlashSort.INSERTION_SORT_SIZE) {
+			sorter.insertionSort(fromIndex, toIndex);
+			return;
+		} else if (size <= FlashSort.MAX_CLASS_SIZE) {
+			sorter.sort(fromIndex, toIndex);
+			return;
+		}
+
+		final int[] classUpperBounds = sorter.partition(fromIndex, toIndex, FlashSort.getRepartitionClasses(size));
+
+		// If every element landed in one class, the partition function cannot tell the elements apart.
+		if ((classUpperBounds == null) || (FlashSort.getLargestClass(classUpperBounds) == size)) {
+			sorter.sort(fromIndex, toIndex);
+		} else {
+			selectClasses(sorter, classUpperBounds, fromIndex, FlashSort.NO_SORTED_CLASSES, ranks, fromRank, toRank);
+		}
+	}
+}
@@ -0,0 +1,609 @@
+package mpigott.sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntPredicate;
+
+/**
+ * A complete sort built on the {@link CyclePartitioner}.  The input is first
+ * partitioned into classes, then each class is sorted independently.  Both
+ * stages run on a {@link ForkJoinPool}.
+ *
+ * The classes are grouped into tasks of roughly {@link #MIN_TASK_SIZE} elements
+ * or more, so tiny classes do not pay for a task of their own.  The tasks are
+ * submitted largest-first: when the classes are uneven, the largest class
+ * usually determines how long the second stage takes, so it needs to start
+ * as early as possible.
+ *
+ * When the input is clustered, the partition function can leave a few classes
+ * holding most of the elements.  Rather than sorting those with an N log N sort,
+ * any class larger than {@link #MAX_CLASS_SIZE} is partitioned again, with a
+ * flash sort partition function fitted to just that class's range (for integral
+ * keys, the exact {@link LongShiftPartitionFunction}), and its sub-classes are
+ * sorted the same way.  Classes of {@link #INSERTION_SORT_SIZE}
+ * elements or fewer are insertion-sorted, and the rest with the standard sort.
+ * Classes the partition function reports as {@link LongPartitionFunction#isEqualityClass(int)
+ * equality classes} hold copies of a single key, so they are not sorted at all.
+ *
+ * Like the partitioner, the sort is in-place and unstable.  The input is partitioned
+ * and sorted concurrently, so the partition function must be thread-safe, and a
+ * <code>List</code> must support concurrent calls to {@link List#set(int, Object)}
+ * at distinct indices (as <code>ArrayList</code> does).
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public final class FlashSort {
+
+	/**
+	 * The minimum number of elements worth sorting in their own fork-join task.
+	 * Smaller neighboring classes are sorted together in one task.
+	 */
+	public static final int MIN_TASK_SIZE = 8192;
+
+	/**
+	 * Classes larger than this are partitioned again, rather than sorted directly.
+	 */
+	public static final int MAX_CLASS_SIZE = 4096;
+
+	/**
+	 * Classes of this many elements or fewer are insertion-sorted.
+	 */
+	public static final int INSERTION_SORT_SIZE = 32;
+
+	/**
+	 * The most classes a class is partitioned into when it is partitioned again.
+	 */
+	static final int MAX_REPARTITION_CLASSES = 1 << 16;
+
+	/* The functions fitted to repartition a class have no equality classes. */
+	static final IntPredicate NO_SORTED_CLASSES = classNum -> false;
+
+	private FlashSort() {
+	}
+
+	/**
+	 * Sorts the <code>input</code> on the common fork-join pool.
+	 *
+	 * @see #sort(List, PartitionFunction, ForkJoinPool)
+	 */
+	public static <T extends Element<U>, U> void sort(List<T> input, PartitionFunction<T, U> partitionFunction) {
+		sort(input, partitionFunction, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Partitions the <code>input</code> with the <code>partitionFunction</code>,
+	 * then sorts each class, both in parallel on the <code>pool</code>.
+	 *
+	 * @param input             The list to sort.
+	 * @param partitionFunction The function to partition the list with.
+	 * @param pool              The pool to partition the list and sort the classes on.
+	 */
+	public static <T extends Element<U>, U> void sort(List<T> input, PartitionFunction<T, U> partitionFunction, ForkJoinPool pool) {
+		if ((input == null) || (input.size() < 2)) {
+			return;
+		}
+
+		sortClasses(CyclePartitioner.partition(input, partitionFunction, pool), input.size(), new ListSorter<T, U>(input), partitionFunction::isEqualityClass, pool);
+	}
+
+	/**
+	 * Sorts the <code>input</code> on the common fork-join pool.
+	 *
+	 * @see #sort(int[], LongPartitionFunction, ForkJoinPool)
+	 */
+	public static void sort(int[] input, LongPartitionFunction partitionFunction) {
+		sort(input, partitionFunction, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Sorts the <code>int</code> keys without boxing them.
+	 *
+	 * @see #sort(List, PartitionFunction, ForkJoinPool)
+	 */
+	public static void sort(int[] input, LongPartitionFunction partitionFunction, ForkJoinPool pool) {
+		if ((input == null) || (input.length < 2)) {
+			return;
+		}
+
+		sortClasses(CyclePartitioner.partition(input, partitionFunction, pool), input.length, new IntSorter(input), partitionFunction::isEqualityClass, pool);
+	}
+
+	/**
+	 * Sorts the <code>input</code> on the common fork-join pool.
+	 *
+	 * @see #sort(long[], LongPartitionFunction, ForkJoinPool)
+	 */
+	public static void sort(long[] input, LongPartitionFunction partitionFunction) {
+		sort(input, partitionFunction, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Sorts the <code>long</code> keys without boxing them.
+	 *
+	 * @see #sort(List, PartitionFunction, ForkJoinPool)
+	 */
+	public static void sort(long[] input, LongPartitionFunction partitionFunction, ForkJoinPool pool) {
+		if ((input == null) || (input.length < 2)) {
+			return;
+		}
+
+		sortClasses(CyclePartitioner.partition(input, partitionFunction, pool), input.length, new LongSorter(input), partitionFunction::isEqualityClass, pool);
+	}
+
+	/**
+	 * Sorts the <code>input</code> on the common fork-join pool.
+	 *
+	 * @see #sort(float[], DoublePartitionFunction, ForkJoinPool)
+	 */
+	public static void sort(float[] input, DoublePartitionFunction partitionFunction) {
+		sort(input, partitionFunction, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Sorts the <code>float</code> keys without boxing them.
+	 *
+	 * @see #sort(List, PartitionFunction, ForkJoinPool)
+	 */
+	public static void sort(float[] input, DoublePartitionFunction partitionFunction, ForkJoinPool pool) {
+		if ((input == null) || (input.length < 2)) {
+			return;
+		}
+
+		sortClasses(CyclePartitioner.partition(input, partitionFunction, pool), input.length, new FloatSorter(input), partitionFunction::isEqualityClass, pool);
+	}
+
+	/**
+	 * Sorts the <code>input</code> on the common fork-join pool.
+	 *
+	 * @see #sort(double[], DoublePartitionFunction, ForkJoinPool)
+	 */
+	public static void sort(double[] input, DoublePartitionFunction partitionFunction) {
+		sort(input, partitionFunction, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Sorts the <code>double</code> keys without boxing them.
+	 *
+	 * @see #sort(List, PartitionFunction, ForkJoinPool)
+	 */
+	public static void sort(double[] input, DoublePartitionFunction partitionFunction, ForkJoinPool pool) {
+		if ((input == null) || (input.length < 2)) {
+			return;
+		}
+
+		sortClasses(CyclePartitioner.partition(input, partitionFunction, pool), input.length, new DoubleSorter(input), partitionFunction::isEqualityClass, pool);
+	}
+
+	/**
+	 * Sorts the <code>input</code> on the common fork-join pool.
+	 *
+	 * @see #sort(String[], ForkJoinPool)
+	 */
+	public static void sort(String[] input) {
+		sort(input, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Sorts the strings by the {@link PrefixPartitionFunction}, fitted to the first
+	 * prefix at which they differ.  Each oversized class is partitioned again by a
+	 * function fitted to its own first differing prefix, so strings which share a
+	 * long stem are partitioned by the characters after it.
+	 *
+	 * @param input The strings to sort.
+	 * @param pool  The pool to partition the strings and sort the classes on.
+	 *
+	 * @throws IllegalArgumentException If the <code>input</code> contains <code>null</code> strings.
+	 */
+	public static void sort(String[] input, ForkJoinPool pool) {
+		if ((input == null) || (input.length < 2)) {
+			return;
+		}
+
+		final PrefixPartitionFunction partitionFunction = new PrefixPartitionFunction(input, getRepartitionClasses(input.length));
+		final int depth = partitionFunction.getDepth();
+		sortClasses(CyclePartitioner.partition(input, key -> PrefixPartitionFunction.getPrefix(key, depth), partitionFunction, pool), input.length, new StringSorter(input), partitionFunction::isEqualityClass, pool);
+	}
+
+	/**
+	 * Sorts the <code>input</code> on the common fork-join pool.
+	 *
+	 * @see #sort(byte[][], ForkJoinPool)
+	 */
+	public static void sort(byte[][] input) {
+		sort(input, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Sorts the byte arrays lexicographically, treating each byte as unsigned.
+	 *
+	 * @see #sort(String[], ForkJoinPool)
+	 * @see ByteArrayElement#compare(byte[], byte[])
+	 */
+	public static void sort(byte[][] input, ForkJoinPool pool) {
+		if ((input == null) || (input.length < 2)) {
+			return;
+		}
+
+		final PrefixPartitionFunction partitionFunction = new PrefixPartitionFunction(input, getRepartitionClasses(input.length));
+		final int depth = partitionFunction.getDepth();
+		sortClasses(CyclePartitioner.partition(input, key -> PrefixPartitionFunction.getPrefix(key, depth), partitionFunction, pool), input.length, new ByteArraySorter(input), partitionFunction::isEqualityClass, pool);
+	}
+
+	/* Sorts ranges of the input, from fromIndex (inclusive) to toIndex (exclusive). */
+	static abstract class RangeSorter {
+
+		/* Sorts the range with a standard comparison sort. */
+		abstract void sort(int fromIndex, int toIndex);
+
+		abstract void insertionSort(int fromIndex, int toIndex);
+
+		/* Partitions the range with a partition function fitted to it, into at most numClasses
+		 * classes.  Returns the class upper bounds, relative to fromIndex, or null if the range
+		 * could not be partitioned.
+		 */
+		abstract int[] partition(int fromIndex, int toIndex, int numClasses);
+	}
+
+	/* Sorts a run of neighboring classes, one class at a time. */
+	private static final class ClassSortTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		ClassSortTask(RangeSorter sorter, int[] classUpperBounds, int offset, IntPredicate sortedClasses, int firstClass, int lastClass) {
+			this.sorter = sorter;
+			this.classUpperBounds = classUpperBounds;
+			this.offset = offset;
+			this.sortedClasses = sortedClasses;
+			this.firstClass = firstClass;
+			this.lastClass = lastClass;
+		}
+
+		int size() {
+			return classUpperBounds[lastClass] - getLowerBound(classUpperBounds, firstClass) + 1;
+		}
+
+		@Override
+		protected void compute() {
+			for (int classNum = firstClass; classNum <= lastClass; ++classNum) {
+				if (sortedClasses.test(classNum)) {
+					continue;
+				}
+				sortRange(sorter, offset + getLowerBound(classUpperBounds, classNum), offset + classUpperBounds[classNum] + 1);
+			}
+		}
+
+		private final RangeSorter sorter;
+		private final int[] classUpperBounds;
+		private final int offset;
+		private final IntPredicate sortedClasses;
+		private final int firstClass;
+		private final int lastClass;
+	}
+
+	/* Sorts each class described by the classUpperBounds, except for the sortedClasses (the
+	 * partition function's equality classes), which are already sorted.  If the input could
+	 * not be partitioned (there were fewer than two classes), the whole input is sorted.
+	 */
+	static void sortClasses(final int[] classUpperBounds, final int size, final RangeSorter sorter, final IntPredicate sortedClasses, ForkJoinPool pool) {
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				if (classUpperBounds == null) {
+					sortRange(sorter, 0, size);
+				} else {
+					invokeClassSortTasks(sorter, classUpperBounds, 0, sortedClasses);
+				}
+			}
+		});
+	}
+
+	/* Sorts the range, partitioning it again first if it is too large to sort directly.
+	 * This must be called from within the fork-join pool.
+	 */
+	static void sortRange(RangeSorter sorter, int fromIndex, int toIndex) {
+		final int size = toIndex - fromIndex;
+		if (size <= INSERTION_SORT_SIZE) {
+			sorter.insertionSort(fromIndex, toIndex);
+			return;
+		} else if (size <= MAX_CLASS_SIZE) {
+			sorter.sort(fromIndex, toIndex);
+			return;
+		}
+
+		final int[] classUpperBounds = sorter.partition(fromIndex, toIndex, getRepartitionClasses(size));
+
+		// If every element landed in one class, the partition function cannot tell the elements apart.
+		if ((classUpperBounds == null) || (getLargestClass(classUpperBounds) == size)) {
+			sorter.sort(fromIndex, toIndex);
+		} else {
+			invokeClassSortTasks(sorter, classUpperBounds, fromIndex, NO_SORTED_CLASSES);
+		}
+	}
+
+	/* Groups the classes into tasks, and runs them largest-first. */
+	private static void invokeClassSortTasks(RangeSorter sorter, int[] classUpperBounds, int offset, IntPredicate sortedClasses) {
+		final List<ClassSortTask> tasks = new ArrayList<ClassSortTask>();
+		int firstClass = 0;
+		for (int classNum = 0; classNum < classUpperBounds.length; ++classNum) {
+			if ((classUpperBounds[classNum] - getLowerBound(classUpperBounds, firstClass) + 1 >= MIN_TASK_SIZE)
+					|| (classNum == classUpperBounds.length - 1)) {
+				tasks.add(new ClassSortTask(sorter, classUpperBounds, offset, sortedClasses, firstClass, classNum));
+				firstClass = classNum + 1;
+			}
+		}
+
+		// The common pool may run the sort in the caller's thread, which cannot fork.
+		if ((tasks.size() == 1) || !ForkJoinTask.inForkJoinPool()) {
+			for (ClassSortTask task : tasks) {
+				task.compute();
+			}
+			return;
+		}
+
+		// Largest first.  invokeAll() runs the first task itself, and idle workers steal the next-largest.
+		Collections.sort(tasks, new Comparator<ClassSortTask>() {
+			public int compare(ClassSortTask first, ClassSortTask second) {
+				return Integer.compare(second.size(), first.size());
+			}
+		});
+
+		ForkJoinTask.invokeAll(tasks);
+	}
+
+	static int getLargestClass(int[] classUpperBounds) {
+		int largest = 0;
+		for (int classNum = 0; classNum < classUpperBounds.length; ++classNum) {
+			largest = Math.max(largest, classUpperBounds[classNum] - getLowerBound(classUpperBounds, classNum) + 1);
+		}
+		return largest;
+	}
+
+	static int getLowerBound(int[] classUpperBounds, int classification) {
+		return (classification == 0) ? 0 : classUpperBounds[classification - 1] + 1;
+	}
+
+	static int getRepartitionClasses(int size) {
+		return Math.max(2, Math.min(size / (INSERTION_SORT_SIZE / 2), MAX_REPARTITION_CLASSES));
+	}
+
+	private static PartitionOptions getRepartitionOptions() {
+		// Class sizes are counted first, so a poorly-fitted class cannot cascade.
+		return new PartitionOptions().setClassBounds(PartitionOptions.ClassBounds.EXACT);
+	}
+
+	static final class ListSorter<T extends Element<U>, U> extends RangeSorter {
+		ListSorter(List<T> input) {
+			this.input = input;
+		}
+
+		void sort(int fromIndex, int toIndex) {
+			Collections.sort(input.subList(fromIndex, toIndex));
+		}
+
+		void insertionSort(int fromIndex, int toIndex) {
+			for (int index = fromIndex + 1; index < toIndex; ++index) {
+				final T value = input.get(index);
+				int prev = index - 1;
+				for (; (prev >= fromIndex) && (input.get(prev).compareTo(value) > 0); --prev) {
+					input.set(prev + 1, input.get(prev));
+				}
+				input.set(prev + 1, value);
+			}
+		}
+
+		int[] partition(int fromIndex, int toIndex, int numClasses) {
+			final List<T> range = input.subList(fromIndex, toIndex);
+			return CyclePartitioner.partition(new PartitionTarget.OfList<T, U>(range, new FlashSortPartitionFunction<T, U>(range, numClasses)), getRepartitionOptions());
+		}
+
+		private final List<T> input;
+	}
+
+	static final class IntSorter extends RangeSorter {
+		IntSorter(int[] input) {
+			this.input = input;
+		}
+
+		void sort(int fromIndex, int toIndex) {
+			Arrays.sort(input, fromIndex, toIndex);
+		}
+
+		void insertionSort(int fromIndex, int toIndex) {
+			for (int index = fromIndex + 1; index < toIndex; ++index) {
+				final int value = input[index];
+				int prev = index - 1;
+				for (; (prev >= fromIndex) && (input[prev] > value); --prev) {
+					input[prev + 1] = input[prev];
+				}
+				input[prev + 1] = value;
+			}
+		}
+
+		int[] partition(int fromIndex, int toIndex, int numClasses) {
+			int min = input[fromIndex];
+			int max = min;
+			for (int index = fromIndex + 1; index < toIndex; ++index) {
+				min = Math.min(min, input[index]);
+				max = Math.max(max, input[index]);
+			}
+
+			final LongShiftPartitionFunction partitionFunction = new LongShiftPartitionFunction(min, max, numClasses);
+			return CyclePartitioner.partition(new PartitionTarget.OfRange(new PartitionTarget.OfInts(input, partitionFunction), fromIndex, toIndex), getRepartitionOptions());
+		}
+
+		private final int[] input;
+	}
+
+	static final class LongSorter extends RangeSorter {
+		LongSorter(long[] input) {
+			this.input = input;
+		}
+
+		void sort(int fromIndex, int toIndex) {
+			Arrays.sort(input, fromIndex, toIndex);
+		}
+
+		void insertionSort(int fromIndex, int toIndex) {
+			for (int index = fromIndex + 1; index < toIndex; ++index) {
+				final long value = input[index];
+				int prev = index - 1;
+				for (; (prev >= fromIndex) && (input[prev] > value); --prev) {
+					input[prev + 1] = input[prev];
+				}
+				input[prev + 1] = value;
+			}
+		}
+
+		int[] partition(int fromIndex, int toIndex, int numClasses) {
+			long min = input[fromIndex];
+			long max = min;
+			for (int index = fromIndex + 1; index < toIndex; ++index) {
+				min = Math.min(min, input[index]);
+				max = Math.max(max, input[index]);
+			}
+
+			final LongShiftPartitionFunction partitionFunction = new LongShiftPartitionFunction(min, max, numClasses);
+			return CyclePartitioner.partition(new PartitionTarget.OfRange(new PartitionTarget.OfLongs(input, partitionFunction), fromIndex, toIndex), getRepartitionOptions());
+		}
+
+		private final long[] input;
+	}
+
+	static final class FloatSorter extends RangeSorter {
+		FloatSorter(float[] input) {
+			this.input = input;
+		}
+
+		void sort(int fromIndex, int toIndex) {
+			Arrays.sort(input, fromIndex, toIndex);
+		}
+
+		void insertionSort(int fromIndex, int toIndex) {
+			for (int index = fromIndex + 1; index < toIndex; ++index) {
+				final float value = input[index];
+				int prev = index - 1;
+				for (; (prev >= fromIndex) && (Float.compare(input[prev], value) > 0); --prev) {
+					input[prev + 1] = input[prev];
+				}
+				input[prev + 1] = value;
+			}
+		}
+
+		int[] partition(int fromIndex, int toIndex, int numClasses) {
+			float min = input[fromIndex];
+			float max = min;
+			for (int index = fromIndex + 1; index < toIndex; ++index) {
+				min = Math.min(min, input[index]);
+				max = Math.max(max, input[index]);
+			}
+
+			final DoubleFlashSortPartitionFunction partitionFunction = new DoubleFlashSortPartitionFunction(min, max, numClasses);
+			return CyclePartitioner.partition(new PartitionTarget.OfRange(new PartitionTarget.OfFloats(input, partitionFunction), fromIndex, toIndex), getRepartitionOptions());
+		}
+
+		private final float[] input;
+	}
+
+	static final class DoubleSorter extends RangeSorter {
+		DoubleSorter(double[] input) {
+			this.input = input;
+		}
+
+		void sort(int fromIndex, int toIndex) {
+			Arrays.sort(input, fromIndex, toIndex);
+		}
+
+		void insertionSort(int fromIndex, int toIndex) {
+			for (int index = fromIndex + 1; index < toIndex; ++index) {
+				final double value = input[index];
+				int prev = index - 1;
+				for (; (prev >= fromIndex) && (Double.compare(input[prev], value) > 0); --prev) {
+					input[prev + 1] = input[prev];
+				}
+				input[prev + 1] = value;
+			}
+		}
+
+		int[] partition(int fromIndex, int toIndex, int numClasses) {
+			double min = input[fromIndex];
+			double max = min;
+			for (int index = fromIndex + 1; index < toIndex; ++index) {
+				min = Math.min(min, input[index]);
+				max = Math.max(max, input[index]);
+			}
+
+			final DoubleFlashSortPartitionFunction partitionFunction = new DoubleFlashSortPartitionFunction(min, max, numClasses);
+			return CyclePartitioner.partition(new PartitionTarget.OfRange(new PartitionTarget.OfDoubles(input, partitionFunction), fromIndex, toIndex), getRepartitionOptions());
+		}
+
+		private final double[] input;
+	}
+
+	private static final class StringSorter extends RangeSorter {
+		StringSorter(String[] input) {
+			this.input = input;
+		}
+
+		void sort(int fromIndex, int toIndex) {
+			Arrays.sort(input, fromIndex, toIndex);
+		}
+
+		void insertionSort(int fromIndex, int toIndex) {
+			for (int index = fromIndex + 1; index < toIndex; ++index) {
+				final String value = input[index];
+				int prev = index - 1;
+				for (; (prev >= fromIndex) && (input[prev].compareTo(value) > 0); --prev) {
+					input[prev + 1] = input[prev];
+				}
+				input[prev + 1] = value;
+			}
+		}
+
+		int[] partition(int fromIndex, int toIndex, int numClasses) {
+			final PrefixPartitionFunction partitionFunction = new PrefixPartitionFunction(input, fromIndex, toIndex, numClasses);
+			final int depth = partitionFunction.getDepth();
+			final List<String> range = Arrays.asList(input).subList(fromIndex, toIndex);
+			return CyclePartitioner.partition(new PartitionTarget.OfLongKeys<String>(range, key -> PrefixPartitionFunction.getPrefix(key, depth), partitionFunction), getRepartitionOptions());
+		}
+
+		private final String[] input;
+	}
+
+	private static final class ByteArraySorter extends RangeSorter {
+		ByteArraySorter(byte[][] input) {
+			this.input = input;
+		}
+
+		void sort(int fromIndex, int toIndex) {
+			Arrays.sort(input, fromIndex, toIndex, ByteArrayElement::compare);
+		}
+
+		void insertionSort(int fromIndex, int toIndex) {
+			for (int index = fromIndex + 1; index < toIndex; ++index) {
+				final byte[] value = input[index];
+				int prev = index - 1;
+				for (; (prev >= fromIndex) && (ByteArrayElement.compare(input[prev], value) > 0); --prev) {
+					input[prev + 1] = input[prev];
+				}
+				input[prev + 1] = value;
+			}
+		}
+
+		int[] partition(int fromIndex, int toIndex, int numClasses) {
+			final PrefixPartitionFunction partitionFunction = new PrefixPartitionFunction(input, fromIndex, toIndex, numClasses);
+			final int depth = partitionFunction.getDepth();
+			final List<byte[]> range = Arrays.asList(input).subList(fromIndex, toIndex);
+			return CyclePartitioner.partition(new PartitionTarget.OfLongKeys<byte[]>(range, key -> PrefixPartitionFunction.getPrefix(key, depth), partitionFunction), getRepartitionOptions());
+		}
+
+		private final byte[][] input;
+	}
+}
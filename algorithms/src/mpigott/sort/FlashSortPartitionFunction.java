@@ -1,6 +1,7 @@
 package mpigott.sort;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Implementation of the Flash Sort partition function.
@@ -43,11 +44,33 @@ public class FlashSortPartitionFunction<T extends Element<U>, U> implements Part
 			}
 		}
 
+		setNumClasses(numClassesRequested);
+	}
+
+	/**
+	 * Finds the global minimum and maximum in parallel, scanning chunks of the
+	 * <code>input</code> on the <code>pool</code> and merging their results.
+	 * The resulting partition function is the same as the serially-built one.
+	 *
+	 * @param input               The input to generate the classes from.
+	 * @param numClassesRequested The maximum number of classes to sort the input into.
+	 * @param pool                The pool to scan the input on.
+	 *
+	 * @see #FlashSortPartitionFunction(List, int)
+	 */
+	public FlashSortPartitionFunction(List<T> input, int numClassesRequested, ForkJoinPool pool) {
+		final ParallelScan.Range<T> range = ParallelScan.findRange(input, pool);
+		min = range.min;
+		max = range.max;
+
+		setNumClasses(numClassesRequested);
+	}
+
+	private void setNumClasses(int numClassesRequested) {
 		numClasses = numClassesRequested;
 		if ((max.distance(min)) < numClasses) {
 			numClasses = Math.floor(max.distance(min) + 1.0);
 		}
-
 	}
 
 	/**
@@ -58,15 +81,42 @@ public class FlashSortPartitionFunction<T extends Element<U>, U> implements Part
 	 * @see PartitionFunction#getClass(Element)
 	 */
 	public int getClass(T value) {
-		double classification =
-			Math.floor(numClasses*value.distance(min)/max.distance(min));
-		if (classification == numClasses) {
-			--classification;
-		}
+		return classify(value.distance(min), max.distance(min), numClasses);
+	}
 
+	/* Dividing the distance by the range before multiplying by the number of classes
+	 * keeps large keys from overflowing to infinity.  The class is clamped to the valid
+	 * classes, both for the maximum key and for keys rounded just past it.  If every key
+	 * is the same, the classification is NaN, which is class 0.  The primitive flash sort
+	 * partition functions share this arithmetic, so a primitive key is classified just
+	 * as the equivalent NumericElement is.
+	 */
+	static int classify(double distance, double range, double numClasses) {
+		double classification = Math.floor(distance / range * numClasses);
+		if (classification >= numClasses) {
+			classification = numClasses - 1;
+		} else if (classification < 0) {
+			classification = 0;
+		}
 		return (int) classification;
 	}
 
+	/**
+	 * Classifies the block of elements with the same arithmetic as
+	 * {@link #getClass(Element)}, computing the range only once.
+	 *
+	 * @see PartitionFunction#getClasses(List, int, int, int[])
+	 */
+	@Override
+	public void getClasses(List<T> input, int fromIndex, int toIndex, int[] classes) {
+		final double numClasses = this.numClasses;
+		final T min = this.min;
+		final double range = max.distance(min);
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = classify(input.get(index).distance(min), range, numClasses);
+		}
+	}
+
 	/**
 	 * The total number of classes that an item can be partitioned into.
 	 *
@@ -0,0 +1,298 @@
+package mpigott.sort;
+
+/**
+ * A read-only index over a sorted array of keys, which pairs the partition function
+ * the keys were sorted with and the bounds of its classes in the sorted array.  This
+ * is the idea behind a learned index ( https://arxiv.org/abs/1712.01208 ): a model of
+ * the keys' distribution predicts where a key is, and a short search corrects the
+ * prediction.  Here, the model is the partition function, and its prediction is the
+ * key's class, so a lookup classifies the key, then searches only the elements of
+ * that class, rather than binary searching the entire array.
+ *
+ * A partition function never puts a larger key in an earlier class, so every key
+ * equal to the one being looked up is in its class, every smaller key is in that
+ * class or an earlier one, and every larger key is in that class or a later one.
+ * When the classes are evenly filled (as the {@link LongCdfPartitionFunction} and
+ * {@link DoubleCdfPartitionFunction} fill them, by fitting the keys' CDF), each class
+ * holds about <code>N / k</code> keys, and a lookup into <code>k = N / 16</code>
+ * classes touches one or two cache lines of keys.  The equality classes of a
+ * heavy hitter hold only copies of it, so they are not searched at all.
+ *
+ *     FlashSort.sort(snapshot, partitionFunction);
+ *     LearnedIndex.OfLongs index = new LearnedIndex.OfLongs(snapshot, partitionFunction);
+ *     int first = index.lowerBound(fromKey);
+ *     int last = index.upperBound(toKey);
+ *
+ * The index keeps a reference to the array, so the array must not be modified while
+ * the index is in use.  Lookups do not modify the index, and are thread-safe if the
+ * partition function is.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public abstract class LearnedIndex {
+
+	/* Only the nested classes may extend it. */
+	private LearnedIndex(int[] classUpperBounds) {
+		this.classUpperBounds = classUpperBounds;
+	}
+
+	/**
+	 * The number of keys in the index.
+	 */
+	public int size() {
+		return (classUpperBounds.length == 0) ? 0 : classUpperBounds[classUpperBounds.length - 1] + 1;
+	}
+
+	/**
+	 * The index of the last key in each class, or the index of the last key in the class
+	 * before it if the class is empty, as returned by {@link CyclePartitioner#partition(long[], LongPartitionFunction)}.
+	 * The array must not be modified.
+	 */
+	public int[] getClassUpperBounds() {
+		return classUpperBounds;
+	}
+
+	/* Returns the index of the first key in the class. */
+	int getLowerBound(int classNum) {
+		return (classNum == 0) ? 0 : classUpperBounds[classNum - 1] + 1;
+	}
+
+	/* Converts the number of keys in each class to the class upper bounds, in place. */
+	static int[] toClassUpperBounds(int[] classCounts) {
+		int upperBound = -1;
+		for (int classNum = 0; classNum < classCounts.length; ++classNum) {
+			upperBound += classCounts[classNum];
+			classCounts[classNum] = upperBound;
+		}
+		return classCounts;
+	}
+
+	/* Checks the classes of a batch of keys never decrease, and counts them. */
+	static int countClasses(int[] classes, int batchLength, int previousClass, int[] classCounts, int fromIndex) {
+		for (int index = 0; index < batchLength; ++index) {
+			final int classNum = classes[index];
+			if (classNum < previousClass) {
+				throw new IllegalArgumentException("The key at index " + (fromIndex + index) + " is in class " + classNum + ", before the class " + previousClass + " of the key preceding it.  Either the keys are not sorted, or the partition function does not preserve their order.");
+			}
+			++classCounts[classNum];
+			previousClass = classNum;
+		}
+		return previousClass;
+	}
+
+	/**
+	 * An index over sorted <code>long</code> keys.
+	 */
+	public static final class OfLongs extends LearnedIndex {
+
+		/**
+		 * Classifies every key in the sorted array, and records where each class starts.
+		 *
+		 * @param sortedKeys        The keys, in increasing order.
+		 * @param partitionFunction The function to predict the class of each key with.
+		 *
+		 * @throws IllegalArgumentException If the keys are not sorted, or if the partition
+		 *                                  function puts a key in an earlier class than
+		 *                                  a smaller key.
+		 */
+		public OfLongs(long[] sortedKeys, LongPartitionFunction partitionFunction) {
+			super(getClassUpperBounds(sortedKeys, partitionFunction));
+			this.keys = sortedKeys;
+			this.partitionFunction = partitionFunction;
+		}
+
+		private static int[] getClassUpperBounds(long[] sortedKeys, LongPartitionFunction partitionFunction) {
+			final int[] classCounts = new int[partitionFunction.getNumClasses()];
+			final int[] classes = new int[PartitionTarget.BATCH_SIZE];
+			int previousClass = 0;
+			for (int fromIndex = 0; fromIndex < sortedKeys.length; fromIndex += PartitionTarget.BATCH_SIZE) {
+				final int toIndex = Math.min(fromIndex + PartitionTarget.BATCH_SIZE, sortedKeys.length);
+				partitionFunction.getClasses(sortedKeys, fromIndex, toIndex, classes);
+				previousClass = countClasses(classes, toIndex - fromIndex, previousClass, classCounts, fromIndex);
+				for (int index = Math.max(fromIndex, 1); index < toIndex; ++index) {
+					if (sortedKeys[index - 1] > sortedKeys[index]) {
+						throw new IllegalArgumentException("The keys are not sorted.  The key at index " + (index - 1) + " is greater than the one after it.");
+					}
+				}
+			}
+			return toClassUpperBounds(classCounts);
+		}
+
+		/**
+		 * Returns the index of the first key which is not less than the <code>key</code>,
+		 * or {@link #size()} if every key is less than it.  Only keys between the first
+		 * and last keys of the index are classified, since the partition function may
+		 * not have been fitted to any others.
+		 */
+		public int lowerBound(long key) {
+			if ((keys.length == 0) || (key <= keys[0])) {
+				return 0;
+			} else if (key > keys[keys.length - 1]) {
+				return keys.length;
+			}
+
+			final int classNum = partitionFunction.getClass(key);
+			int low = getLowerBound(classNum);
+			int high = classUpperBounds[classNum] + 1;
+			if (partitionFunction.isEqualityClass(classNum)) {
+				return low;
+			}
+
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (keys[mid] < key) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Returns the index of the first key which is greater than the <code>key</code>,
+		 * or {@link #size()} if no key is.  The keys in the range [<code>from</code>,
+		 * <code>to</code>] are at the indices [<code>lowerBound(from)</code>,
+		 * <code>upperBound(to)</code>).
+		 */
+		public int upperBound(long key) {
+			if ((keys.length == 0) || (key < keys[0])) {
+				return 0;
+			} else if (key >= keys[keys.length - 1]) {
+				return keys.length;
+			}
+
+			final int classNum = partitionFunction.getClass(key);
+			int low = getLowerBound(classNum);
+			int high = classUpperBounds[classNum] + 1;
+			if (partitionFunction.isEqualityClass(classNum)) {
+				return high;
+			}
+
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (keys[mid] <= key) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Returns the index of the <code>key</code>, or <code>-(insertion point) - 1</code>
+		 * if it is not in the index, as {@link java.util.Arrays#binarySearch(long[], long)} does.
+		 * If the key is repeated, the index of its first copy is returned.
+		 */
+		public int indexOf(long key) {
+			final int index = lowerBound(key);
+			return ((index < keys.length) && (keys[index] == key)) ? index : -index - 1;
+		}
+
+		private final long[] keys;
+		private final LongPartitionFunction partitionFunction;
+	}
+
+	/**
+	 * An index over sorted <code>double</code> keys, in the order of {@link Double#compare(double, double)}.
+	 */
+	public static final class OfDoubles extends LearnedIndex {
+
+		/**
+		 * @see OfLongs#OfLongs(long[], LongPartitionFunction)
+		 */
+		public OfDoubles(double[] sortedKeys, DoublePartitionFunction partitionFunction) {
+			super(getClassUpperBounds(sortedKeys, partitionFunction));
+			this.keys = sortedKeys;
+			this.partitionFunction = partitionFunction;
+		}
+
+		private static int[] getClassUpperBounds(double[] sortedKeys, DoublePartitionFunction partitionFunction) {
+			final int[] classCounts = new int[partitionFunction.getNumClasses()];
+			final int[] classes = new int[PartitionTarget.BATCH_SIZE];
+			int previousClass = 0;
+			for (int fromIndex = 0; fromIndex < sortedKeys.length; fromIndex += PartitionTarget.BATCH_SIZE) {
+				final int toIndex = Math.min(fromIndex + PartitionTarget.BATCH_SIZE, sortedKeys.length);
+				partitionFunction.getClasses(sortedKeys, fromIndex, toIndex, classes);
+				previousClass = countClasses(classes, toIndex - fromIndex, previousClass, classCounts, fromIndex);
+				for (int index = Math.max(fromIndex, 1); index < toIndex; ++index) {
+					if (Double.compare(sortedKeys[index - 1], sortedKeys[index]) > 0) {
+						throw new IllegalArgumentException("The keys are not sorted.  The key at index " + (index - 1) + " is greater than the one after it.");
+					}
+				}
+			}
+			return toClassUpperBounds(classCounts);
+		}
+
+		/**
+		 * @see OfLongs#lowerBound(long)
+		 */
+		public int lowerBound(double key) {
+			if ((keys.length == 0) || (Double.compare(key, keys[0]) <= 0)) {
+				return 0;
+			} else if (Double.compare(key, keys[keys.length - 1]) > 0) {
+				return keys.length;
+			}
+
+			final int classNum = partitionFunction.getClass(key);
+			int low = getLowerBound(classNum);
+			int high = classUpperBounds[classNum] + 1;
+			if (partitionFunction.isEqualityClass(classNum)) {
+				return low;
+			}
+
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (Double.compare(keys[mid], key) < 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * @see OfLongs#upperBound(long)
+		 */
+		public int upperBound(double key) {
+			if ((keys.length == 0) || (Double.compare(key, keys[0]) < 0)) {
+				return 0;
+			} else if (Double.compare(key, keys[keys.length - 1]) >= 0) {
+				return keys.length;
+			}
+
+			final int classNum = partitionFunction.getClass(key);
+			int low = getLowerBound(classNum);
+			int high = classUpperBounds[classNum] + 1;
+			if (partitionFunction.isEqualityClass(classNum)) {
+				return high;
+			}
+
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (Double.compare(keys[mid], key) <= 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * @see OfLongs#indexOf(long)
+		 */
+		public int indexOf(double key) {
+			final int index = lowerBound(key);
+			return ((index < keys.length) && (Double.compare(keys[index], key) == 0)) ? index : -index - 1;
+		}
+
+		private final double[] keys;
+		private final DoublePartitionFunction partitionFunction;
+	}
+
+	final int[] classUpperBounds;
+}
@@ -0,0 +1,261 @@
+package mpigott.sort;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * The {@link CdfPartitionFunction}, specialized for
+ * <code>int</code> and <code>long</code> keys.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public final class LongCdfPartitionFunction implements LongPartitionFunction {
+
+	/**
+	 * Generates a cumulative distribution function (CDF) for
+	 * <code>Math.ceil(input.length / cellSize)</code> classes.
+	 *
+	 * @param input       The population to retrieve samples from.
+	 * @param cellSize    The size of each cell.
+	 * @param alpha       <code>1 - alpha</code> is the confidence level that the sample CDF is within the <code>cdfDistance</code> of the population CDF.
+	 * @param cdfDistance The distance between the sample CDF and the population CDF, with a confidence level of <code>1 - alpha</code>.
+	 *
+	 * @see CdfPartitionFunction#CdfPartitionFunction(java.util.List, int, double, double)
+	 */
+	public LongCdfPartitionFunction(long[] input, int cellSize, double alpha, double cdfDistance) {
+		final int numCells = (int) Math.ceil(input.length / (double) cellSize);
+
+		long minValue = input[0];
+		long maxValue = input[0];
+
+		for (int index = 1; index < input.length; ++index) {
+			final long value = input[index];
+			if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		min = minValue;
+		model = new CdfModel((double) maxValue - (double) minValue, numCells);
+
+		final int randomSampleIndex = CdfPartitionFunction.getSampleStride(input.length, alpha, cdfDistance);
+		final long[] samples = new long[(input.length + randomSampleIndex - 1) / randomSampleIndex];
+		for (int sample = 0; sample < samples.length; ++sample) {
+			samples[sample] = input[sample * randomSampleIndex];
+		}
+
+		heavyHitters = fit(model, min, samples, samples.length);
+		equalityClasses = getEqualityClasses(model, min, heavyHitters);
+	}
+
+	/**
+	 * @see #LongCdfPartitionFunction(long[], int, double, double)
+	 */
+	public LongCdfPartitionFunction(int[] input, int cellSize, double alpha, double cdfDistance) {
+		final int numCells = (int) Math.ceil(input.length / (double) cellSize);
+
+		int minValue = input[0];
+		int maxValue = input[0];
+
+		for (int index = 1; index < input.length; ++index) {
+			final int value = input[index];
+			if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		min = minValue;
+		model = new CdfModel((double) maxValue - (double) minValue, numCells);
+
+		final int randomSampleIndex = CdfPartitionFunction.getSampleStride(input.length, alpha, cdfDistance);
+		final long[] samples = new long[(input.length + randomSampleIndex - 1) / randomSampleIndex];
+		for (int sample = 0; sample < samples.length; ++sample) {
+			samples[sample] = input[sample * randomSampleIndex];
+		}
+
+		heavyHitters = fit(model, min, samples, samples.length);
+		equalityClasses = getEqualityClasses(model, min, heavyHitters);
+	}
+
+	/**
+	 * Generates the CDF from the <code>long</code> keys the
+	 * <code>key</code> function extracts from each element.
+	 *
+	 * @see #LongCdfPartitionFunction(long[], int, double, double)
+	 */
+	public <T> LongCdfPartitionFunction(List<T> input, ToLongFunction<? super T> key, int cellSize, double alpha, double cdfDistance) {
+		final int numCells = (int) Math.ceil(input.size() / (double) cellSize);
+
+		long minValue = key.applyAsLong(input.get(0));
+		long maxValue = minValue;
+
+		for (int index = 1; index < input.size(); ++index) {
+			final long value = key.applyAsLong(input.get(index));
+			if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		min = minValue;
+		model = new CdfModel((double) maxValue - (double) minValue, numCells);
+
+		final int randomSampleIndex = CdfPartitionFunction.getSampleStride(input.size(), alpha, cdfDistance);
+		final long[] samples = new long[(input.size() + randomSampleIndex - 1) / randomSampleIndex];
+		for (int sample = 0; sample < samples.length; ++sample) {
+			samples[sample] = key.applyAsLong(input.get(sample * randomSampleIndex));
+		}
+
+		heavyHitters = fit(model, min, samples, samples.length);
+		equalityClasses = getEqualityClasses(model, min, heavyHitters);
+	}
+
+	/* Generates the CDF for numClasses classes from the first numSamples keys in samples,
+	 * which were taken from a population known to lie in [min, max].
+	 */
+	LongCdfPartitionFunction(long min, long max, long[] samples, int numSamples, int numClasses) {
+		this.min = min;
+		model = new CdfModel((double) max - (double) min, numClasses);
+
+		heavyHitters = fit(model, min, samples, numSamples);
+		equalityClasses = getEqualityClasses(model, min, heavyHitters);
+	}
+
+	/* Finds the heavy hitters among the first numSamples samples: the keys sampled at least
+	 * EqualityClasses.getMinHeavyHitterSamples() times.  The model is fitted to the rest of
+	 * the samples, so the classes around each heavy hitter are sized for the other keys.
+	 * Returns the heavy hitters, in increasing order.
+	 */
+	private static long[] fit(CdfModel model, long min, long[] samples, int numSamples) {
+		final long[] sorted = Arrays.copyOf(samples, numSamples);
+		Arrays.sort(sorted);
+
+		final int minHeavyHitterSamples = EqualityClasses.getMinHeavyHitterSamples(numSamples, model.getNumClasses());
+		final long[] heavyHitters = new long[numSamples / minHeavyHitterSamples];
+		int numHeavyHitters = 0;
+
+		int[] sampleCountsPerCell = new int[model.getNumClasses()];
+		int numModelSamples = 0;
+		for (int runStart = 0, runEnd = 0; runStart < numSamples; runStart = runEnd) {
+			while ((runEnd < numSamples) && (sorted[runEnd] == sorted[runStart])) {
+				++runEnd;
+			}
+
+			if (runEnd - runStart >= minHeavyHitterSamples) {
+				heavyHitters[numHeavyHitters++] = sorted[runStart];
+			} else {
+				sampleCountsPerCell[model.getCell((double) sorted[runStart] - (double) min)] += runEnd - runStart;
+				numModelSamples += runEnd - runStart;
+			}
+		}
+
+		model.fit(sampleCountsPerCell, numModelSamples);
+		return Arrays.copyOf(heavyHitters, numHeavyHitters);
+	}
+
+	private static EqualityClasses getEqualityClasses(CdfModel model, long min, long[] heavyHitters) {
+		if (heavyHitters.length == 0) {
+			return null;
+		}
+
+		final int[] heavyHitterModelClasses = new int[heavyHitters.length];
+		for (int heavyHitter = 0; heavyHitter < heavyHitters.length; ++heavyHitter) {
+			heavyHitterModelClasses[heavyHitter] = model.getClass((double) heavyHitters[heavyHitter] - (double) min);
+		}
+		return new EqualityClasses(model.getNumClasses(), heavyHitterModelClasses);
+	}
+
+	/* Moves the key in the model class past each of the model class's heavy hitters it is larger than. */
+	private int getClass(long value, int modelClass) {
+		final int lastHeavyHitter = equalityClasses.getLastHeavyHitter(modelClass);
+		int heavyHitter = equalityClasses.getFirstHeavyHitter(modelClass);
+		int classNum = equalityClasses.getFirstClass(modelClass);
+		for (; heavyHitter < lastHeavyHitter; ++heavyHitter) {
+			if (value < heavyHitters[heavyHitter]) {
+				break;
+			} else if (value == heavyHitters[heavyHitter]) {
+				return classNum + 1;
+			}
+			classNum += 2;
+		}
+		return classNum;
+	}
+
+	/**
+	 * Returns the class of the input <code>value</code>
+	 * based on the CDF function of the sample sizes.  A heavy hitter
+	 * (a key which made up a large share of the samples) is in an equality class
+	 * of its own.
+	 *
+	 * @see LongPartitionFunction#getClass(long)
+	 */
+	public int getClass(long value) {
+		final int modelClass = model.getClass((double) value - (double) min);
+		return (equalityClasses == null) ? modelClass : getClass(value, modelClass);
+	}
+
+	/**
+	 * @see LongPartitionFunction#getClasses(long[], int, int, int[])
+	 */
+	@Override
+	public void getClasses(long[] keys, int fromIndex, int toIndex, int[] classes) {
+		if (equalityClasses != null) {
+			LongPartitionFunction.super.getClasses(keys, fromIndex, toIndex, classes);
+			return;
+		}
+
+		final CdfModel model = this.model;
+		final double min = this.min;
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = model.getClass((double) keys[index] - min);
+		}
+	}
+
+	/**
+	 * @see LongPartitionFunction#getClasses(int[], int, int, int[])
+	 */
+	@Override
+	public void getClasses(int[] keys, int fromIndex, int toIndex, int[] classes) {
+		if (equalityClasses != null) {
+			LongPartitionFunction.super.getClasses(keys, fromIndex, toIndex, classes);
+			return;
+		}
+
+		final CdfModel model = this.model;
+		final double min = this.min;
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = model.getClass((double) keys[index] - min);
+		}
+	}
+
+	/**
+	 * The total number of classes that a key can be partitioned into.
+	 *
+	 * @see LongPartitionFunction#getNumClasses()
+	 */
+	public int getNumClasses() {
+		return (equalityClasses == null) ? model.getNumClasses() : equalityClasses.getNumClasses();
+	}
+
+	/**
+	 * Returns whether the class holds the copies of a single heavy hitter.
+	 *
+	 * @see LongPartitionFunction#isEqualityClass(int)
+	 */
+	@Override
+	public boolean isEqualityClass(int classNum) {
+		return (equalityClasses != null) && equalityClasses.isEqualityClass(classNum);
+	}
+
+	private final long min;
+	private final CdfModel model;
+	private final long[] heavyHitters;
+	private final EqualityClasses equalityClasses;
+}
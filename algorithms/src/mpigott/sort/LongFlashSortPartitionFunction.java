@@ -0,0 +1,168 @@
+package mpigott.sort;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * The {@link FlashSortPartitionFunction}, specialized for
+ * <code>int</code> and <code>long</code> keys.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public class LongFlashSortPartitionFunction implements LongPartitionFunction {
+
+	/**
+	 * The number of classes is an upper bound.  If the range between the global
+	 * minimum and maximum is larger than the number of classes, only (max - min + 1)
+	 * classes will be used.
+	 *
+	 * @param input               The input to generate the classes from.
+	 * @param numClassesRequested The maximum number of classes to sort the input into.
+	 */
+	public LongFlashSortPartitionFunction(long[] input, int numClassesRequested) {
+		long minValue = input[0];
+		long maxValue = input[0];
+
+		for (int index = 1; index < input.length; ++index) {
+			final long value = input[index];
+			if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		min = minValue;
+		range = (double) maxValue - (double) minValue;
+		numClasses = limitNumClasses(range, numClassesRequested);
+	}
+
+	/**
+	 * @see #LongFlashSortPartitionFunction(long[], int)
+	 */
+	public LongFlashSortPartitionFunction(int[] input, int numClassesRequested) {
+		int minValue = input[0];
+		int maxValue = input[0];
+
+		for (int index = 1; index < input.length; ++index) {
+			final int value = input[index];
+			if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		min = minValue;
+		range = (double) maxValue - (double) minValue;
+		numClasses = limitNumClasses(range, numClassesRequested);
+	}
+
+	/**
+	 * Generates the classes from the <code>long</code> keys of the records.
+	 *
+	 * @see #LongFlashSortPartitionFunction(long[], int)
+	 */
+	public LongFlashSortPartitionFunction(FixedWidthRecords input, int numClassesRequested) {
+		long minValue = input.getLongKey(0);
+		long maxValue = minValue;
+
+		for (int index = 1; index < input.size(); ++index) {
+			final long value = input.getLongKey(index);
+			if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		min = minValue;
+		range = (double) maxValue - (double) minValue;
+		numClasses = limitNumClasses(range, numClassesRequested);
+	}
+
+	/**
+	 * Generates the classes from the <code>long</code> keys the
+	 * <code>key</code> function extracts from each element.
+	 *
+	 * @see #LongFlashSortPartitionFunction(long[], int)
+	 */
+	public <T> LongFlashSortPartitionFunction(List<T> input, ToLongFunction<? super T> key, int numClassesRequested) {
+		long minValue = key.applyAsLong(input.get(0));
+		long maxValue = minValue;
+
+		for (int index = 1; index < input.size(); ++index) {
+			final long value = key.applyAsLong(input.get(index));
+			if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		min = minValue;
+		range = (double) maxValue - (double) minValue;
+		numClasses = limitNumClasses(range, numClassesRequested);
+	}
+
+	/* Generates the classes for keys known to lie in [min, max]. */
+	LongFlashSortPartitionFunction(long min, long max, int numClassesRequested) {
+		this.min = min;
+		this.range = (double) max - (double) min;
+		this.numClasses = limitNumClasses(range, numClassesRequested);
+	}
+
+	private static double limitNumClasses(double range, int numClassesRequested) {
+		if (range < numClassesRequested) {
+			return Math.floor(range + 1.0);
+		}
+		return numClassesRequested;
+	}
+
+	/**
+	 * @see FlashSortPartitionFunction#getClass(Element)
+	 */
+	public int getClass(long value) {
+		return FlashSortPartitionFunction.classify((double) value - (double) min, range, numClasses);
+	}
+
+	/**
+	 * @see LongPartitionFunction#getClasses(long[], int, int, int[])
+	 */
+	@Override
+	public void getClasses(long[] keys, int fromIndex, int toIndex, int[] classes) {
+		final double numClasses = this.numClasses;
+		final double min = this.min;
+		final double range = this.range;
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = FlashSortPartitionFunction.classify((double) keys[index] - min, range, numClasses);
+		}
+	}
+
+	/**
+	 * @see LongPartitionFunction#getClasses(int[], int, int, int[])
+	 */
+	@Override
+	public void getClasses(int[] keys, int fromIndex, int toIndex, int[] classes) {
+		final double numClasses = this.numClasses;
+		final double min = this.min;
+		final double range = this.range;
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = FlashSortPartitionFunction.classify((double) keys[index] - min, range, numClasses);
+		}
+	}
+
+	/**
+	 * The total number of classes that a key can be partitioned into.
+	 *
+	 * @see LongPartitionFunction#getNumClasses()
+	 */
+	public int getNumClasses() {
+		return (int) numClasses;
+	}
+
+	private final double numClasses;
+	private final long min;
+	private final double range;
+}
@@ -0,0 +1,140 @@
+package mpigott.sort;
+
+/**
+ * An exact partition function for <code>int</code> and <code>long</code> keys.
+ * Like the {@link LongFlashSortPartitionFunction}, it divides the range between
+ * the minimum and maximum keys into equal-width classes, but the width of each
+ * class is a power of two, so a key is classified with one subtraction and one
+ * shift:
+ *
+ *     class = (key - min) >>> shift
+ *
+ * There is no floating-point math, so keys beyond 2^53 (which a
+ * <code>double</code> cannot tell apart) are still classified exactly, and
+ * there is no division or rounding to correct for.  The subtraction is
+ * treated as unsigned, so any range of <code>long</code>s is supported.
+ *
+ * Because the class width is a power of two, the number of classes is
+ * between half of and the full number of classes requested (rounded down
+ * to a power of two), depending on where the range falls.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public class LongShiftPartitionFunction implements LongPartitionFunction {
+
+	/**
+	 * The number of classes is an upper bound.  If the range between the global
+	 * minimum and maximum is smaller than the number of classes, only (max - min + 1)
+	 * classes will be used.
+	 *
+	 * @param input               The input to generate the classes from.
+	 * @param numClassesRequested The maximum number of classes to sort the input into.
+	 *
+	 * @throws IllegalArgumentException If fewer than two classes are requested.
+	 */
+	public LongShiftPartitionFunction(long[] input, int numClassesRequested) {
+		long minValue = input[0];
+		long maxValue = input[0];
+
+		for (int index = 1; index < input.length; ++index) {
+			final long value = input[index];
+			if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		min = minValue;
+		shift = getShift(maxValue - minValue, numClassesRequested);
+		numClasses = (int) ((maxValue - minValue) >>> shift) + 1;
+	}
+
+	/**
+	 * @see #LongShiftPartitionFunction(long[], int)
+	 */
+	public LongShiftPartitionFunction(int[] input, int numClassesRequested) {
+		int minValue = input[0];
+		int maxValue = input[0];
+
+		for (int index = 1; index < input.length; ++index) {
+			final int value = input[index];
+			if (value < minValue) {
+				minValue = value;
+			} else if (value > maxValue) {
+				maxValue = value;
+			}
+		}
+
+		min = minValue;
+		shift = getShift((long) maxValue - (long) minValue, numClassesRequested);
+		numClasses = (int) (((long) maxValue - (long) minValue) >>> shift) + 1;
+	}
+
+	/* Generates the classes for keys known to lie in [min, max]. */
+	LongShiftPartitionFunction(long min, long max, int numClassesRequested) {
+		this.min = min;
+		this.shift = getShift(max - min, numClassesRequested);
+		this.numClasses = (int) ((max - min) >>> shift) + 1;
+	}
+
+	/* Returns the smallest shift that maps the (unsigned) range into at most
+	 * numClassesRequested classes, rounded down to a power of two.  A range of
+	 * 2^63 or more needs all 64 bits, so one class would need a shift of 64,
+	 * which Java masks to 0; at least two classes keep the shift within 63.
+	 */
+	private static int getShift(long range, int numClassesRequested) {
+		if (numClassesRequested < 2) {
+			throw new IllegalArgumentException("At least two classes must be requested, not " + numClassesRequested + ".");
+		}
+
+		final int rangeBits = Long.SIZE - Long.numberOfLeadingZeros(range);
+		final int classBits = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(numClassesRequested);
+		return Math.max(0, rangeBits - classBits);
+	}
+
+	/**
+	 * @see LongPartitionFunction#getClass(long)
+	 */
+	public int getClass(long value) {
+		return (int) ((value - min) >>> shift);
+	}
+
+	/**
+	 * @see LongPartitionFunction#getClasses(long[], int, int, int[])
+	 */
+	@Override
+	public void getClasses(long[] keys, int fromIndex, int toIndex, int[] classes) {
+		final long min = this.min;
+		final int shift = this.shift;
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = (int) ((keys[index] - min) >>> shift);
+		}
+	}
+
+	/**
+	 * @see LongPartitionFunction#getClasses(int[], int, int, int[])
+	 */
+	@Override
+	public void getClasses(int[] keys, int fromIndex, int toIndex, int[] classes) {
+		final long min = this.min;
+		final int shift = this.shift;
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = (int) ((keys[index] - min) >>> shift);
+		}
+	}
+
+	/**
+	 * The total number of classes that a key can be partitioned into.
+	 *
+	 * @see LongPartitionFunction#getNumClasses()
+	 */
+	public int getNumClasses() {
+		return numClasses;
+	}
+
+	private final long min;
+	private final int shift;
+	private final int numClasses;
+}
@@ -0,0 +1,228 @@
+package mpigott.sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The multi-threaded counterpart of the {@link CyclePartitioner}'s cycle loop.
+ * This is a parallel in-place partitioner in the style of PARADIS
+ * ( http://www.vldb.org/pvldb/vol8/p1518-cho.pdf ), which is itself a parallel
+ * in-place radix sort.  It runs in three steps:
+ *
+ * 1. Each thread counts the classes of a contiguous stripe of the input.  The
+ *    counts are merged, and the exact bounds of every class are known up front.
+ *
+ * 2. Each class's range is split into one block per thread.  Every thread owns
+ *    one block of every class, and performs the cycle-leader permutation using
+ *    only the blocks it owns, so no two threads ever touch the same position.
+ *    An element whose class's block (for this thread) is already full is left
+ *    where it is, to be placed in a later round.
+ *
+ * 3. Each class's range is cleaned up: the elements that belong to the class are
+ *    moved to its front, and the elements left behind in step 2 are moved to its
+ *    back.  Only the back of each class is permuted again in the next round.
+ *
+ * Steps 2 and 3 repeat until every element has been placed.  When a round places
+ * too few elements to be worth another parallel round, the remaining elements are
+ * placed by a single thread, which (owning every block) never leaves any behind.
+ *
+ * The partition function will be called concurrently, and must be thread-safe.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+final class ParallelPartitioner {
+
+	/**
+	 * Inputs smaller than this are partitioned by the serial {@link CyclePartitioner}.
+	 * It counts the exact class bounds first too, so the class bounds never depend
+	 * on the pool's size, and skewed classes cannot cascade.
+	 */
+	static final int MIN_PARALLEL_SIZE = 1 << 16;
+
+	private ParallelPartitioner() {
+	}
+
+	/**
+	 * Partitions the <code>target</code> in place, using all of the <code>pool</code>'s threads.
+	 *
+	 * @return The upper bounds of each class, in increasing order, or
+	 *         <code>null</code> if either the input has fewer than 2
+	 *         elements, or if the partition function requests fewer
+	 *         than two classes.
+	 */
+	static int[] partition(final PartitionTarget target, ForkJoinPool pool) {
+		final int size = target.size();
+		final int numClasses = target.getNumClasses();
+		final int numThreads = pool.getParallelism();
+
+		if ((size < MIN_PARALLEL_SIZE) || (numThreads < 2)) {
+			return CyclePartitioner.partition(target, new PartitionOptions().setClassBounds(PartitionOptions.ClassBounds.EXACT));
+		}
+		if (numClasses < 2) {
+			return null;
+		}
+
+		// Step 1: Count the classes, and define where each class begins and ends.
+		final int[][] stripeCounts = new int[numThreads][numClasses];
+		final int stripeSize = (size + numThreads - 1) / numThreads;
+		List<RecursiveAction> countTasks = new ArrayList<RecursiveAction>(numThreads);
+		for (int thread = 0; thread < numThreads; ++thread) {
+			final int[] counts = stripeCounts[thread];
+			final int fromIndex = Math.min(size, thread * stripeSize);
+			final int toIndex = Math.min(size, fromIndex + stripeSize);
+			countTasks.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					final int[] batch = new int[PartitionTarget.BATCH_SIZE];
+					for (int batchStart = fromIndex; batchStart < toIndex; batchStart += PartitionTarget.BATCH_SIZE) {
+						final int batchSize = Math.min(PartitionTarget.BATCH_SIZE, toIndex - batchStart);
+						target.getClasses(batchStart, batchStart + batchSize, batch);
+						for (int index = 0; index < batchSize; ++index) {
+							++counts[batch[index]];
+						}
+					}
+				}
+			});
+		}
+		invokeAll(pool, countTasks);
+
+		final int[] classUpperBounds = new int[numClasses];
+		final int[] placedUpTo = new int[numClasses]; // The start of the unplaced elements of each class.
+		int classStart = 0;
+		for (int classNum = 0; classNum < numClasses; ++classNum) {
+			placedUpTo[classNum] = classStart;
+			for (int thread = 0; thread < numThreads; ++thread) {
+				classStart += stripeCounts[thread][classNum];
+			}
+			classUpperBounds[classNum] = classStart - 1;
+		}
+
+		// Steps 2 and 3: Permute and clean up until every element has been placed.
+		int remaining = size;
+		boolean serialRound = false;
+		while (remaining > 0) {
+			final int roundThreads = serialRound ? 1 : numThreads;
+
+			final int[][] blockHeads = new int[roundThreads][numClasses];
+			final int[][] blockTails = new int[roundThreads][numClasses];
+			for (int classNum = 0; classNum < numClasses; ++classNum) {
+				final int blockSize = (classUpperBounds[classNum] + 1 - placedUpTo[classNum]) / roundThreads;
+				for (int thread = 0; thread < roundThreads; ++thread) {
+					blockHeads[thread][classNum] = placedUpTo[classNum] + thread * blockSize;
+					blockTails[thread][classNum] = (thread == roundThreads - 1) ? classUpperBounds[classNum] + 1 : blockHeads[thread][classNum] + blockSize;
+				}
+			}
+
+			if (roundThreads == 1) {
+				permute(target, blockHeads[0], blockTails[0]);
+				break;
+			}
+
+			List<RecursiveAction> permuteTasks = new ArrayList<RecursiveAction>(roundThreads);
+			for (int thread = 0; thread < roundThreads; ++thread) {
+				final int[] heads = blockHeads[thread];
+				final int[] tails = blockTails[thread];
+				permuteTasks.add(new RecursiveAction() {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected void compute() {
+						permute(target, heads, tails);
+					}
+				});
+			}
+			invokeAll(pool, permuteTasks);
+
+			final int classesPerTask = (numClasses + numThreads - 1) / numThreads;
+			List<RecursiveAction> cleanUpTasks = new ArrayList<RecursiveAction>(numThreads);
+			for (int thread = 0; thread < numThreads; ++thread) {
+				final int firstClass = Math.min(numClasses, thread * classesPerTask);
+				final int lastClass = Math.min(numClasses, firstClass + classesPerTask);
+				cleanUpTasks.add(new RecursiveAction() {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected void compute() {
+						for (int classNum = firstClass; classNum < lastClass; ++classNum) {
+							placedUpTo[classNum] = cleanUp(target, classNum, placedUpTo[classNum], classUpperBounds[classNum]);
+						}
+					}
+				});
+			}
+			invokeAll(pool, cleanUpTasks);
+
+			final int previouslyRemaining = remaining;
+			remaining = 0;
+			for (int classNum = 0; classNum < numClasses; ++classNum) {
+				remaining += classUpperBounds[classNum] + 1 - placedUpTo[classNum];
+			}
+
+			// If too few elements are left, or the round placed fewer than half of them, finish with one thread.
+			serialRound = (remaining < MIN_PARALLEL_SIZE) || (remaining > previouslyRemaining / 2);
+		}
+
+		return classUpperBounds;
+	}
+
+	/* The cycle-leader permutation, restricted to the blocks [heads[c], tails[c]) of each class c.
+	 * The element in hand is kept at the head of the block being scanned.  On return, each
+	 * block holds the elements placed into it, followed by the elements that could not be placed.
+	 */
+	static void permute(PartitionTarget target, int[] heads, int[] tails) {
+		for (int classNum = 0; classNum < heads.length; ++classNum) {
+			for (int scan = heads[classNum]; scan < tails[classNum]; ++scan) {
+				int classification = target.getClass(scan);
+
+				while ((classification != classNum) && (heads[classification] < tails[classification])) {
+					target.swap(scan, heads[classification]);
+					++heads[classification];
+					classification = target.getClass(scan);
+				}
+
+				if (classification == classNum) {
+					target.swap(scan, heads[classNum]);
+					++heads[classNum];
+				}
+			}
+		}
+	}
+
+	/* Moves the elements of the class to the front of [fromIndex, upperBound], and returns the
+	 * index of the first element that does not belong to the class.
+	 */
+	private static int cleanUp(PartitionTarget target, int classNum, int fromIndex, int upperBound) {
+		int lower = fromIndex;
+		int upper = upperBound;
+		while (true) {
+			while ((lower <= upper) && (target.getClass(lower) == classNum)) {
+				++lower;
+			}
+			while ((lower < upper) && (target.getClass(upper) != classNum)) {
+				--upper;
+			}
+			if (lower >= upper) {
+				return lower;
+			}
+			target.swap(lower, upper);
+			++lower;
+			--upper;
+		}
+	}
+
+	private static void invokeAll(ForkJoinPool pool, final List<RecursiveAction> tasks) {
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				ForkJoinTask.invokeAll(tasks);
+			}
+		});
+	}
+}
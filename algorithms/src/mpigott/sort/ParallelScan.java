@@ -0,0 +1,153 @@
+package mpigott.sort;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The passes over the input that the partition functions make to build their
+ * models, split into chunks and run on a {@link ForkJoinPool}.  Each chunk is
+ * scanned independently, and the per-chunk results are merged as the tasks
+ * are joined, so the final model is the same one the serial pass builds.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+final class ParallelScan {
+
+	/**
+	 * The number of elements below which a chunk is scanned without splitting it further.
+	 */
+	static final int CHUNK_SIZE = 1 << 16;
+
+	private ParallelScan() {
+	}
+
+	/**
+	 * The smallest and largest elements in the input.
+	 */
+	static final class Range<T> {
+		Range(T min, T max) {
+			this.min = min;
+			this.max = max;
+		}
+
+		final T min;
+		final T max;
+	}
+
+	/**
+	 * Finds the smallest and largest elements in the <code>input</code>.
+	 *
+	 * @throws IllegalArgumentException If any of the elements are <code>null</code>.
+	 */
+	static <T extends Element<U>, U> Range<T> findRange(List<T> input, ForkJoinPool pool) {
+		return pool.invoke(new RangeTask<T, U>(input, 0, input.size()));
+	}
+
+	/**
+	 * Takes every <code>stride</code>th element of the <code>input</code> as a
+	 * sample, and counts how many of the samples fall in each cell of the
+	 * <code>model</code>.
+	 *
+	 * @return The number of samples in each cell.
+	 */
+	static <T extends Element<U>, U> int[] countSamples(List<T> input, int stride, T min, CdfModel model, ForkJoinPool pool) {
+		final int numSamples = (input.size() + stride - 1) / stride;
+		final int[] sampleCells = new int[numSamples];
+
+		pool.invoke(new SampleTask<T, U>(input, stride, min, model, sampleCells, 0, numSamples));
+
+		// Merging is a single pass over the samples, not over the input.
+		final int[] sampleCountsPerCell = new int[model.getNumClasses()];
+		for (int cell : sampleCells) {
+			++sampleCountsPerCell[cell];
+		}
+		return sampleCountsPerCell;
+	}
+
+	private static final class RangeTask<T extends Element<U>, U> extends RecursiveTask<Range<T>> {
+		private static final long serialVersionUID = 1L;
+
+		RangeTask(List<T> input, int fromIndex, int toIndex) {
+			this.input = input;
+			this.fromIndex = fromIndex;
+			this.toIndex = toIndex;
+		}
+
+		@Override
+		protected Range<T> compute() {
+			if (toIndex - fromIndex <= CHUNK_SIZE) {
+				T min = input.get(fromIndex);
+				T max = min;
+
+				for (int index = fromIndex; index < toIndex; ++index) {
+					T value = input.get(index);
+
+					if (value == null) {
+						throw new IllegalArgumentException("Input list cannot contain null elements.  The element at index " + index + " is null.");
+					}
+
+					if (value.compareTo(min) < 0) {
+						min = value;
+					} else if (value.compareTo(max) > 0) {
+						max = value;
+					}
+				}
+
+				return new Range<T>(min, max);
+			}
+
+			final int midIndex = (fromIndex + toIndex) >>> 1;
+			RangeTask<T, U> lower = new RangeTask<T, U>(input, fromIndex, midIndex);
+			lower.fork();
+			final Range<T> upperRange = new RangeTask<T, U>(input, midIndex, toIndex).compute();
+			final Range<T> lowerRange = lower.join();
+
+			return new Range<T>(
+					(upperRange.min.compareTo(lowerRange.min) < 0) ? upperRange.min : lowerRange.min,
+					(upperRange.max.compareTo(lowerRange.max) > 0) ? upperRange.max : lowerRange.max);
+		}
+
+		private final List<T> input;
+		private final int fromIndex;
+		private final int toIndex;
+	}
+
+	private static final class SampleTask<T extends Element<U>, U> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		SampleTask(List<T> input, int stride, T min, CdfModel model, int[] sampleCells, int fromSample, int toSample) {
+			this.input = input;
+			this.stride = stride;
+			this.min = min;
+			this.model = model;
+			this.sampleCells = sampleCells;
+			this.fromSample = fromSample;
+			this.toSample = toSample;
+		}
+
+		@Override
+		protected void compute() {
+			if (toSample - fromSample <= CHUNK_SIZE / 16) {
+				for (int sample = fromSample; sample < toSample; ++sample) {
+					sampleCells[sample] = model.getCell(input.get(sample * stride).distance(min));
+				}
+				return;
+			}
+
+			final int midSample = (fromSample + toSample) >>> 1;
+			invokeAll(new SampleTask<T, U>(input, stride, min, model, sampleCells, fromSample, midSample),
+			          new SampleTask<T, U>(input, stride, min, model, sampleCells, midSample, toSample));
+		}
+
+		private final List<T> input;
+		private final int stride;
+		private final T min;
+		private final CdfModel model;
+		private final int[] sampleCells;
+		private final int fromSample;
+		private final int toSample;
+	}
+}
@@ -1,5 +1,7 @@
 package mpigott.sort;
 
+import java.util.List;
+
 /**
  * Represents a partition function for use with the {@link CyclePartitioner}.
  *
@@ -21,4 +23,37 @@ public interface PartitionFunction<T extends Element<U>, U> {
 	 *         the range [0, {@link #getNumClasses()}).
 	 */
 	public int getClass(T value);
+
+	/**
+	 * Classifies the elements of the <code>input</code> from <code>fromIndex</code>
+	 * (inclusive) to <code>toIndex</code> (exclusive), writing the class of
+	 * <code>input.get(fromIndex + i)</code> to <code>classes[i]</code>.  The
+	 * classes must be the same ones {@link #getClass(Element)} returns.
+	 *
+	 * Classifying a block of elements at a time costs one call through the
+	 * interface per block rather than one per element, and implementations
+	 * override this with a loop over their own fields.
+	 *
+	 * @param input     The elements to classify.
+	 * @param fromIndex The index of the first element to classify.
+	 * @param toIndex   The index after the last element to classify.
+	 * @param classes   Where to write the classes.
+	 */
+	public default void getClasses(List<T> input, int fromIndex, int toIndex, int[] classes) {
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = getClass(input.get(index));
+		}
+	}
+
+	/**
+	 * Returns whether every element in the class is equal, so that the class is
+	 * already sorted once the input is partitioned, and does not need to be
+	 * sorted again.  Partition functions which give heavily-repeated elements
+	 * a class of their own override this; by default, no class is.
+	 *
+	 * @param classNum The class number, in the range [0, {@link #getNumClasses()}).
+	 */
+	public default boolean isEqualityClass(int classNum) {
+		return false;
+	}
 }
@@ -0,0 +1,206 @@
+package mpigott.sort;
+
+/**
+ * Optional settings for the {@link CyclePartitioner}.  The default
+ * options partition exactly as the partitioner does without them.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public class PartitionOptions {
+
+	/**
+	 * How the partitioner decides where each class begins and ends.
+	 */
+	public enum ClassBounds {
+		/**
+		 * Starts with equally-sized classes, and expands and shrinks them as elements
+		 * are moved.  This skips a pass over the input, but on skewed input the classes
+		 * cascade into their neighbors, and in the worst case would take <code>O(N^2)</code>
+		 * moves.  The {@link PartitionOptions#setCascadeBudget(double) cascade budget} switches
+		 * to exact bounds before then.
+		 */
+		ESTIMATED,
+
+		/**
+		 * Classifies every element in a counting pass before any are moved, and sets
+		 * each class's bounds to exactly fit its elements.  No class ever needs to
+		 * expand, so at most <code>N</code> moves are made, whatever the distribution.
+		 */
+		EXACT,
+
+		/**
+		 * Classifies a sample of the input, and counts exactly if the sample's classes
+		 * are far from equally sized.  When the classes are cached, the counting pass
+		 * reads the cache, so the bounds are always counted exactly.
+		 */
+		AUTOMATIC
+	}
+
+	/**
+	 * The default cascade budget: the moves and neighbor shrinks allowed per element
+	 * with estimated class bounds.  Partitioning well-fitted input takes about two.
+	 */
+	public static final double DEFAULT_CASCADE_BUDGET = 4.0;
+
+	/**
+	 * Creates the default options.
+	 */
+	public PartitionOptions() {
+		cacheClasses = false;
+		stable = false;
+		classBounds = ClassBounds.ESTIMATED;
+		cascadeBudget = DEFAULT_CASCADE_BUDGET;
+		statistics = null;
+	}
+
+	/**
+	 * Whether every element is classified once, up front, instead of each
+	 * time the partitioner looks at it.
+	 *
+	 * @see #setCacheClasses(boolean)
+	 */
+	public boolean isCacheClasses() {
+		return cacheClasses;
+	}
+
+	/**
+	 * Classifies every element once before partitioning, and stores its class in
+	 * an array that is permuted along with the input.  The partition function is
+	 * then called exactly once per element, instead of once when searching for a
+	 * cycle leader and again when the element is moved.  This is worthwhile when
+	 * classification is expensive (as it is for the {@link CdfPartitionFunction}),
+	 * at a cost of one byte per element for up to 256 classes, two bytes for up
+	 * to 65,536 classes, and four bytes beyond that.
+	 *
+	 * @param cacheClasses Whether to classify every element only once.
+	 * @return These options.
+	 */
+	public PartitionOptions setCacheClasses(boolean cacheClasses) {
+		this.cacheClasses = cacheClasses;
+		return this;
+	}
+
+	/**
+	 * Whether the input is partitioned out of place, keeping the elements of each class in their original order.
+	 *
+	 * @see #setStable(boolean)
+	 */
+	public boolean isStable() {
+		return stable;
+	}
+
+	/**
+	 * Partitions out of place, instead of with the in-place cycle leader permutation.
+	 * Every element is classified once, the classes are counted (a histogram), the
+	 * counts are summed into the first position of each class, and then every element
+	 * is copied, in input order, to the next free position of its class in a buffer
+	 * as large as the input, which is copied back over the input.
+	 *
+	 * The elements of each class stay in the order they were in, so the partition is
+	 * stable, and sorting by one key after another is possible.  Every element is
+	 * read and written sequentially, rather than following cycles of random writes,
+	 * which is usually faster on large inputs.  The cost is the buffer, and an
+	 * <code>int</code> per element for the classes.  The class bounds are always
+	 * exact, and the class cache and class bounds settings are ignored.
+	 *
+	 * @param stable Whether to partition out of place, stably.
+	 * @return These options.
+	 */
+	public PartitionOptions setStable(boolean stable) {
+		this.stable = stable;
+		return this;
+	}
+
+	/**
+	 * How the bounds of each class are determined.
+	 *
+	 * @see #setClassBounds(ClassBounds)
+	 */
+	public ClassBounds getClassBounds() {
+		return classBounds;
+	}
+
+	/**
+	 * Sets how the bounds of each class are determined.  The default
+	 * is {@link ClassBounds#ESTIMATED}.
+	 *
+	 * @param classBounds How the bounds of each class are determined.
+	 * @return These options.
+	 */
+	public PartitionOptions setClassBounds(ClassBounds classBounds) {
+		if (classBounds == null) {
+			throw new IllegalArgumentException("The class bounds strategy cannot be null.");
+		}
+		this.classBounds = classBounds;
+		return this;
+	}
+
+	/**
+	 * The moves and neighbor shrinks allowed per element before estimated class bounds are abandoned.
+	 *
+	 * @see #setCascadeBudget(double)
+	 */
+	public double getCascadeBudget() {
+		return cascadeBudget;
+	}
+
+	/**
+	 * Limits the work the partitioner spends on estimated class bounds.  When a
+	 * full class expands into its neighbors, the expansion can cascade through
+	 * many of them, and every element it evicts has to be moved again, so on
+	 * pathological input the estimated bounds take <code>O(N^2)</code> moves.
+	 * The partitioner counts every move and every neighbor shrunk, and once the
+	 * total exceeds <code>cascadeBudget * N</code>, it stops, counts the exact
+	 * bounds of every class in one pass, and finishes with those.  The elements
+	 * are only ever swapped, so nothing needs to be undone, and with exact bounds
+	 * at most <code>N</code> more moves are made.  No input can then cost more
+	 * than <code>O(cascadeBudget * N)</code>.
+	 *
+	 * The budget only applies to {@link ClassBounds#ESTIMATED} bounds (including
+	 * when {@link ClassBounds#AUTOMATIC} chooses them).  The default is
+	 * {@link #DEFAULT_CASCADE_BUDGET}, and <code>Double.POSITIVE_INFINITY</code>
+	 * never gives up on the estimated bounds.
+	 *
+	 * @param cascadeBudget The moves and neighbor shrinks allowed per element.
+	 * @return These options.
+	 *
+	 * @throws IllegalArgumentException If the budget is negative or NaN.
+	 */
+	public PartitionOptions setCascadeBudget(double cascadeBudget) {
+		if (!(cascadeBudget >= 0.0)) {
+			throw new IllegalArgumentException("The cascade budget must not be negative, not " + cascadeBudget + ".");
+		}
+		this.cascadeBudget = cascadeBudget;
+		return this;
+	}
+
+	/**
+	 * Where the partitioner records its statistics, or <code>null</code>.
+	 *
+	 * @see #setStatistics(PartitionStatistics)
+	 */
+	public PartitionStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Has the partitioner record how many elements it moved, how many cycles it
+	 * followed, how often classes expanded into their neighbors, and how large
+	 * the resulting classes are.  The default is <code>null</code>, which
+	 * records nothing.
+	 *
+	 * @param statistics Where to record the statistics, or <code>null</code>.
+	 * @return These options.
+	 */
+	public PartitionOptions setStatistics(PartitionStatistics statistics) {
+		this.statistics = statistics;
+		return this;
+	}
+
+	private boolean cacheClasses;
+	private boolean stable;
+	private ClassBounds classBounds;
+	private double cascadeBudget;
+	private PartitionStatistics statistics;
+}
@@ -0,0 +1,156 @@
+package mpigott.sort;
+
+/**
+ * Counters describing how a call to the {@link CyclePartitioner} went: how many
+ * elements it moved, how many cycles it followed, how often a full class had to
+ * expand into its neighbors (and how far the expansion cascaded), and how evenly
+ * the elements were spread over the classes.
+ *
+ * Pass an instance in the {@link PartitionOptions} to have it filled in.  The
+ * partitioner always keeps these counts, as a handful of integer increments, but
+ * only publishes them when asked.  Each partition overwrites the previous counts.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public class PartitionStatistics {
+
+	/**
+	 * The number of times an element was moved into a new position.
+	 */
+	public long getMoves() {
+		return moves;
+	}
+
+	/**
+	 * The number of cycle leaders found, which is the number of cycles followed.
+	 */
+	public long getCycles() {
+		return cycles;
+	}
+
+	/**
+	 * The number of times an element's class was full, and had to expand into a neighbor.
+	 */
+	public long getExpansions() {
+		return expansions;
+	}
+
+	/**
+	 * The total number of neighboring classes shrunk when expanding full classes.
+	 * When an expansion cascades, each neighbor it passes through is counted.
+	 */
+	public long getNeighborsShrunk() {
+		return neighborsShrunk;
+	}
+
+	/**
+	 * The most neighboring classes shrunk by a single expansion.
+	 */
+	public int getLongestCascade() {
+		return longestCascade;
+	}
+
+	/**
+	 * Whether the classes cascaded into their neighbors so often that the partitioner
+	 * ran out of its cascade budget, and started over with exactly-counted class bounds.
+	 * The other counts include the work done before it started over.
+	 *
+	 * @see PartitionOptions#setCascadeBudget(double)
+	 */
+	public boolean isReplanned() {
+		return replanned;
+	}
+
+	/**
+	 * The number of elements in each class, or <code>null</code>
+	 * if the input was not partitioned.
+	 */
+	public int[] getClassSizes() {
+		return classSizes;
+	}
+
+	/**
+	 * The number of elements in the smallest class.
+	 */
+	public int getMinClassSize() {
+		int min = 0;
+		if (classSizes != null) {
+			min = Integer.MAX_VALUE;
+			for (int size : classSizes) {
+				min = Math.min(min, size);
+			}
+		}
+		return min;
+	}
+
+	/**
+	 * The number of elements in the largest class.
+	 */
+	public int getMaxClassSize() {
+		int max = 0;
+		if (classSizes != null) {
+			for (int size : classSizes) {
+				max = Math.max(max, size);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * The standard deviation of the number of elements in each class.
+	 */
+	public double getClassSizeStandardDeviation() {
+		if ((classSizes == null) || (classSizes.length < 2)) {
+			return 0.0;
+		}
+
+		double sum = 0.0;
+		for (int size : classSizes) {
+			sum += size;
+		}
+		final double mean = sum / classSizes.length;
+
+		double sumOfSquares = 0.0;
+		for (int size : classSizes) {
+			sumOfSquares += (size - mean) * (size - mean);
+		}
+		return Math.sqrt(sumOfSquares / (classSizes.length - 1));
+	}
+
+	public String toString() {
+		return "moves=" + moves + ", cycles=" + cycles + ", expansions=" + expansions
+				+ ", neighborsShrunk=" + neighborsShrunk + ", longestCascade=" + longestCascade + ", replanned=" + replanned
+				+ ", classSizes=[min=" + getMinClassSize() + ", max=" + getMaxClassSize()
+				+ ", stdDev=" + getClassSizeStandardDeviation() + "]";
+	}
+
+	/* Records the counts from a partition, and the sizes of the resulting classes. */
+	void record(long moves, long cycles, long expansions, long neighborsShrunk, int longestCascade, boolean replanned, int[] classUpperBounds) {
+		this.moves = moves;
+		this.cycles = cycles;
+		this.expansions = expansions;
+		this.neighborsShrunk = neighborsShrunk;
+		this.longestCascade = longestCascade;
+		this.replanned = replanned;
+
+		if (classUpperBounds == null) {
+			classSizes = null;
+		} else {
+			classSizes = new int[classUpperBounds.length];
+			int lowerBound = 0;
+			for (int classNum = 0; classNum < classUpperBounds.length; ++classNum) {
+				classSizes[classNum] = classUpperBounds[classNum] - lowerBound + 1;
+				lowerBound = classUpperBounds[classNum] + 1;
+			}
+		}
+	}
+
+	private long moves;
+	private long cycles;
+	private long expansions;
+	private long neighborsShrunk;
+	private int longestCascade;
+	private boolean replanned;
+	private int[] classSizes;
+}
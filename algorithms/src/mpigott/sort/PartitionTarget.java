@@ -0,0 +1,569 @@
+package mpigott.sort;
+
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Adapts a concrete input (a <code>List</code> of elements, a <code>List</code>
+ * of objects and a key extractor, an array of primitives, {@link FixedWidthRecords},
+ * or an index of row ids and a key column)
+ * and its partition function to the {@link CyclePartitioner}.
+ *
+ * The partitioner only needs to classify the element at a position and to
+ * swap two positions.  The element the cycle is carrying is always kept in
+ * the cycle leader's position, so no element is ever held outside of the
+ * input, and no per-element allocation is needed for primitive input.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+abstract class PartitionTarget {
+
+	/**
+	 * The number of elements to partition.
+	 */
+	abstract int size();
+
+	/**
+	 * The total number of classes that an element can be partitioned into.
+	 */
+	abstract int getNumClasses();
+
+	/**
+	 * Classifies the element currently at <code>index</code>.
+	 */
+	abstract int getClass(int index);
+
+	/**
+	 * Swaps the elements at the two positions.
+	 */
+	abstract void swap(int first, int second);
+
+	/**
+	 * The number of elements worth classifying at a time with {@link #getClasses(int, int, int[])}.
+	 */
+	static final int BATCH_SIZE = 1024;
+
+	/**
+	 * Classifies the elements from <code>fromIndex</code> (inclusive) to
+	 * <code>toIndex</code> (exclusive), writing the class of the element at
+	 * <code>fromIndex + i</code> to <code>classes[i]</code>.  The primitive
+	 * targets pass the whole block to their partition function at once.
+	 */
+	void getClasses(int fromIndex, int toIndex, int[] classes) {
+		for (int index = fromIndex; index < toIndex; ++index) {
+			classes[index - fromIndex] = getClass(index);
+		}
+	}
+
+	/**
+	 * Moves the element at <code>fromIndex + i</code> to <code>fromIndex + destinations[i]</code>,
+	 * for every element from <code>fromIndex</code> (inclusive) to <code>toIndex</code> (exclusive).
+	 * The destinations must be a permutation of <code>[0, toIndex - fromIndex)</code>.
+	 *
+	 * The targets copy the elements into a buffer, in input order, and copy the buffer back.
+	 * This default follows each cycle of the permutation with swaps instead, which needs no
+	 * buffer.  Either way, the destinations may be overwritten.
+	 */
+	void permute(int fromIndex, int toIndex, int[] destinations) {
+		for (int index = 0; index < toIndex - fromIndex; ++index) {
+			while (destinations[index] != index) {
+				final int destination = destinations[index];
+				swap(fromIndex + index, fromIndex + destination);
+				destinations[index] = destinations[destination];
+				destinations[destination] = destination;
+			}
+		}
+	}
+
+	/* Permutes the range of the list through a buffer. */
+	static <T> void permuteList(List<T> input, int fromIndex, int toIndex, int[] destinations) {
+		final Object[] buffer = new Object[toIndex - fromIndex];
+		for (int index = fromIndex; index < toIndex; ++index) {
+			buffer[destinations[index - fromIndex]] = input.get(index);
+		}
+		for (int index = 0; index < buffer.length; ++index) {
+			@SuppressWarnings("unchecked")
+			final T element = (T) buffer[index];
+			input.set(fromIndex + index, element);
+		}
+	}
+
+	static final class OfList<T extends Element<U>, U> extends PartitionTarget {
+		OfList(List<T> input, PartitionFunction<T, U> partitionFunction) {
+			this.input = input;
+			this.partitionFunction = partitionFunction;
+		}
+
+		int size() {
+			return input.size();
+		}
+
+		int getNumClasses() {
+			return partitionFunction.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return partitionFunction.getClass(input.get(index));
+		}
+
+		void getClasses(int fromIndex, int toIndex, int[] classes) {
+			partitionFunction.getClasses(input, fromIndex, toIndex, classes);
+		}
+
+		void swap(int first, int second) {
+			input.set(first, input.set(second, input.get(first)));
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			permuteList(input, fromIndex, toIndex, destinations);
+		}
+
+		private final List<T> input;
+		private final PartitionFunction<T, U> partitionFunction;
+	}
+
+	static final class OfLongKeys<T> extends PartitionTarget {
+		OfLongKeys(List<T> input, ToLongFunction<? super T> key, LongPartitionFunction partitionFunction) {
+			this.input = input;
+			this.key = key;
+			this.partitionFunction = partitionFunction;
+		}
+
+		int size() {
+			return input.size();
+		}
+
+		int getNumClasses() {
+			return partitionFunction.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return partitionFunction.getClass(key.applyAsLong(input.get(index)));
+		}
+
+		void swap(int first, int second) {
+			input.set(first, input.set(second, input.get(first)));
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			permuteList(input, fromIndex, toIndex, destinations);
+		}
+
+		private final List<T> input;
+		private final ToLongFunction<? super T> key;
+		private final LongPartitionFunction partitionFunction;
+	}
+
+	static final class OfDoubleKeys<T> extends PartitionTarget {
+		OfDoubleKeys(List<T> input, ToDoubleFunction<? super T> key, DoublePartitionFunction partitionFunction) {
+			this.input = input;
+			this.key = key;
+			this.partitionFunction = partitionFunction;
+		}
+
+		int size() {
+			return input.size();
+		}
+
+		int getNumClasses() {
+			return partitionFunction.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return partitionFunction.getClass(key.applyAsDouble(input.get(index)));
+		}
+
+		void swap(int first, int second) {
+			input.set(first, input.set(second, input.get(first)));
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			permuteList(input, fromIndex, toIndex, destinations);
+		}
+
+		private final List<T> input;
+		private final ToDoubleFunction<? super T> key;
+		private final DoublePartitionFunction partitionFunction;
+	}
+
+	static final class OfLongIndex extends PartitionTarget {
+		OfLongIndex(int[] rowIds, IntToLongFunction key, LongPartitionFunction partitionFunction) {
+			this.rowIds = rowIds;
+			this.key = key;
+			this.partitionFunction = partitionFunction;
+		}
+
+		int size() {
+			return rowIds.length;
+		}
+
+		int getNumClasses() {
+			return partitionFunction.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return partitionFunction.getClass(key.applyAsLong(rowIds[index]));
+		}
+
+		void swap(int first, int second) {
+			final int rowId = rowIds[first];
+			rowIds[first] = rowIds[second];
+			rowIds[second] = rowId;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final int[] buffer = new int[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = rowIds[index];
+			}
+			System.arraycopy(buffer, 0, rowIds, fromIndex, buffer.length);
+		}
+
+		private final int[] rowIds;
+		private final IntToLongFunction key;
+		private final LongPartitionFunction partitionFunction;
+	}
+
+	static final class OfDoubleIndex extends PartitionTarget {
+		OfDoubleIndex(int[] rowIds, IntToDoubleFunction key, DoublePartitionFunction partitionFunction) {
+			this.rowIds = rowIds;
+			this.key = key;
+			this.partitionFunction = partitionFunction;
+		}
+
+		int size() {
+			return rowIds.length;
+		}
+
+		int getNumClasses() {
+			return partitionFunction.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return partitionFunction.getClass(key.applyAsDouble(rowIds[index]));
+		}
+
+		void swap(int first, int second) {
+			final int rowId = rowIds[first];
+			rowIds[first] = rowIds[second];
+			rowIds[second] = rowId;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final int[] buffer = new int[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = rowIds[index];
+			}
+			System.arraycopy(buffer, 0, rowIds, fromIndex, buffer.length);
+		}
+
+		private final int[] rowIds;
+		private final IntToDoubleFunction key;
+		private final DoublePartitionFunction partitionFunction;
+	}
+
+	static final class OfInts extends PartitionTarget {
+		OfInts(int[] input, LongPartitionFunction partitionFunction) {
+			this.input = input;
+			this.partitionFunction = partitionFunction;
+		}
+
+		int size() {
+			return input.length;
+		}
+
+		int getNumClasses() {
+			return partitionFunction.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return partitionFunction.getClass(input[index]);
+		}
+
+		void swap(int first, int second) {
+			final int value = input[first];
+			input[first] = input[second];
+			input[second] = value;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final int[] buffer = new int[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = input[index];
+			}
+			System.arraycopy(buffer, 0, input, fromIndex, buffer.length);
+		}
+
+		void getClasses(int fromIndex, int toIndex, int[] classes) {
+			partitionFunction.getClasses(input, fromIndex, toIndex, classes);
+		}
+
+		private final int[] input;
+		private final LongPartitionFunction partitionFunction;
+	}
+
+	static final class OfLongs extends PartitionTarget {
+		OfLongs(long[] input, LongPartitionFunction partitionFunction) {
+			this.input = input;
+			this.partitionFunction = partitionFunction;
+		}
+
+		int size() {
+			return input.length;
+		}
+
+		int getNumClasses() {
+			return partitionFunction.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return partitionFunction.getClass(input[index]);
+		}
+
+		void swap(int first, int second) {
+			final long value = input[first];
+			input[first] = input[second];
+			input[second] = value;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final long[] buffer = new long[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = input[index];
+			}
+			System.arraycopy(buffer, 0, input, fromIndex, buffer.length);
+		}
+
+		void getClasses(int fromIndex, int toIndex, int[] classes) {
+			partitionFunction.getClasses(input, fromIndex, toIndex, classes);
+		}
+
+		private final long[] input;
+		private final LongPartitionFunction partitionFunction;
+	}
+
+	static final class OfFloats extends PartitionTarget {
+		OfFloats(float[] input, DoublePartitionFunction partitionFunction) {
+			this.input = input;
+			this.partitionFunction = partitionFunction;
+		}
+
+		int size() {
+			return input.length;
+		}
+
+		int getNumClasses() {
+			return partitionFunction.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return partitionFunction.getClass(input[index]);
+		}
+
+		void swap(int first, int second) {
+			final float value = input[first];
+			input[first] = input[second];
+			input[second] = value;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final float[] buffer = new float[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = input[index];
+			}
+			System.arraycopy(buffer, 0, input, fromIndex, buffer.length);
+		}
+
+		void getClasses(int fromIndex, int toIndex, int[] classes) {
+			partitionFunction.getClasses(input, fromIndex, toIndex, classes);
+		}
+
+		private final float[] input;
+		private final DoublePartitionFunction partitionFunction;
+	}
+
+	static final class OfDoubles extends PartitionTarget {
+		OfDoubles(double[] input, DoublePartitionFunction partitionFunction) {
+			this.input = input;
+			this.partitionFunction = partitionFunction;
+		}
+
+		int size() {
+			return input.length;
+		}
+
+		int getNumClasses() {
+			return partitionFunction.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return partitionFunction.getClass(input[index]);
+		}
+
+		void swap(int first, int second) {
+			final double value = input[first];
+			input[first] = input[second];
+			input[second] = value;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final double[] buffer = new double[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = input[index];
+			}
+			System.arraycopy(buffer, 0, input, fromIndex, buffer.length);
+		}
+
+		void getClasses(int fromIndex, int toIndex, int[] classes) {
+			partitionFunction.getClasses(input, fromIndex, toIndex, classes);
+		}
+
+		private final double[] input;
+		private final DoublePartitionFunction partitionFunction;
+	}
+
+	static final class OfLongRecords extends PartitionTarget {
+		OfLongRecords(FixedWidthRecords input, LongPartitionFunction partitionFunction) {
+			this.input = input;
+			this.partitionFunction = partitionFunction;
+		}
+
+		int size() {
+			return input.size();
+		}
+
+		int getNumClasses() {
+			return partitionFunction.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return partitionFunction.getClass(input.getLongKey(index));
+		}
+
+		void swap(int first, int second) {
+			input.swap(first, second);
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			input.permute(fromIndex, toIndex, destinations);
+		}
+
+		private final FixedWidthRecords input;
+		private final LongPartitionFunction partitionFunction;
+	}
+
+	static final class OfDoubleRecords extends PartitionTarget {
+		OfDoubleRecords(FixedWidthRecords input, DoublePartitionFunction partitionFunction) {
+			this.input = input;
+			this.partitionFunction = partitionFunction;
+		}
+
+		int size() {
+			return input.size();
+		}
+
+		int getNumClasses() {
+			return partitionFunction.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return partitionFunction.getClass(input.getDoubleKey(index));
+		}
+
+		void swap(int first, int second) {
+			input.swap(first, second);
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			input.permute(fromIndex, toIndex, destinations);
+		}
+
+		private final FixedWidthRecords input;
+		private final DoublePartitionFunction partitionFunction;
+	}
+
+	/* Moves the payloads along with every element of the keys' target.  The keyArray
+	 * is the array the target partitions, which cannot also be a payload.
+	 */
+	static final class WithPayloads extends PartitionTarget {
+		WithPayloads(PartitionTarget keys, Object keyArray, Payloads payloads) {
+			if ((payloads.length() >= 0) && (payloads.length() != keys.size())) {
+				throw new IllegalArgumentException("The payloads have " + payloads.length() + " elements, but there are " + keys.size() + " keys.");
+			}
+			payloads.checkNotPayload(keyArray);
+			this.keys = keys;
+			this.payloads = payloads;
+		}
+
+		int size() {
+			return keys.size();
+		}
+
+		int getNumClasses() {
+			return keys.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return keys.getClass(index);
+		}
+
+		void swap(int first, int second) {
+			keys.swap(first, second);
+			payloads.swap(first, second);
+		}
+
+		void getClasses(int fromIndex, int toIndex, int[] classes) {
+			keys.getClasses(fromIndex, toIndex, classes);
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			// The keys' target may overwrite the destinations, so the payloads go first.
+			payloads.permute(fromIndex, toIndex, destinations);
+			keys.permute(fromIndex, toIndex, destinations);
+		}
+
+		private final PartitionTarget keys;
+		private final Payloads payloads;
+	}
+
+	/* A contiguous range of another target, re-indexed from zero. */
+	static final class OfRange extends PartitionTarget {
+		OfRange(PartitionTarget target, int fromIndex, int toIndex) {
+			this.target = target;
+			this.fromIndex = fromIndex;
+			this.size = toIndex - fromIndex;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int getNumClasses() {
+			return target.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return target.getClass(fromIndex + index);
+		}
+
+		void swap(int first, int second) {
+			target.swap(fromIndex + first, fromIndex + second);
+		}
+
+		void getClasses(int fromIndex, int toIndex, int[] classes) {
+			target.getClasses(this.fromIndex + fromIndex, this.fromIndex + toIndex, classes);
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			target.permute(this.fromIndex + fromIndex, this.fromIndex + toIndex, destinations);
+		}
+
+		private final PartitionTarget target;
+		private final int fromIndex;
+		private final int size;
+	}
+}
@@ -0,0 +1,375 @@
+package mpigott.sort;
+
+/**
+ * Arrays of payloads which run parallel to an array of keys: the payloads of the
+ * key at index <code>i</code> are at index <code>i</code> of every payload array.
+ * When the keys are partitioned with their payloads, the {@link CyclePartitioner}
+ * moves every payload along with its key, in the same pass, so columns stored as
+ * a struct of arrays can be partitioned without building an object for each row:
+ *
+ *     long[] keys = ...;
+ *     double[] prices = ...;
+ *     int[] quantities = ...;
+ *     CyclePartitioner.partition(keys, partitionFunction, new Payloads(prices, quantities));
+ *
+ * Any array of primitives or objects can be a payload, but only once, and never the
+ * array of keys itself: either would be moved twice per move, scrambling the rows,
+ * so both are rejected.  Each move of a key costs one move per payload array, so
+ * a partition moving <code>M</code> keys with <code>P</code> payload arrays makes
+ * <code>M * (P + 1)</code> moves, with no second pass to apply a permutation.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public final class Payloads {
+
+	/**
+	 * Wraps the payload <code>arrays</code>, which must all be the same length.
+	 *
+	 * @param arrays The payload arrays.
+	 *
+	 * @throws IllegalArgumentException If a payload is <code>null</code> or not an array,
+	 *                                  if the same array is passed twice, or if the arrays
+	 *                                  are not all the same length.
+	 */
+	public Payloads(Object... arrays) {
+		this.arrays = arrays.clone();
+		payloads = new Payload[arrays.length];
+		int length = -1;
+		for (int index = 0; index < arrays.length; ++index) {
+			payloads[index] = createPayload(arrays[index], index);
+			final int previous = indexOf(arrays[index], index);
+			if (previous >= 0) {
+				throw new IllegalArgumentException("Payload " + index + " is the same array as payload " + previous + ".");
+			}
+			if ((length >= 0) && (payloads[index].length() != length)) {
+				throw new IllegalArgumentException("Payload " + index + " has " + payloads[index].length() + " elements, but the payloads before it have " + length + ".");
+			}
+			length = payloads[index].length();
+		}
+		this.length = length;
+	}
+
+	/**
+	 * The number of payload arrays.
+	 */
+	public int getNumArrays() {
+		return payloads.length;
+	}
+
+	/**
+	 * The length of every payload array, or -1 if there are no payload arrays.
+	 */
+	public int length() {
+		return length;
+	}
+
+	/* Rejects the array of keys if it is also a payload. */
+	void checkNotPayload(Object keys) {
+		final int index = indexOf(keys, arrays.length);
+		if (index >= 0) {
+			throw new IllegalArgumentException("Payload " + index + " is the array of keys.");
+		}
+	}
+
+	/* Returns the index of the first of the first numArrays payloads that is the array, or -1. */
+	private int indexOf(Object array, int numArrays) {
+		for (int index = 0; index < numArrays; ++index) {
+			if (arrays[index] == array) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/* Swaps the payloads at the two positions in every array. */
+	void swap(int first, int second) {
+		for (Payload payload : payloads) {
+			payload.swap(first, second);
+		}
+	}
+
+	/* Moves the payloads at fromIndex + i to fromIndex + destinations[i], in every array.
+	 * The destinations are not modified.
+	 */
+	void permute(int fromIndex, int toIndex, int[] destinations) {
+		for (Payload payload : payloads) {
+			payload.permute(fromIndex, toIndex, destinations);
+		}
+	}
+
+	private static Payload createPayload(Object array, int index) {
+		if (array instanceof int[]) {
+			return new IntPayload((int[]) array);
+		} else if (array instanceof long[]) {
+			return new LongPayload((long[]) array);
+		} else if (array instanceof double[]) {
+			return new DoublePayload((double[]) array);
+		} else if (array instanceof float[]) {
+			return new FloatPayload((float[]) array);
+		} else if (array instanceof short[]) {
+			return new ShortPayload((short[]) array);
+		} else if (array instanceof byte[]) {
+			return new BytePayload((byte[]) array);
+		} else if (array instanceof char[]) {
+			return new CharPayload((char[]) array);
+		} else if (array instanceof boolean[]) {
+			return new BooleanPayload((boolean[]) array);
+		} else if (array instanceof Object[]) {
+			return new ObjectPayload((Object[]) array);
+		} else if (array == null) {
+			throw new IllegalArgumentException("Payload " + index + " is null.");
+		} else {
+			throw new IllegalArgumentException("Payload " + index + " is a " + array.getClass().getName() + ", not an array.");
+		}
+	}
+
+	/* One payload array.  Each subclass swaps and permutes its own array type directly,
+	 * so no element is boxed.
+	 */
+	private static abstract class Payload {
+		abstract int length();
+
+		abstract void swap(int first, int second);
+
+		abstract void permute(int fromIndex, int toIndex, int[] destinations);
+	}
+
+	private static final class IntPayload extends Payload {
+		IntPayload(int[] array) {
+			this.array = array;
+		}
+
+		int length() {
+			return array.length;
+		}
+
+		void swap(int first, int second) {
+			final int value = array[first];
+			array[first] = array[second];
+			array[second] = value;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final int[] buffer = new int[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = array[index];
+			}
+			System.arraycopy(buffer, 0, array, fromIndex, buffer.length);
+		}
+
+		private final int[] array;
+	}
+
+	private static final class LongPayload extends Payload {
+		LongPayload(long[] array) {
+			this.array = array;
+		}
+
+		int length() {
+			return array.length;
+		}
+
+		void swap(int first, int second) {
+			final long value = array[first];
+			array[first] = array[second];
+			array[second] = value;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final long[] buffer = new long[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = array[index];
+			}
+			System.arraycopy(buffer, 0, array, fromIndex, buffer.length);
+		}
+
+		private final long[] array;
+	}
+
+	private static final class DoublePayload extends Payload {
+		DoublePayload(double[] array) {
+			this.array = array;
+		}
+
+		int length() {
+			return array.length;
+		}
+
+		void swap(int first, int second) {
+			final double value = array[first];
+			array[first] = array[second];
+			array[second] = value;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final double[] buffer = new double[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = array[index];
+			}
+			System.arraycopy(buffer, 0, array, fromIndex, buffer.length);
+		}
+
+		private final double[] array;
+	}
+
+	private static final class FloatPayload extends Payload {
+		FloatPayload(float[] array) {
+			this.array = array;
+		}
+
+		int length() {
+			return array.length;
+		}
+
+		void swap(int first, int second) {
+			final float value = array[first];
+			array[first] = array[second];
+			array[second] = value;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final float[] buffer = new float[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = array[index];
+			}
+			System.arraycopy(buffer, 0, array, fromIndex, buffer.length);
+		}
+
+		private final float[] array;
+	}
+
+	private static final class ShortPayload extends Payload {
+		ShortPayload(short[] array) {
+			this.array = array;
+		}
+
+		int length() {
+			return array.length;
+		}
+
+		void swap(int first, int second) {
+			final short value = array[first];
+			array[first] = array[second];
+			array[second] = value;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final short[] buffer = new short[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = array[index];
+			}
+			System.arraycopy(buffer, 0, array, fromIndex, buffer.length);
+		}
+
+		private final short[] array;
+	}
+
+	private static final class BytePayload extends Payload {
+		BytePayload(byte[] array) {
+			this.array = array;
+		}
+
+		int length() {
+			return array.length;
+		}
+
+		void swap(int first, int second) {
+			final byte value = array[first];
+			array[first] = array[second];
+			array[second] = value;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final byte[] buffer = new byte[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = array[index];
+			}
+			System.arraycopy(buffer, 0, array, fromIndex, buffer.length);
+		}
+
+		private final byte[] array;
+	}
+
+	private static final class CharPayload extends Payload {
+		CharPayload(char[] array) {
+			this.array = array;
+		}
+
+		int length() {
+			return array.length;
+		}
+
+		void swap(int first, int second) {
+			final char value = array[first];
+			array[first] = array[second];
+			array[second] = value;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final char[] buffer = new char[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = array[index];
+			}
+			System.arraycopy(buffer, 0, array, fromIndex, buffer.length);
+		}
+
+		private final char[] array;
+	}
+
+	private static final class BooleanPayload extends Payload {
+		BooleanPayload(boolean[] array) {
+			this.array = array;
+		}
+
+		int length() {
+			return array.length;
+		}
+
+		void swap(int first, int second) {
+			final boolean value = array[first];
+			array[first] = array[second];
+			array[second] = value;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final boolean[] buffer = new boolean[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = array[index];
+			}
+			System.arraycopy(buffer, 0, array, fromIndex, buffer.length);
+		}
+
+		private final boolean[] array;
+	}
+
+	private static final class ObjectPayload extends Payload {
+		ObjectPayload(Object[] array) {
+			this.array = array;
+		}
+
+		int length() {
+			return array.length;
+		}
+
+		void swap(int first, int second) {
+			final Object value = array[first];
+			array[first] = array[second];
+			array[second] = value;
+		}
+
+		void permute(int fromIndex, int toIndex, int[] destinations) {
+			final Object[] buffer = new Object[toIndex - fromIndex];
+			for (int index = fromIndex; index < toIndex; ++index) {
+				buffer[destinations[index - fromIndex]] = array[index];
+			}
+			System.arraycopy(buffer, 0, array, fromIndex, buffer.length);
+		}
+
+		private final Object[] array;
+	}
+
+	private final Object[] arrays;
+	private final Payload[] payloads;
+	private final int length;
+}
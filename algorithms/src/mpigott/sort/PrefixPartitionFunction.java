@@ -0,0 +1,192 @@
+package mpigott.sort;
+
+/**
+ * A partition function for <code>String</code> and <code>byte[]</code> keys.
+ * Keys have no natural distance between them, but a fixed-width prefix of a key
+ * does: the first {@link #CHARS_PER_PREFIX} characters of a string (or
+ * {@link #BYTES_PER_PREFIX} bytes of a byte array) are packed, big-endian, into
+ * an unsigned 64-bit number, with missing characters treated as zeros.  Comparing
+ * two prefixes as unsigned numbers gives the same order as comparing the keys
+ * lexicographically, except that keys with equal prefixes may still differ later.
+ *
+ * The prefixes are returned by {@link #getPrefix(String, int)} with their sign bit
+ * flipped, so that they sort as signed <code>long</code>s, and are classified with
+ * the exact arithmetic of the {@link LongShiftPartitionFunction}.  They can be
+ * passed to the {@link CyclePartitioner} with a key extractor:
+ *
+ *     PrefixPartitionFunction func = new PrefixPartitionFunction(keys, 256);
+ *     CyclePartitioner.partition(keys, key -> PrefixPartitionFunction.getPrefix(key, func.getDepth()), func);
+ *
+ * When every key shares the same first prefix (as symbols or IDs with a common
+ * stem do), the first prefix cannot tell any of them apart.  The function then
+ * moves on to the next prefix, and so on, until it finds a depth at which the
+ * keys' prefixes differ.  {@link FlashSort} sorts strings this way, fitting a new
+ * function to each oversized class, in the style of an MSD radix sort.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public final class PrefixPartitionFunction extends LongShiftPartitionFunction {
+
+	/**
+	 * The number of 16-bit <code>char</code>s in the prefix of a <code>String</code>.
+	 */
+	public static final int CHARS_PER_PREFIX = 4;
+
+	/**
+	 * The number of bytes in the prefix of a <code>byte[]</code>.
+	 */
+	public static final int BYTES_PER_PREFIX = 8;
+
+	/**
+	 * Fits the function to the first prefix at which the <code>input</code> keys differ.
+	 * The number of classes is an upper bound, as with the {@link LongShiftPartitionFunction}.
+	 * If no prefix of the keys differ, there is only one class.
+	 *
+	 * @param input               The input to generate the classes from.
+	 * @param numClassesRequested The maximum number of classes to sort the input into.
+	 *
+	 * @throws IllegalArgumentException If the <code>input</code> contains <code>null</code> keys,
+	 *                                  or if fewer than two classes are requested.
+	 */
+	public PrefixPartitionFunction(String[] input, int numClassesRequested) {
+		this(input, 0, input.length, numClassesRequested);
+	}
+
+	/**
+	 * @see #PrefixPartitionFunction(String[], int)
+	 */
+	public PrefixPartitionFunction(byte[][] input, int numClassesRequested) {
+		this(input, 0, input.length, numClassesRequested);
+	}
+
+	/* Fits the function to the keys in [fromIndex, toIndex). */
+	PrefixPartitionFunction(String[] input, int fromIndex, int toIndex, int numClassesRequested) {
+		this(fit(input, fromIndex, toIndex), numClassesRequested);
+	}
+
+	/* Fits the function to the keys in [fromIndex, toIndex). */
+	PrefixPartitionFunction(byte[][] input, int fromIndex, int toIndex, int numClassesRequested) {
+		this(fit(input, fromIndex, toIndex), numClassesRequested);
+	}
+
+	/* The fit is the minimum prefix, maximum prefix, and depth. */
+	private PrefixPartitionFunction(long[] fit, int numClassesRequested) {
+		super(fit[0], fit[1], numClassesRequested);
+		depth = (int) fit[2];
+	}
+
+	/**
+	 * Returns the {@link #CHARS_PER_PREFIX} characters of the <code>key</code>,
+	 * starting at <code>depth</code>, packed into a <code>long</code> whose signed
+	 * order is the lexicographic order of the characters.
+	 *
+	 * @param key   The key to take the prefix of.
+	 * @param depth The index of the first character of the prefix.
+	 */
+	public static long getPrefix(String key, int depth) {
+		final int length = key.length();
+		long prefix = 0;
+		for (int index = depth; index < depth + CHARS_PER_PREFIX; ++index) {
+			prefix = (prefix << Character.SIZE) | ((index < length) ? key.charAt(index) : 0);
+		}
+		return prefix ^ Long.MIN_VALUE;
+	}
+
+	/**
+	 * Returns the {@link #BYTES_PER_PREFIX} bytes of the <code>key</code>, starting
+	 * at <code>depth</code>, packed into a <code>long</code> whose signed order is
+	 * the lexicographic order of the (unsigned) bytes.
+	 *
+	 * @param key   The key to take the prefix of.
+	 * @param depth The index of the first byte of the prefix.
+	 */
+	public static long getPrefix(byte[] key, int depth) {
+		final int length = key.length;
+		long prefix = 0;
+		for (int index = depth; index < depth + BYTES_PER_PREFIX; ++index) {
+			prefix = (prefix << Byte.SIZE) | ((index < length) ? (key[index] & 0xFF) : 0);
+		}
+		return prefix ^ Long.MIN_VALUE;
+	}
+
+	/**
+	 * The index of the first character (or byte) of the prefix this function classifies.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Classifies the <code>key</code> by its prefix at this function's depth.
+	 */
+	public int getClass(String key) {
+		return getClass(getPrefix(key, depth));
+	}
+
+	/**
+	 * Classifies the <code>key</code> by its prefix at this function's depth.
+	 */
+	public int getClass(byte[] key) {
+		return getClass(getPrefix(key, depth));
+	}
+
+	/* Finds the first depth at which the prefixes of the keys are not all equal, or at which
+	 * every key ends, and returns the minimum and maximum prefixes at that depth, and the depth.
+	 */
+	private static long[] fit(String[] input, int fromIndex, int toIndex) {
+		int maxLength = 0;
+		for (int index = fromIndex; index < toIndex; ++index) {
+			if (input[index] == null) {
+				throw new IllegalArgumentException("Input cannot contain null keys.  The key at index " + index + " is null.");
+			}
+			maxLength = Math.max(maxLength, input[index].length());
+		}
+
+		for (int depth = 0; ; depth += CHARS_PER_PREFIX) {
+			long min = getPrefix(input[fromIndex], depth);
+			long max = min;
+			for (int index = fromIndex + 1; index < toIndex; ++index) {
+				final long prefix = getPrefix(input[index], depth);
+				if (prefix < min) {
+					min = prefix;
+				} else if (prefix > max) {
+					max = prefix;
+				}
+			}
+
+			if ((min != max) || (depth + CHARS_PER_PREFIX >= maxLength)) {
+				return new long[] { min, max, depth };
+			}
+		}
+	}
+
+	private static long[] fit(byte[][] input, int fromIndex, int toIndex) {
+		int maxLength = 0;
+		for (int index = fromIndex; index < toIndex; ++index) {
+			if (input[index] == null) {
+				throw new IllegalArgumentException("Input cannot contain null keys.  The key at index " + index + " is null.");
+			}
+			maxLength = Math.max(maxLength, input[index].length);
+		}
+
+		for (int depth = 0; ; depth += BYTES_PER_PREFIX) {
+			long min = getPrefix(input[fromIndex], depth);
+			long max = min;
+			for (int index = fromIndex + 1; index < toIndex; ++index) {
+				final long prefix = getPrefix(input[index], depth);
+				if (prefix < min) {
+					min = prefix;
+				} else if (prefix > max) {
+					max = prefix;
+				}
+			}
+
+			if ((min != max) || (depth + BYTES_PER_PREFIX >= maxLength)) {
+				return new long[] { min, max, depth };
+			}
+		}
+	}
+
+	private final int depth;
+}
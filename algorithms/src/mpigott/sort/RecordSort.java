@@ -0,0 +1,141 @@
+package mpigott.sort;
+
+/**
+ * Sorts {@link FixedWidthRecords} in place by their keys, by recursively
+ * partitioning them with the {@link CyclePartitioner}.  Each range of records
+ * is partitioned into classes of a handful of records each, using the exact
+ * class bounds so no class ever expands, and each class is partitioned again
+ * until it is small enough for an insertion sort.
+ *
+ * <code>double</code> keys are sorted by their bits, rearranged so that they
+ * compare as <code>long</code>s in the same order as the <code>double</code>s
+ * (see {@link #toSortableKey(double)}).  Both kinds of keys are then
+ * partitioned by the {@link LongShiftPartitionFunction}, which classifies
+ * every <code>long</code> exactly.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+final class RecordSort {
+
+	/**
+	 * Ranges of this many records or fewer are insertion-sorted.
+	 */
+	static final int INSERTION_SORT_SIZE = 16;
+
+	/**
+	 * The most classes a range of records is partitioned into at a time.
+	 */
+	static final int MAX_CLASSES = 1 << 16;
+
+	private RecordSort() {
+	}
+
+	/**
+	 * Sorts the <code>records</code> by their <code>long</code> keys, or their
+	 * <code>double</code> keys if <code>doubleKeys</code> is set.
+	 */
+	static void sort(FixedWidthRecords records, boolean doubleKeys) {
+		sort(records, doubleKeys, 0, records.size());
+	}
+
+	/**
+	 * Returns the key of the record at <code>index</code>, as
+	 * a <code>long</code> that sorts in the same order as the key.
+	 */
+	static long getSortableKey(FixedWidthRecords records, int index, boolean doubleKeys) {
+		return doubleKeys ? toSortableKey(records.getDoubleKey(index)) : records.getLongKey(index);
+	}
+
+	/**
+	 * Rearranges the bits of the <code>double</code> so that the resulting
+	 * <code>long</code>s compare in the same order as the <code>double</code>s.
+	 * Positive values already do; the magnitude bits of negative values are
+	 * flipped, so the larger the magnitude, the smaller the <code>long</code>.
+	 * Every NaN becomes the same positive NaN, which sorts after positive infinity,
+	 * as in {@link Double#compare(double, double)}.
+	 */
+	static long toSortableKey(double value) {
+		final long bits = Double.doubleToLongBits(value);
+		return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+	}
+
+	/* Sorts the records from fromIndex (inclusive) to toIndex (exclusive). */
+	private static void sort(FixedWidthRecords records, boolean doubleKeys, int fromIndex, int toIndex) {
+		final int size = toIndex - fromIndex;
+		if (size <= INSERTION_SORT_SIZE) {
+			insertionSort(records, doubleKeys, fromIndex, toIndex);
+			return;
+		}
+
+		long min = getSortableKey(records, fromIndex, doubleKeys);
+		long max = min;
+		for (int index = fromIndex + 1; index < toIndex; ++index) {
+			final long key = getSortableKey(records, index, doubleKeys);
+			if (key < min) {
+				min = key;
+			} else if (key > max) {
+				max = key;
+			}
+		}
+
+		if (min == max) {
+			return;
+		}
+
+		final LongShiftPartitionFunction partitionFunction =
+				new LongShiftPartitionFunction(min, max, Math.max(2, Math.min(size / (INSERTION_SORT_SIZE / 2), MAX_CLASSES)));
+
+		final int[] classUpperBounds = CyclePartitioner.partition(
+				new RangeTarget(records, doubleKeys, fromIndex, size, partitionFunction),
+				new PartitionOptions().setClassBounds(PartitionOptions.ClassBounds.EXACT));
+
+		int lowerBound = 0;
+		for (int classNum = 0; classNum < classUpperBounds.length; ++classNum) {
+			sort(records, doubleKeys, fromIndex + lowerBound, fromIndex + classUpperBounds[classNum] + 1);
+			lowerBound = classUpperBounds[classNum] + 1;
+		}
+	}
+
+	private static void insertionSort(FixedWidthRecords records, boolean doubleKeys, int fromIndex, int toIndex) {
+		for (int index = fromIndex + 1; index < toIndex; ++index) {
+			final long key = getSortableKey(records, index, doubleKeys);
+			for (int prev = index; (prev > fromIndex) && (getSortableKey(records, prev - 1, doubleKeys) > key); --prev) {
+				records.swap(prev - 1, prev);
+			}
+		}
+	}
+
+	/* Partitions a range of the records by their sortable keys. */
+	private static final class RangeTarget extends PartitionTarget {
+		RangeTarget(FixedWidthRecords records, boolean doubleKeys, int fromIndex, int size, LongPartitionFunction partitionFunction) {
+			this.records = records;
+			this.doubleKeys = doubleKeys;
+			this.fromIndex = fromIndex;
+			this.size = size;
+			this.partitionFunction = partitionFunction;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int getNumClasses() {
+			return partitionFunction.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return partitionFunction.getClass(getSortableKey(records, fromIndex + index, doubleKeys));
+		}
+
+		void swap(int first, int second) {
+			records.swap(fromIndex + first, fromIndex + second);
+		}
+
+		private final FixedWidthRecords records;
+		private final boolean doubleKeys;
+		private final int fromIndex;
+		private final int size;
+		private final LongPartitionFunction partitionFunction;
+	}
+}
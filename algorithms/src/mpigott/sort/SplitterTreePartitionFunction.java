@@ -0,0 +1,180 @@
+package mpigott.sort;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A partition function built from splitters chosen out of a random sample of the
+ * input, as in "Super Scalar Sample Sort" by Sanders and Winkel
+ * ( http://algo2.iti.kit.edu/documents/SuperScalarSampleSort.pdf ).
+ *
+ * The sample is sorted, and <code>k - 1</code> evenly-spaced elements of it are
+ * chosen as splitters.  The splitters are stored as an implicit binary search tree
+ * (the root at index 1, and the children of node <code>j</code> at <code>2j</code>
+ * and <code>2j + 1</code>), and an element is classified by descending the tree
+ * one level per comparison.  The next node is computed from the sign of the
+ * comparison rather than branched to, so the descent has no branches for the
+ * processor to mispredict, and the element's class is the leaf it reaches.
+ *
+ * Unlike the {@link FlashSortPartitionFunction} and {@link CdfPartitionFunction},
+ * only {@link Element#compareTo(Object)} is used: {@link Element#distance(Element)}
+ * is never called, so the function works for any comparable element, and the class
+ * sizes follow the sample whatever the shape of the distribution.  Elements equal
+ * to a splitter are placed in the class to its left, so a value repeated more than
+ * <code>N / k</code> times leaves the classes between its repeated splitters empty.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public final class SplitterTreePartitionFunction<T extends Element<U>, U> implements PartitionFunction<T, U> {
+
+	/**
+	 * The number of samples taken for each class, when no oversampling factor is given.
+	 */
+	public static final int DEFAULT_OVERSAMPLING = 64;
+
+	/**
+	 * The seed of the samples, when no source of randomness is given, so the same
+	 * input is always partitioned into the same classes.
+	 */
+	public static final long DEFAULT_SEED = 42L;
+
+	/**
+	 * Samples the <code>input</code> with the {@link #DEFAULT_OVERSAMPLING}.
+	 *
+	 * @see #SplitterTreePartitionFunction(List, int, int)
+	 */
+	public SplitterTreePartitionFunction(List<T> input, int numClassesRequested) {
+		this(input, numClassesRequested, DEFAULT_OVERSAMPLING);
+	}
+
+	/**
+	 * Samples the <code>input</code> with the {@link #DEFAULT_SEED}.
+	 *
+	 * @see #SplitterTreePartitionFunction(List, int, int, Random)
+	 */
+	public SplitterTreePartitionFunction(List<T> input, int numClassesRequested, int oversampling) {
+		this(input, numClassesRequested, oversampling, new Random(DEFAULT_SEED));
+	}
+
+	/**
+	 * Takes <code>numClassesRequested * oversampling</code> random samples of the
+	 * <code>input</code> (or the entire input, if it is smaller), and chooses the
+	 * splitters from them.  The number of classes is the largest power of two no
+	 * greater than <code>numClassesRequested</code>, so the tree is complete.
+	 *
+	 * @param input               The input to sample the splitters from.
+	 * @param numClassesRequested The maximum number of classes to sort the input into.
+	 * @param oversampling        The number of samples to take for each class.
+	 * @param random              The source of the samples.  The same input, sampled
+	 *                            with the same seed, gets the same splitters.
+	 *
+	 * @throws IllegalArgumentException If the <code>input</code> is empty,
+	 *                                  if a sampled element is <code>null</code>,
+	 *                                  or if the <code>oversampling</code> is
+	 *                                  not positive.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public SplitterTreePartitionFunction(List<T> input, int numClassesRequested, int oversampling, Random random) {
+		if (input.isEmpty()) {
+			throw new IllegalArgumentException("The input cannot be empty.");
+		} else if (oversampling < 1) {
+			throw new IllegalArgumentException("The oversampling factor must be positive, not " + oversampling + ".");
+		}
+
+		numLevels = (numClassesRequested < 2) ? 0 : 31 - Integer.numberOfLeadingZeros(numClassesRequested);
+		numClasses = 1 << numLevels;
+
+		final List<T> samples = sample(input, (long) numClasses * oversampling, random);
+		Collections.sort(samples);
+
+		tree = new Element[numClasses];
+		buildTree(samples, 1, 1, numClasses - 1);
+	}
+
+	/* Takes numSamples random samples of the input, with replacement.
+	 * If the input is no larger than the sample, all of it is taken.
+	 */
+	private static <T extends Element<U>, U> List<T> sample(List<T> input, long numSamples, Random random) {
+		final int size = input.size();
+		final List<T> samples;
+		if (numSamples >= size) {
+			samples = new ArrayList<T>(input);
+		} else {
+			samples = new ArrayList<T>((int) numSamples);
+			for (int sample = 0; sample < numSamples; ++sample) {
+				samples.add(input.get(random.nextInt(size)));
+			}
+		}
+
+		for (int index = 0; index < samples.size(); ++index) {
+			if (samples.get(index) == null) {
+				throw new IllegalArgumentException("Input list cannot contain null elements.");
+			}
+		}
+		return samples;
+	}
+
+	/* Stores the splitters numbered [fromSplitter, toSplitter] in the subtree rooted
+	 * at the node.  Splitter s is the last sample of the s'th of numClasses equal runs
+	 * of the sorted sample, so the median splitter is at the root, the quartiles are
+	 * its children, and so on.
+	 */
+	private void buildTree(List<T> samples, int node, int fromSplitter, int toSplitter) {
+		if (fromSplitter > toSplitter) {
+			return;
+		}
+		final int midSplitter = (fromSplitter + toSplitter) >>> 1;
+		tree[node] = samples.get((int) Math.max(0L, (long) midSplitter * samples.size() / numClasses - 1));
+		buildTree(samples, 2 * node, fromSplitter, midSplitter - 1);
+		buildTree(samples, 2 * node + 1, midSplitter + 1, toSplitter);
+	}
+
+	/**
+	 * Returns the class of the <code>element</code>, by descending the splitter tree.
+	 * At each node, <code>(splitter.compareTo(element) >>> 31)</code> is 1 if the
+	 * element is greater than the splitter, and 0 otherwise, which picks the child.
+	 *
+	 * @see PartitionFunction#getClass(Element)
+	 */
+	public int getClass(T element) {
+		final Element<U>[] splitters = tree;
+		int node = 1;
+		for (int level = 0; level < numLevels; ++level) {
+			node = (node << 1) | (splitters[node].compareTo(element) >>> 31);
+		}
+		return node - numClasses;
+	}
+
+	/**
+	 * @see PartitionFunction#getClasses(List, int, int, int[])
+	 */
+	@Override
+	public void getClasses(List<T> input, int fromIndex, int toIndex, int[] classes) {
+		final Element<U>[] splitters = tree;
+		final int numLevels = this.numLevels;
+		for (int index = fromIndex; index < toIndex; ++index) {
+			final T element = input.get(index);
+			int node = 1;
+			for (int level = 0; level < numLevels; ++level) {
+				node = (node << 1) | (splitters[node].compareTo(element) >>> 31);
+			}
+			classes[index - fromIndex] = node - numClasses;
+		}
+	}
+
+	/**
+	 * The total number of classes that an item can be partitioned into.
+	 *
+	 * @see PartitionFunction#getNumClasses()
+	 */
+	public int getNumClasses() {
+		return numClasses;
+	}
+
+	private final Element<U>[] tree;
+	private final int numLevels;
+	private final int numClasses;
+}
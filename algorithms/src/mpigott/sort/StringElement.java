@@ -0,0 +1,38 @@
+package mpigott.sort;
+
+/**
+ * An {@link Element} wrapping a <code>String</code>.  Elements are compared with
+ * {@link String#compareTo(String)}, and the distance between two elements is the
+ * difference between their {@link PrefixPartitionFunction#getPrefix(String, int)
+ * prefixes}, so only the first few characters of each string are used to compute
+ * it.  Strings which differ later are zero distance apart.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public final class StringElement implements Element<String> {
+
+	public StringElement(String value) {
+		this.value = value;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	@Override
+	public int compareTo(Element<String> other) {
+		return value.compareTo(other.getValue());
+	}
+
+	@Override
+	public double distance(Element<String> other) {
+		return (double) PrefixPartitionFunction.getPrefix(value, 0) - (double) PrefixPartitionFunction.getPrefix(other.getValue(), 0);
+	}
+
+	public String toString() {
+		return value;
+	}
+
+	private final String value;
+}
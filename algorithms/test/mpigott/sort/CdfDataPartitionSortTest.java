@@ -3,9 +3,11 @@ package mpigott.sort;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.junit.Ignore;
@@ -140,6 +142,24 @@ public class CdfDataPartitionSortTest {
 		checkInput(input, func, classBounds);
 	}
 
+	@Test
+	public void testBatchClassification() {
+		ArrayList<NumericElement<Double>> input = createStandardNormalRandomInput(5000, 9000.0);
+
+		List<PartitionFunction<NumericElement<Double>, Double>> funcs = new ArrayList<PartitionFunction<NumericElement<Double>, Double>>();
+		funcs.add(new FlashSortPartitionFunction<NumericElement<Double>, Double>(input, 100));
+		funcs.add(new CdfPartitionFunction<NumericElement<Double>, Double>(input, 50, 0.05, 0.01));
+		funcs.add(new SplitterTreePartitionFunction<NumericElement<Double>, Double>(input, 64));
+
+		for (PartitionFunction<NumericElement<Double>, Double> func : funcs) {
+			int[] classes = new int[input.size()];
+			func.getClasses(input, 10, input.size(), classes);
+			for (int index = 10; index < input.size(); ++index) {
+				assertEquals(func.getClass(input.get(index)), classes[index - 10]);
+			}
+		}
+	}
+
 	@Test
 	public void testCdfRanges() {
 		ArrayList<NumericElement<Double>> cdfPartitionInput1 = createStandardNormalRandomInput(1000000, 1250000.0);
@@ -212,6 +232,27 @@ public class CdfDataPartitionSortTest {
 		assertTrue("For evenly-distributed random input, the standard deviation of CDF-based partitioning should be smaller.", flashSortStatistics.getStandardDeviation() > cdfPartitionStatistics.getStandardDeviation());
 	}
 
+	@Test
+	public void testParallelModelMatchesSerialModel() {
+		ArrayList<NumericElement<Double>> input = createStandardNormalRandomInput(1000000, 9000.0);
+
+		CdfPartitionFunction<NumericElement<Double>, Double> serialFunc =
+			new CdfPartitionFunction<NumericElement<Double>, Double>(input, 1000, 0.05, 0.0056);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		CdfPartitionFunction<NumericElement<Double>, Double> parallelFunc;
+		try {
+			parallelFunc = new CdfPartitionFunction<NumericElement<Double>, Double>(input, 1000, 0.05, 0.0056, pool);
+		} finally {
+			pool.shutdown();
+		}
+
+		assertEquals(serialFunc.getNumClasses(), parallelFunc.getNumClasses());
+		for (int i = 0; i < input.size(); ++i) {
+			assertEquals(serialFunc.getClass(input.get(i)), parallelFunc.getClass(input.get(i)));
+		}
+	}
+
 	private ArrayList<NumericElement<Double>> createNonRandomInput(int numElements, double min) {
 		ArrayList<NumericElement<Double>> input =
 				new ArrayList<NumericElement<Double>>(numElements);
@@ -0,0 +1,147 @@
+package mpigott.sort;
+
+import static mpigott.sort.PartitionChecks.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests building CDF partition functions from a stream of keys with the {@link CdfSampler}.
+ *
+ * @author Mike Pigott
+ *
+ */
+public class CdfSamplerTest {
+
+	@Test
+	public void reusedAcrossBatchesTest() {
+		CdfSampler.OfLongs sampler = new CdfSampler.OfLongs(4096, new Random(7));
+		Random random = new Random(42);
+
+		List<long[]> batches = new ArrayList<long[]>();
+		for (int batchNum = 0; batchNum < 20; ++batchNum) {
+			long[] batch = new long[5000];
+			for (int i = 0; i < batch.length; ++i) {
+				batch[i] = (long) (random.nextGaussian() * 1000000.0);
+			}
+			sampler.add(batch);
+			batches.add(batch);
+		}
+
+		assertEquals(100000, sampler.getNumSeen());
+		assertEquals(4096, sampler.getNumSamples());
+
+		LongCdfPartitionFunction func = sampler.toPartitionFunction(50);
+		assertEquals(50, func.getNumClasses());
+
+		int[] counts = new int[func.getNumClasses()];
+		for (long[] batch : batches) {
+			int[] classBounds = CyclePartitioner.partition(batch, func);
+			checkClasses(batch.length, index -> func.getClass(batch[index]), classBounds);
+
+			for (int classNum = 0; classNum < classBounds.length; ++classNum) {
+				counts[classNum] += classBounds[classNum] - getLowerBound(classBounds, classNum) + 1;
+			}
+		}
+
+		// The normal distribution should be spread evenly, about 2000 per class.
+		for (int classNum = 0; classNum < counts.length; ++classNum) {
+			assertTrue("Class " + classNum + " has " + counts[classNum] + " elements.", (counts[classNum] > 1000) && (counts[classNum] < 3000));
+		}
+	}
+
+	@Test
+	public void sortedStreamTest() {
+		/* A stream that saw-tooths: sorted runs of 1000 keys.  A stride
+		 * of 1000 would only ever sample the smallest key.
+		 */
+		CdfSampler.OfDoubles sampler = new CdfSampler.OfDoubles(0.05, 0.01, new Random(7));
+		double[] input = new double[100000];
+		for (int i = 0; i < input.length; ++i) {
+			input[i] = i % 1000;
+		}
+		sampler.add(input);
+
+		DoubleCdfPartitionFunction func = sampler.toPartitionFunction(100);
+		int[] counts = new int[func.getNumClasses()];
+		for (double value : input) {
+			++counts[func.getClass(value)];
+		}
+		for (int classNum = 0; classNum < counts.length; ++classNum) {
+			assertTrue("Class " + classNum + " has " + counts[classNum] + " elements.", (counts[classNum] > 500) && (counts[classNum] < 1500));
+		}
+	}
+
+	@Test
+	public void reproducibleTest() {
+		long[] input = new long[50000];
+		Random random = new Random(42);
+		for (int i = 0; i < input.length; ++i) {
+			input[i] = (long) (Math.exp(random.nextGaussian()) * 1000000.0);
+		}
+
+		// Two samplers with the default seed keep the same samples, so they build the same classes.
+		CdfSampler.OfLongs first = new CdfSampler.OfLongs(1000);
+		CdfSampler.OfLongs second = new CdfSampler.OfLongs(1000);
+		first.add(input);
+		second.add(input);
+
+		LongCdfPartitionFunction firstFunc = first.toPartitionFunction(64);
+		LongCdfPartitionFunction secondFunc = second.toPartitionFunction(64);
+		for (long key : input) {
+			assertEquals(firstFunc.getClass(key), secondFunc.getClass(key));
+		}
+	}
+
+	@Test
+	public void outOfRangeTest() {
+		CdfSampler.OfDoubles sampler = new CdfSampler.OfDoubles(100);
+		for (int i = 0; i < 1000; ++i) {
+			sampler.add(i);
+		}
+
+		DoubleCdfPartitionFunction func = sampler.toPartitionFunction(10);
+		assertEquals(0, func.getClass(-1000000.0));
+		assertEquals(9, func.getClass(1000000.0));
+	}
+
+	@Test
+	public void elementsTest() {
+		CdfSampler.OfElements<NumericElement<Integer>, Integer> sampler = new CdfSampler.OfElements<NumericElement<Integer>, Integer>(500, new Random(7));
+		Random random = new Random(42);
+
+		List<NumericElement<Integer>> input = new ArrayList<NumericElement<Integer>>();
+		for (int i = 0; i < 10000; ++i) {
+			input.add(new NumericElement<Integer>(random.nextInt(100000)));
+		}
+		sampler.add(input);
+		assertEquals(500, sampler.getNumSamples());
+
+		CdfPartitionFunction<NumericElement<Integer>, Integer> func = sampler.toPartitionFunction(20);
+		int[] classBounds = CyclePartitioner.partition(input, func);
+		checkClasses(input.size(), index -> func.getClass(input.get(index)), classBounds);
+
+		sampler.reset();
+		assertEquals(0, sampler.getNumSeen());
+		assertEquals(0, sampler.getNumSamples());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void emptyTest() {
+		new CdfSampler.OfLongs(10).toPartitionFunction(10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void tooSmallDistanceTest() {
+		new CdfSampler.OfDoubles(0.05, 0.0001);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void tooLargeReservoirTest() {
+		new CdfSampler.OfLongs(CdfSampler.MAX_RESERVOIR_SIZE + 1);
+	}
+}
@@ -0,0 +1,167 @@
+package mpigott.sort;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link ExternalFlashSort} on files larger than its memory budget.
+ *
+ * @author Mike Pigott
+ *
+ */
+public class ExternalFlashSortTest {
+
+	@Test
+	public void longKeyTest() throws IOException {
+		final int numRecords = 100000;
+		ByteBuffer buffer = ByteBuffer.allocate(16 * numRecords);
+		Random random = new Random(42);
+		long[] keys = new long[numRecords];
+		for (int record = 0; record < numRecords; ++record) {
+			keys[record] = random.nextLong();
+			buffer.putLong(keys[record]);
+			buffer.putLong(~keys[record]);
+		}
+
+		// About 100 records per run, so the spill files are spilled again.
+		ByteBuffer output = sort(buffer.array(), 16, 0, 1600, false);
+
+		Arrays.sort(keys);
+		for (int record = 0; record < numRecords; ++record) {
+			assertEquals("Record " + record + " is out of order.", keys[record], output.getLong(record * 16));
+			assertEquals("Record " + record + " lost its payload.", ~keys[record], output.getLong(record * 16 + 8));
+		}
+	}
+
+	@Test
+	public void doubleKeyTest() throws IOException {
+		// Skewed keys, with many duplicates and both zeros.
+		final int numRecords = 50000;
+		ByteBuffer buffer = ByteBuffer.allocate(12 * numRecords);
+		Random random = new Random(42);
+		double[] keys = new double[numRecords];
+		for (int record = 0; record < numRecords; ++record) {
+			switch (record % 4) {
+			case 0:  keys[record] = Math.pow(random.nextDouble(), 8.0) * 1000.0;  break;
+			case 1:  keys[record] = -random.nextGaussian();  break;
+			case 2:  keys[record] = random.nextInt(10);  break;
+			default: keys[record] = (random.nextBoolean() ? 0.0 : -0.0);  break;
+			}
+			buffer.putInt(record);
+			buffer.putDouble(keys[record]);
+		}
+
+		ByteBuffer output = sort(buffer.array(), 12, 4, 64 * 1024, true);
+
+		Arrays.sort(keys);
+		boolean[] seen = new boolean[numRecords];
+		for (int record = 0; record < numRecords; ++record) {
+			assertEquals("Record " + record + " is out of order.", 0, Double.compare(keys[record], output.getDouble(record * 12 + 4)));
+
+			int id = output.getInt(record * 12);
+			assertFalse("Record " + id + " appears twice.", seen[id]);
+			seen[id] = true;
+		}
+	}
+
+	@Test
+	public void sameKeyTest() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8 * 10000);
+		for (int record = 0; record < 10000; ++record) {
+			buffer.putLong(7L);
+		}
+
+		ByteBuffer output = sort(buffer.array(), 8, 0, 800, false);
+		assertArrayEquals(buffer.array(), output.array());
+	}
+
+	@Test
+	public void inMemoryTest() throws IOException {
+		long[] keys = new long[1000];
+		ByteBuffer buffer = ByteBuffer.allocate(8 * keys.length);
+		Random random = new Random(42);
+		for (int record = 0; record < keys.length; ++record) {
+			keys[record] = random.nextInt(100);
+			buffer.putLong(keys[record]);
+		}
+
+		ByteBuffer output = sort(buffer.array(), 8, 0, 1 << 20, false);
+
+		Arrays.sort(keys);
+		for (int record = 0; record < keys.length; ++record) {
+			assertEquals(keys[record], output.getLong(record * 8));
+		}
+	}
+
+	@Test
+	public void fewSpillFilesTest() throws IOException {
+		final int numRecords = 50000;
+		ByteBuffer buffer = ByteBuffer.allocate(8 * numRecords);
+		Random random = new Random(7);
+		long[] keys = new long[numRecords];
+		for (int record = 0; record < numRecords; ++record) {
+			keys[record] = (long) (Math.exp(random.nextGaussian() * 3.0) * 1000.0);
+			buffer.putLong(keys[record]);
+		}
+
+		// Only two classes at a time, so the classes are partitioned again many levels deep.
+		ByteBuffer output = sort(buffer.array(), 8, 0, 800, false, 4);
+
+		Arrays.sort(keys);
+		for (int record = 0; record < numRecords; ++record) {
+			assertEquals("Record " + record + " is out of order.", keys[record], output.getLong(record * 8));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void partialRecordTest() throws IOException {
+		sort(new byte[20], 16, 0, 1024, false);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void tooFewSpillFilesTest() throws IOException {
+		sort(new byte[1600], 16, 0, 160, false, 3);
+	}
+
+	/* Sorts with the default number of spill files. */
+	private static ByteBuffer sort(byte[] records, int recordSize, int keyOffset, long memoryBudget, boolean doubleKeys) throws IOException {
+		return sort(records, recordSize, keyOffset, memoryBudget, doubleKeys, ExternalFlashSort.DEFAULT_MAX_SPILL_FILES);
+	}
+
+	/* Writes the records to a file, sorts them into another, and reads them back. */
+	private static ByteBuffer sort(byte[] records, int recordSize, int keyOffset, long memoryBudget, boolean doubleKeys, int maxSpillFiles) throws IOException {
+		Path directory = Files.createTempDirectory("flashsort-test");
+		Path input = directory.resolve("input");
+		Path output = directory.resolve("output");
+		try {
+			Files.write(input, records);
+			if (doubleKeys) {
+				ExternalFlashSort.sortByDoubleKey(input, output, recordSize, keyOffset, memoryBudget, maxSpillFiles);
+			} else {
+				ExternalFlashSort.sortByLongKey(input, output, recordSize, keyOffset, memoryBudget, maxSpillFiles);
+			}
+
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+				for (Path file : files) {
+					assertTrue("Spill file " + file + " was not deleted.", file.equals(input) || file.equals(output));
+				}
+			}
+
+			return ByteBuffer.wrap(Files.readAllBytes(output));
+
+		} finally {
+			Files.deleteIfExists(input);
+			Files.deleteIfExists(output);
+			Files.delete(directory);
+		}
+	}
+}
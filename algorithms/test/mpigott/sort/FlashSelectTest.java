@@ -0,0 +1,126 @@
+package mpigott.sort;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests selecting ranks, percentiles and the top elements without a full sort.
+ *
+ * @author Mike Pigott
+ *
+ */
+public class FlashSelectTest {
+
+	@Test
+	public void percentileTest() {
+		// Exponentially-distributed latencies, so the upper classes are sparse and the lower ones crowded.
+		Random random = new Random(42);
+		double[] input = new double[500000];
+		for (int index = 0; index < input.length; ++index) {
+			input[index] = -Math.log(1.0 - random.nextDouble()) * 20.0;
+		}
+		double[] expected = input.clone();
+		Arrays.sort(expected);
+
+		int p50 = FlashSelect.getPercentileRank(50.0, input.length);
+		int p99 = FlashSelect.getPercentileRank(99.0, input.length);
+		int p999 = FlashSelect.getPercentileRank(99.9, input.length);
+		double[] selected = FlashSelect.select(input, new DoubleFlashSortPartitionFunction(input, 1000), p99, p50, p999, p50);
+
+		assertArrayEquals(new double[] { expected[p99], expected[p50], expected[p999], expected[p50] }, selected, 0.0);
+		checkSelected(expected, input, p50, p99, p999);
+	}
+
+	@Test
+	public void topTest() {
+		Random random = new Random(7);
+		long[] input = new long[200000];
+		for (int index = 0; index < input.length; ++index) {
+			input[index] = random.nextLong();
+		}
+		long[] expected = input.clone();
+		Arrays.sort(expected);
+
+		final int rank = input.length - 1000;
+		FlashSelect.select(input, new LongFlashSortPartitionFunction(input, 1000), rank);
+
+		// The top 1,000 are at the end, in no particular order.
+		long[] top = Arrays.copyOfRange(input, rank, input.length);
+		Arrays.sort(top);
+		assertArrayEquals(Arrays.copyOfRange(expected, rank, expected.length), top);
+	}
+
+	@Test
+	public void heavyHitterTest() {
+		Random random = new Random(3);
+		int[] input = new int[100000];
+		for (int index = 0; index < input.length; ++index) {
+			input[index] = (random.nextInt(4) == 0) ? 500 : random.nextInt(1000000);
+		}
+		int[] expected = input.clone();
+		Arrays.sort(expected);
+
+		LongCdfPartitionFunction func = new LongCdfPartitionFunction(input, 1000, 0.05, 0.01);
+		assertTrue(func.getNumClasses() > 1);
+
+		final int[] ranks = { 0, 10000, 25000, 50000, input.length - 1 };
+		int[] selected = FlashSelect.select(input, func, ranks);
+		for (int index = 0; index < ranks.length; ++index) {
+			assertEquals(expected[ranks[index]], selected[index]);
+		}
+	}
+
+	@Test
+	public void listTest() {
+		Random random = new Random(5);
+		List<NumericElement<Integer>> input = new ArrayList<NumericElement<Integer>>();
+		for (int index = 0; index < 50000; ++index) {
+			input.add(new NumericElement<Integer>(random.nextInt(20000)));
+		}
+		List<NumericElement<Integer>> expected = new ArrayList<NumericElement<Integer>>(input);
+		Collections.sort(expected);
+
+		List<NumericElement<Integer>> selected = FlashSelect.select(input, new FlashSortPartitionFunction<NumericElement<Integer>, Integer>(input, 100), 49999, 0, 12345);
+		assertEquals(expected.get(49999).getValue(), selected.get(0).getValue());
+		assertEquals(expected.get(0).getValue(), selected.get(1).getValue());
+		assertEquals(expected.get(12345).getValue(), selected.get(2).getValue());
+	}
+
+	@Test
+	public void percentileRankTest() {
+		assertEquals(0, FlashSelect.getPercentileRank(0.0, 100));
+		assertEquals(49, FlashSelect.getPercentileRank(50.0, 100));
+		assertEquals(98, FlashSelect.getPercentileRank(99.0, 100));
+		assertEquals(99, FlashSelect.getPercentileRank(100.0, 100));
+		assertEquals(0, FlashSelect.getPercentileRank(50.0, 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rankOutOfBoundsTest() {
+		double[] input = { 3.0, 1.0, 2.0 };
+		FlashSelect.select(input, new DoubleFlashSortPartitionFunction(input, 2), 3);
+	}
+
+	/* Checks each rank holds its sorted element, and is no smaller than anything before it,
+	 * and no larger than anything after it.
+	 */
+	private static void checkSelected(double[] expected, double[] actual, int... ranks) {
+		for (int rank : ranks) {
+			assertEquals(expected[rank], actual[rank], 0.0);
+			for (int index = 0; index < actual.length; ++index) {
+				if (index < rank) {
+					assertTrue(actual[index] <= actual[rank]);
+				} else if (index > rank) {
+					assertTrue(actual[index] >= actual[rank]);
+				}
+			}
+		}
+	}
+}
@@ -4,11 +4,13 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import mpigott.sort.CyclePartitioner;
 import mpigott.sort.FlashSortPartitionFunction;
 import mpigott.sort.NumericElement;
 
+import org.junit.AfterClass;
 import org.junit.Test;
 
 /**
@@ -142,6 +144,29 @@ public class FlashSortTest {
 		checkInput(func, input, classBounds, copy, numClasses);
 	}
 
+	@Test
+	public void parallelFlashSortPartitionFunctionTest() {
+		ArrayList<NumericElement<Integer>> input = createRandomInput(300000, 2000000);
+		FlashSortPartitionFunction<NumericElement<Integer>, Integer> serialFunc = new FlashSortPartitionFunction<NumericElement<Integer>, Integer>(input, 100);
+		FlashSortPartitionFunction<NumericElement<Integer>, Integer> parallelFunc = new FlashSortPartitionFunction<NumericElement<Integer>, Integer>(input, 100, POOL);
+		assertEquals(serialFunc.getNumClasses(), parallelFunc.getNumClasses());
+		for (int i = 0; i < input.size(); ++i) {
+			assertEquals(serialFunc.getClass(input.get(i)), parallelFunc.getClass(input.get(i)));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parallelFlashSortPartitionFunctionRejectsNullTest() {
+		ArrayList<NumericElement<Integer>> input = createRandomInput(200000, 2000);
+		input.set(150000, null);
+		new FlashSortPartitionFunction<NumericElement<Integer>, Integer>(input, 100, POOL);
+	}
+
+	@AfterClass
+	public static void shutDownPool() {
+		POOL.shutdown();
+	}
+
 	private void checkInput(FlashSortPartitionFunction<NumericElement<Integer>, Integer> func, ArrayList<NumericElement<Integer>> output, int[] classBounds, ArrayList<NumericElement<Integer>> origArray, int numOrigClasses) {
 		if (classBounds == null) {
 			printInputCode(origArray, numOrigClasses);
@@ -253,4 +278,6 @@ public class FlashSortTest {
 		System.out.println("checkInput(input, classBounds);");
 	}
 
+	/* Shared by the parallel tests, and shut down once they have all run. */
+	private static final ForkJoinPool POOL = new ForkJoinPool(4);
 }
@@ -0,0 +1,102 @@
+package mpigott.sort;
+
+import static mpigott.sort.PartitionChecks.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Tests partitioning an index of row ids by a key column, leaving the columns in place.
+ *
+ * @author Mike Pigott
+ *
+ */
+public class IndexPartitionTest {
+
+	@Test
+	public void longColumnTest() {
+		long[] timestamps = new long[100000];
+		Random random = new Random(42);
+		for (int row = 0; row < timestamps.length; ++row) {
+			timestamps[row] = 1500000000000L + (long) (random.nextGaussian() * 1000000.0);
+		}
+		long[] original = timestamps.clone();
+
+		int[] rowIds = createIndex(timestamps.length);
+		LongCdfPartitionFunction func = new LongCdfPartitionFunction(timestamps, 100, 0.05, 0.01);
+		int[] classBounds = CyclePartitioner.partition(rowIds, row -> timestamps[row], func, new PartitionOptions().setCacheClasses(true));
+
+		checkClasses(rowIds.length, index -> func.getClass(timestamps[rowIds[index]]), classBounds);
+		assertEquals(func.getNumClasses(), classBounds.length);
+		assertArrayEquals(original, timestamps);
+	}
+
+	@Test
+	public void doubleColumnParallelTest() {
+		double[] prices = new double[4 * ParallelPartitioner.MIN_PARALLEL_SIZE];
+		Random random = new Random(7);
+		for (int row = 0; row < prices.length; ++row) {
+			prices[row] = Math.exp(random.nextGaussian());
+		}
+
+		// Only every other row is in the index.
+		int[] rowIds = new int[prices.length / 2];
+		for (int index = 0; index < rowIds.length; ++index) {
+			rowIds[index] = 2 * index;
+		}
+
+		DoubleFlashSortPartitionFunction func = new DoubleFlashSortPartitionFunction(prices, 256);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		int[] classBounds;
+		try {
+			classBounds = CyclePartitioner.partition(rowIds, row -> prices[row], func, pool);
+		} finally {
+			pool.shutdown();
+		}
+
+		checkClasses(rowIds.length, index -> func.getClass(prices[rowIds[index]]), classBounds);
+
+		int[] sortedIds = rowIds.clone();
+		Arrays.sort(sortedIds);
+		for (int index = 0; index < sortedIds.length; ++index) {
+			assertEquals(2 * index, sortedIds[index]);
+		}
+	}
+
+	@Test
+	public void argsortTest() {
+		// Sorting by the minor column, then stably by the major column, gives the sort permutation of both.
+		int[] regions = new int[50000];
+		long[] quantities = new long[regions.length];
+		Random random = new Random(3);
+		for (int row = 0; row < regions.length; ++row) {
+			regions[row] = random.nextInt(16);
+			quantities[row] = random.nextInt(1000);
+		}
+
+		int[] rowIds = createIndex(regions.length);
+		PartitionOptions stable = new PartitionOptions().setStable(true);
+		CyclePartitioner.partition(rowIds, row -> quantities[row], new LongShiftPartitionFunction(0, 999, 1024), stable);
+		CyclePartitioner.partition(rowIds, row -> regions[row], new LongShiftPartitionFunction(0, 15, 16), stable);
+
+		for (int index = 1; index < rowIds.length; ++index) {
+			final int previous = rowIds[index - 1];
+			final int current = rowIds[index];
+			assertTrue((regions[previous] < regions[current])
+					|| ((regions[previous] == regions[current]) && (quantities[previous] < quantities[current]))
+					|| ((regions[previous] == regions[current]) && (quantities[previous] == quantities[current]) && (previous < current)));
+		}
+	}
+
+	private static int[] createIndex(int numRows) {
+		int[] rowIds = new int[numRows];
+		for (int row = 0; row < numRows; ++row) {
+			rowIds[row] = row;
+		}
+		return rowIds;
+	}
+}
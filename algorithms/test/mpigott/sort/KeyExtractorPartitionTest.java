@@ -0,0 +1,94 @@
+package mpigott.sort;
+
+import static mpigott.sort.PartitionChecks.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Tests partitioning plain objects by the keys a key extractor pulls out of them.
+ *
+ * @author Mike Pigott
+ *
+ */
+public class KeyExtractorPartitionTest {
+
+	@Test
+	public void doubleFlashSortTest() {
+		List<Trade> input = createTrades(20000);
+		DoubleFlashSortPartitionFunction func = new DoubleFlashSortPartitionFunction(input, Trade::getPrice, 100);
+
+		int[] classBounds = CyclePartitioner.partition(input, Trade::getPrice, func);
+		checkClasses(input.size(), index -> func.getClass(input.get(index).getPrice()), classBounds);
+	}
+
+	@Test
+	public void longCdfTest() {
+		List<Trade> input = createTrades(20000);
+		LongCdfPartitionFunction func = new LongCdfPartitionFunction(input, Trade::getTimestamp, 100, 0.05, 0.01);
+
+		int[] classBounds = CyclePartitioner.partition(input, Trade::getTimestamp, func,
+				new PartitionOptions().setCacheClasses(true));
+
+		checkClasses(input.size(), index -> func.getClass(input.get(index).getTimestamp()), classBounds);
+	}
+
+	@Test
+	public void arrayTest() {
+		Trade[] input = createTrades(10000).toArray(new Trade[0]);
+		DoubleCdfPartitionFunction func = new DoubleCdfPartitionFunction(Arrays.asList(input), Trade::getPrice, 50, 0.05, 0.01);
+
+		int[] classBounds = CyclePartitioner.partition(input, trade -> trade.getPrice(), func);
+		checkClasses(input.length, index -> func.getClass(input[index].getPrice()), classBounds);
+	}
+
+	@Test
+	public void parallelTest() {
+		List<Trade> input = createTrades(4 * ParallelPartitioner.MIN_PARALLEL_SIZE);
+		LongFlashSortPartitionFunction func = new LongFlashSortPartitionFunction(input, Trade::getTimestamp, 256);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		int[] classBounds;
+		try {
+			classBounds = CyclePartitioner.partition(input, Trade::getTimestamp, func, pool);
+		} finally {
+			pool.shutdown();
+		}
+
+		checkClasses(input.size(), index -> func.getClass(input.get(index).getTimestamp()), classBounds);
+	}
+
+	/* A domain object which does not implement Element. */
+	static final class Trade {
+		Trade(long timestamp, double price) {
+			this.timestamp = timestamp;
+			this.price = price;
+		}
+
+		long getTimestamp() {
+			return timestamp;
+		}
+
+		double getPrice() {
+			return price;
+		}
+
+		private final long timestamp;
+		private final double price;
+	}
+
+	private static List<Trade> createTrades(int numTrades) {
+		List<Trade> trades = new ArrayList<Trade>(numTrades);
+		Random random = new Random(numTrades);
+		for (int i = 0; i < numTrades; ++i) {
+			trades.add(new Trade(random.nextInt(1000000), 100.0 * Math.exp(random.nextGaussian())));
+		}
+		return trades;
+	}
+}
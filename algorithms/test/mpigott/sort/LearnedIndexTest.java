@@ -0,0 +1,106 @@
+package mpigott.sort;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests looking keys up in a sorted array by their class.
+ *
+ * @author Mike Pigott
+ *
+ */
+public class LearnedIndexTest {
+
+	@Test
+	public void longLookupTest() {
+		// Log-normal keys, with a heavy hitter, so the classes are fitted by the CDF.
+		Random random = new Random(42);
+		long[] keys = new long[200000];
+		for (int index = 0; index < keys.length; ++index) {
+			keys[index] = (random.nextInt(10) == 0) ? 1000 : (long) Math.exp(10.0 + 2.0 * random.nextGaussian());
+		}
+
+		LongCdfPartitionFunction func = new LongCdfPartitionFunction(keys, 16, 0.05, 0.01);
+		FlashSort.sort(keys, func);
+		LearnedIndex.OfLongs index = new LearnedIndex.OfLongs(keys, func);
+		assertEquals(keys.length, index.size());
+
+		for (int probe = 0; probe < 100000; ++probe) {
+			final long key = (probe % 2 == 0) ? keys[random.nextInt(keys.length)] : (long) Math.exp(10.0 + 3.0 * random.nextGaussian());
+			assertEquals("Lower bound of " + key, lowerBound(keys, key), index.lowerBound(key));
+			assertEquals("Upper bound of " + key, lowerBound(keys, key + 1), index.upperBound(key));
+
+			final int position = index.indexOf(key);
+			if (position >= 0) {
+				assertEquals(key, keys[position]);
+				assertTrue((position == 0) || (keys[position - 1] < key));
+			} else {
+				assertEquals(lowerBound(keys, key), -position - 1);
+			}
+		}
+
+		assertEquals(0, index.lowerBound(Long.MIN_VALUE));
+		assertEquals(keys.length, index.upperBound(Long.MAX_VALUE - 1));
+		assertEquals(lowerBound(keys, 1000), index.lowerBound(1000));
+		assertEquals(lowerBound(keys, 1001), index.upperBound(1000));
+	}
+
+	@Test
+	public void doubleLookupTest() {
+		Random random = new Random(7);
+		double[] keys = new double[100000];
+		for (int index = 0; index < keys.length; ++index) {
+			keys[index] = Math.round(random.nextGaussian() * 1000.0) / 10.0;
+		}
+
+		DoubleCdfPartitionFunction func = new DoubleCdfPartitionFunction(keys, 16, 0.05, 0.01);
+		FlashSort.sort(keys, func);
+		LearnedIndex.OfDoubles index = new LearnedIndex.OfDoubles(keys, func);
+
+		for (int probe = 0; probe < 50000; ++probe) {
+			final double key = Math.round(random.nextGaussian() * 1200.0) / 10.0;
+			final int first = index.lowerBound(key);
+			final int last = index.upperBound(key);
+			assertTrue((first == 0) || (keys[first - 1] < key));
+			assertTrue((first == keys.length) || (keys[first] >= key));
+			assertTrue((last == 0) || (keys[last - 1] <= key));
+			assertTrue((last == keys.length) || (keys[last] > key));
+			assertEquals((first < last) ? first : -first - 1, index.indexOf(key));
+		}
+	}
+
+	@Test
+	public void emptyClassesTest() {
+		long[] keys = { 0, 1, 2, 3, 1000, 1001, 1002 };
+		LearnedIndex.OfLongs index = new LearnedIndex.OfLongs(keys, new LongShiftPartitionFunction(0, 1023, 16));
+		assertEquals(16, index.getClassUpperBounds().length);
+		assertEquals(4, index.lowerBound(500));
+		assertEquals(-5, index.indexOf(500));
+		assertEquals(5, index.indexOf(1001));
+		assertEquals(7, index.upperBound(2000));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unsortedTest() {
+		long[] keys = { 1, 2, 3, 5, 4 };
+		new LearnedIndex.OfLongs(keys, new LongShiftPartitionFunction(1, 5, 2));
+	}
+
+	/* The index of the first key not less than the key. */
+	private static int lowerBound(long[] keys, long key) {
+		int low = 0;
+		int high = keys.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (keys[mid] < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,200 @@
+package mpigott.sort;
+
+import static mpigott.sort.PartitionChecks.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Tests the parallel partitioner, and the end-to-end {@link FlashSort}.
+ *
+ * @author Mike Pigott
+ *
+ */
+public class ParallelSortTest {
+
+	@Test
+	public void parallelPartitionListTest() {
+		ArrayList<NumericElement<Integer>> input = new ArrayList<NumericElement<Integer>>(300000);
+		Random random = new Random(42);
+		for (int i = 0; i < 300000; ++i) {
+			// Skewed, so the blocks each thread owns rarely match the classes it holds.
+			input.add(new NumericElement<Integer>((int) (Math.pow(random.nextDouble(), 3.0) * 1000000.0)));
+		}
+		ArrayList<NumericElement<Integer>> copy = new ArrayList<NumericElement<Integer>>(input);
+
+		FlashSortPartitionFunction<NumericElement<Integer>, Integer> func = new FlashSortPartitionFunction<NumericElement<Integer>, Integer>(input, 100);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		int[] classBounds;
+		try {
+			classBounds = CyclePartitioner.partition(input, func, pool);
+		} finally {
+			pool.shutdown();
+		}
+
+		int[] counts = new int[func.getNumClasses()];
+		for (NumericElement<Integer> element : copy) {
+			++counts[func.getClass(element)];
+		}
+		checkClasses(input.size(), index -> func.getClass(input.get(index)), classBounds);
+		checkClassSizes(counts, classBounds);
+	}
+
+	@Test
+	public void parallelPartitionDoublesTest() {
+		double[] input = new double[1000000];
+		Random random = new Random(42);
+		for (int i = 0; i < input.length; ++i) {
+			input[i] = random.nextGaussian() * 9000.0;
+		}
+		double[] expected = input.clone();
+		Arrays.sort(expected);
+
+		DoubleCdfPartitionFunction func = new DoubleCdfPartitionFunction(input, 1000, 0.05, 0.01);
+		ForkJoinPool pool = new ForkJoinPool(8);
+		int[] classBounds;
+		try {
+			classBounds = CyclePartitioner.partition(input, func, pool);
+		} finally {
+			pool.shutdown();
+		}
+
+		checkClasses(input.length, index -> func.getClass(input[index]), classBounds);
+
+		Arrays.sort(input);
+		assertArrayEquals(expected, input, 0.0);
+	}
+
+	@Test
+	public void sortListTest() {
+		ArrayList<NumericElement<Double>> input = new ArrayList<NumericElement<Double>>(200000);
+		Random random = new Random(42);
+		for (int i = 0; i < 200000; ++i) {
+			input.add(new NumericElement<Double>(random.nextGaussian() * 9000.0));
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			FlashSort.sort(input, new CdfPartitionFunction<NumericElement<Double>, Double>(input, 10000, 0.05, 0.01), pool);
+		} finally {
+			pool.shutdown();
+		}
+
+		for (int i = 1; i < input.size(); ++i) {
+			assertTrue("Element " + i + " is out of order.", input.get(i - 1).compareTo(input.get(i)) <= 0);
+		}
+	}
+
+	@Test
+	public void sortIntsTest() {
+		int[] input = new int[500000];
+		Random random = new Random(42);
+		for (int i = 0; i < input.length; ++i) {
+			input[i] = random.nextInt();
+		}
+		int[] expected = input.clone();
+		Arrays.sort(expected);
+
+		FlashSort.sort(input, new LongFlashSortPartitionFunction(input, 64));
+
+		assertArrayEquals(expected, input);
+	}
+
+	@Test
+	public void sortDoublesWithUnevenClassesTest() {
+		double[] input = new double[300000];
+		Random random = new Random(42);
+		for (int i = 0; i < input.length; ++i) {
+			// Most of the keys fall in the lowest few classes.
+			input[i] = Math.pow(random.nextDouble(), 8.0) * 1000000.0;
+		}
+		double[] expected = input.clone();
+		Arrays.sort(expected);
+
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			FlashSort.sort(input, new DoubleFlashSortPartitionFunction(input, 32), pool);
+		} finally {
+			pool.shutdown();
+		}
+
+		assertArrayEquals(expected, input, 0.0);
+	}
+
+	@Test
+	public void sortSingleClassTest() {
+		long[] input = { 5, 5, 5, 5, 5 };
+
+		FlashSort.sort(input, new LongFlashSortPartitionFunction(input, 4));
+
+		assertArrayEquals(new long[] { 5, 5, 5, 5, 5 }, input);
+	}
+
+	@Test
+	public void sortClusteredLongsTest() {
+		// Nearly every key is in one tiny cluster, with a few far-away outliers and many duplicates.
+		long[] input = new long[400000];
+		Random random = new Random(42);
+		for (int i = 0; i < input.length; ++i) {
+			if (i % 1000 == 0) {
+				input[i] = random.nextLong();
+			} else if (i % 3 == 0) {
+				input[i] = 12345L;
+			} else {
+				input[i] = 10000L + random.nextInt(5000);
+			}
+		}
+		long[] expected = input.clone();
+		Arrays.sort(expected);
+
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			FlashSort.sort(input, new LongFlashSortPartitionFunction(input, 1000), pool);
+		} finally {
+			pool.shutdown();
+		}
+
+		assertArrayEquals(expected, input);
+	}
+
+	@Test
+	public void sortClusteredFloatsTest() {
+		// Clusters much narrower than one, which a single class cannot separate.
+		float[] input = new float[200000];
+		Random random = new Random(42);
+		for (int i = 0; i < input.length; ++i) {
+			input[i] = (i % 2 == 0) ? random.nextFloat() * 0.001f : 1000.0f + random.nextFloat() * 0.001f;
+		}
+		float[] expected = input.clone();
+		Arrays.sort(expected);
+
+		FlashSort.sort(input, new DoubleFlashSortPartitionFunction(input, 100));
+
+		assertArrayEquals(expected, input, 0.0f);
+	}
+
+	@Test
+	public void sortClusteredListTest() {
+		ArrayList<NumericElement<Integer>> input = new ArrayList<NumericElement<Integer>>(100000);
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; ++i) {
+			input.add(new NumericElement<Integer>((i % 100 == 0) ? random.nextInt() : random.nextInt(100000)));
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			FlashSort.sort(input, new FlashSortPartitionFunction<NumericElement<Integer>, Integer>(input, 100), pool);
+		} finally {
+			pool.shutdown();
+		}
+
+		for (int i = 1; i < input.size(); ++i) {
+			assertTrue("Element " + i + " is out of order.", input.get(i - 1).compareTo(input.get(i)) <= 0);
+		}
+	}
+}
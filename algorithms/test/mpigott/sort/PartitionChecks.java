@@ -0,0 +1,53 @@
+package mpigott.sort;
+
+import static org.junit.Assert.*;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Checks of the class bounds returned by the {@link CyclePartitioner}, shared by its tests.
+ *
+ * @author Mike Pigott
+ *
+ */
+final class PartitionChecks {
+
+	private PartitionChecks() {
+	}
+
+	/**
+	 * Returns the index of the first element of the class.
+	 */
+	static int getLowerBound(int[] classBounds, int classNum) {
+		return (classNum == 0) ? 0 : classBounds[classNum - 1] + 1;
+	}
+
+	/**
+	 * Checks the classes end at the last of the <code>size</code> elements, and
+	 * that every element is in the class it belongs to.
+	 *
+	 * @param size        The number of elements partitioned.
+	 * @param classOf     Returns the class of the element at an index.
+	 * @param classBounds The class bounds returned by the partitioner.
+	 */
+	static void checkClasses(int size, IntUnaryOperator classOf, int[] classBounds) {
+		assertNotNull(classBounds);
+		assertEquals(size - 1, classBounds[classBounds.length - 1]);
+
+		for (int classNum = 0; classNum < classBounds.length; ++classNum) {
+			for (int index = getLowerBound(classBounds, classNum); index <= classBounds[classNum]; ++index) {
+				assertEquals("Element at " + index + " is in the wrong class.", classNum, classOf.applyAsInt(index));
+			}
+		}
+	}
+
+	/**
+	 * Checks each class holds as many elements as were counted in it before partitioning.
+	 */
+	static void checkClassSizes(int[] counts, int[] classBounds) {
+		assertEquals(counts.length, classBounds.length);
+		for (int classNum = 0; classNum < classBounds.length; ++classNum) {
+			assertEquals("Class " + classNum + " has the wrong size.", counts[classNum], classBounds[classNum] - getLowerBound(classBounds, classNum) + 1);
+		}
+	}
+}
@@ -0,0 +1,306 @@
+package mpigott.sort;
+
+import static mpigott.sort.PartitionChecks.*;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the optional partitioning modes of the {@link CyclePartitioner}.
+ *
+ * @author Mike Pigott
+ *
+ */
+public class PartitionOptionsTest {
+
+	@Test
+	public void cacheClassesTest() {
+		checkCacheClasses(100);
+	}
+
+	@Test
+	public void cacheClassesInShortsTest() {
+		checkCacheClasses(1000);
+	}
+
+	@Test
+	public void cacheClassesInIntsTest() {
+		checkCacheClasses(70000);
+	}
+
+	@Test
+	public void exactBoundsTest() {
+		double[] input = createSkewedInput(200000);
+		double[] copy = input.clone();
+
+		DoubleFlashSortPartitionFunction func = new DoubleFlashSortPartitionFunction(input, 1000);
+		CountingTarget target = new CountingTarget(new PartitionTarget.OfDoubles(input, func));
+		int[] classBounds = CyclePartitioner.partition(target, new PartitionOptions().setClassBounds(PartitionOptions.ClassBounds.EXACT));
+
+		assertTrue("At most N swaps should be made (" + target.swaps + ").", target.swaps <= input.length);
+		checkPartition(copy, input, func, classBounds);
+	}
+
+	@Test
+	public void automaticBoundsTest() {
+		double[] skewedInput = createSkewedInput(200000);
+		assertTrue(CyclePartitioner.isSkewed(new PartitionTarget.OfDoubles(skewedInput, new DoubleFlashSortPartitionFunction(skewedInput, 1000))));
+
+		double[] evenInput = new double[200000];
+		Random random = new Random(42);
+		for (int i = 0; i < evenInput.length; ++i) {
+			evenInput[i] = random.nextDouble();
+		}
+		assertFalse(CyclePartitioner.isSkewed(new PartitionTarget.OfDoubles(evenInput, new DoubleFlashSortPartitionFunction(evenInput, 1000))));
+
+		double[] copy = skewedInput.clone();
+		DoubleFlashSortPartitionFunction func = new DoubleFlashSortPartitionFunction(skewedInput, 1000);
+		int[] classBounds = CyclePartitioner.partition(skewedInput, func, new PartitionOptions().setClassBounds(PartitionOptions.ClassBounds.AUTOMATIC));
+		checkPartition(copy, skewedInput, func, classBounds);
+	}
+
+	@Test
+	public void exactBoundsWithCachedClassesTest() {
+		double[] input = createSkewedInput(100000);
+		double[] copy = input.clone();
+
+		DoubleCdfPartitionFunction func = new DoubleCdfPartitionFunction(input, 100, 0.05, 0.01);
+		int[] classBounds = CyclePartitioner.partition(input, func,
+				new PartitionOptions().setCacheClasses(true).setClassBounds(PartitionOptions.ClassBounds.AUTOMATIC));
+
+		checkPartition(copy, input, func, classBounds);
+	}
+
+	@Test
+	public void statisticsTest() {
+		double[] input = createSkewedInput(50000);
+		double[] copy = input.clone();
+
+		DoubleFlashSortPartitionFunction func = new DoubleFlashSortPartitionFunction(input, 100);
+		CountingTarget target = new CountingTarget(new PartitionTarget.OfDoubles(input, func));
+		PartitionStatistics stats = new PartitionStatistics();
+		int[] classBounds = CyclePartitioner.partition(target, new PartitionOptions().setStatistics(stats));
+		checkPartition(copy, input, func, classBounds);
+
+		assertEquals(target.swaps, stats.getMoves());
+		assertTrue(stats.getCycles() > 0);
+		assertTrue("Skewed input should expand its classes.", stats.getExpansions() > 0);
+		assertTrue(stats.getNeighborsShrunk() >= stats.getLongestCascade());
+
+		int[] classSizes = stats.getClassSizes();
+		assertEquals(classBounds.length, classSizes.length);
+		int total = 0;
+		for (int classNum = 0; classNum < classSizes.length; ++classNum) {
+			total += classSizes[classNum];
+			assertTrue(classSizes[classNum] >= stats.getMinClassSize());
+			assertTrue(classSizes[classNum] <= stats.getMaxClassSize());
+		}
+		assertEquals(input.length, total);
+		assertTrue(stats.getClassSizeStandardDeviation() > 0.0);
+
+		// With exact bounds, no class ever needs to expand.
+		input = copy.clone();
+		CyclePartitioner.partition(input, func, new PartitionOptions().setStatistics(stats).setClassBounds(PartitionOptions.ClassBounds.EXACT));
+		assertEquals(0, stats.getExpansions());
+		assertEquals(0, stats.getLongestCascade());
+		assertTrue(stats.getMoves() <= input.length);
+
+		// Nothing to partition.
+		CyclePartitioner.partition(new double[1], func, new PartitionOptions().setStatistics(stats));
+		assertEquals(0, stats.getMoves());
+		assertNull(stats.getClassSizes());
+	}
+
+	@Test
+	public void cascadeBudgetTest() {
+		double[] input = createSkewedInput(50000);
+		double[] copy = input.clone();
+		DoubleFlashSortPartitionFunction func = new DoubleFlashSortPartitionFunction(input, 1000);
+
+		// Without a budget, the skewed classes cascade far more than once per element.
+		PartitionStatistics unbounded = new PartitionStatistics();
+		int[] classBounds = CyclePartitioner.partition(input, func, new PartitionOptions().setStatistics(unbounded).setCascadeBudget(Double.POSITIVE_INFINITY));
+		checkPartition(copy, input, func, classBounds);
+		assertFalse(unbounded.isReplanned());
+		assertTrue(unbounded.getMoves() + unbounded.getNeighborsShrunk() > 2 * input.length);
+
+		// With a budget, the partitioner stops, counts the bounds exactly, and finishes with at most N more moves.
+		input = copy.clone();
+		PartitionStatistics bounded = new PartitionStatistics();
+		classBounds = CyclePartitioner.partition(input, func, new PartitionOptions().setStatistics(bounded).setCascadeBudget(1.0));
+		checkPartition(copy, input, func, classBounds);
+		assertTrue(bounded.isReplanned());
+		assertTrue(bounded.getMoves() + bounded.getNeighborsShrunk() <= 2 * input.length + 1);
+
+		// Exact bounds never cascade, so never need to re-plan.
+		input = copy.clone();
+		CyclePartitioner.partition(input, func, new PartitionOptions().setStatistics(bounded).setCascadeBudget(0.0).setClassBounds(PartitionOptions.ClassBounds.EXACT));
+		assertFalse(bounded.isReplanned());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeCascadeBudgetTest() {
+		new PartitionOptions().setCascadeBudget(-1.0);
+	}
+
+	@Test
+	public void stableTest() {
+		double[] input = createSkewedInput(100000);
+		double[] copy = input.clone();
+
+		DoubleFlashSortPartitionFunction func = new DoubleFlashSortPartitionFunction(input, 1000);
+		int[] classBounds = CyclePartitioner.partition(input, func, new PartitionOptions().setStable(true));
+		checkPartition(copy, input, func, classBounds);
+
+		// Each class holds its elements in their original order.
+		int[] nextPositions = new int[classBounds.length];
+		for (int classNum = 1; classNum < classBounds.length; ++classNum) {
+			nextPositions[classNum] = classBounds[classNum - 1] + 1;
+		}
+		for (double value : copy) {
+			assertEquals(value, input[nextPositions[func.getClass(value)]++], 0.0);
+		}
+
+		// Permuting with swaps, instead of through a buffer, gives the same output.
+		double[] swapped = copy.clone();
+		CountingTarget target = new CountingTarget(new PartitionTarget.OfDoubles(swapped, func));
+		assertArrayEquals(classBounds, CyclePartitioner.partition(target, new PartitionOptions().setStable(true)));
+		assertArrayEquals(input, swapped, 0.0);
+	}
+
+	@Test
+	public void stableMultiKeyTest() {
+		// Sorting by the minor key, then stably by the major key, sorts by both.
+		List<int[]> rows = new ArrayList<int[]>();
+		Random random = new Random(3);
+		for (int i = 0; i < 50000; ++i) {
+			rows.add(new int[] { random.nextInt(64), random.nextInt(1024) });
+		}
+		List<int[]> expected = new ArrayList<int[]>(rows);
+		Collections.sort(expected, (first, second) -> (first[0] != second[0]) ? Integer.compare(first[0], second[0]) : Integer.compare(first[1], second[1]));
+
+		CyclePartitioner.partition(rows, row -> row[1], new LongShiftPartitionFunction(0, 1023, 1024), new PartitionOptions().setStable(true));
+		CyclePartitioner.partition(rows, row -> row[0], new LongShiftPartitionFunction(0, 63, 64), new PartitionOptions().setStable(true));
+		for (int i = 0; i < rows.size(); ++i) {
+			assertArrayEquals(expected.get(i), rows.get(i));
+		}
+	}
+
+	@Test
+	public void stableRecordsTest() {
+		// 12-byte records: an 8-byte key, then the record's original position.
+		ByteBuffer buffer = ByteBuffer.allocate(4 + 12 * 20000);
+		buffer.position(4);
+		Random random = new Random(5);
+		for (int i = 0; i < 20000; ++i) {
+			buffer.putLong(4 + 12 * i, random.nextInt(100));
+			buffer.putInt(4 + 12 * i + 8, i);
+		}
+		FixedWidthRecords records = new FixedWidthRecords(buffer, 12, 0);
+
+		LongShiftPartitionFunction func = new LongShiftPartitionFunction(0, 99, 16);
+		int[] classBounds = CyclePartitioner.partition(records, func, new PartitionOptions().setStable(true));
+		checkClasses(records.size(), index -> func.getClass(records.getLongKey(index)), classBounds);
+
+		for (int classNum = 0; classNum < classBounds.length; ++classNum) {
+			for (int index = getLowerBound(classBounds, classNum) + 1; index <= classBounds[classNum]; ++index) {
+				assertTrue(buffer.getInt(4 + 12 * index + 8) > buffer.getInt(4 + 12 * (index - 1) + 8));
+			}
+		}
+	}
+
+	private static double[] createSkewedInput(int numElems) {
+		double[] input = new double[numElems];
+		Random random = new Random(numElems);
+		for (int i = 0; i < numElems; ++i) {
+			input[i] = Math.pow(random.nextDouble(), 4.0) * 1000000.0;
+		}
+		return input;
+	}
+
+	/* Checks the classes hold exactly the elements that classify into them. */
+	private static void checkPartition(double[] original, double[] output, DoublePartitionFunction func, int[] classBounds) {
+		int[] counts = new int[func.getNumClasses()];
+		for (double value : original) {
+			++counts[func.getClass(value)];
+		}
+
+		checkClasses(output.length, index -> func.getClass(output[index]), classBounds);
+		checkClassSizes(counts, classBounds);
+	}
+
+	/* Counts the swaps made by the partitioner. */
+	static final class CountingTarget extends PartitionTarget {
+		CountingTarget(PartitionTarget target) {
+			this.target = target;
+		}
+
+		int size() {
+			return target.size();
+		}
+
+		int getNumClasses() {
+			return target.getNumClasses();
+		}
+
+		int getClass(int index) {
+			return target.getClass(index);
+		}
+
+		void swap(int first, int second) {
+			++swaps;
+			target.swap(first, second);
+		}
+
+		int swaps;
+		private final PartitionTarget target;
+	}
+
+	private void checkCacheClasses(int numClasses) {
+		// A shuffled permutation, so even tiny classes are evenly filled.
+		long[] input = new long[4 * numClasses];
+		Random random = new Random(numClasses);
+		for (int i = 0; i < input.length; ++i) {
+			final int swapIndex = random.nextInt(i + 1);
+			input[i] = input[swapIndex];
+			input[swapIndex] = i;
+		}
+		long[] uncached = input.clone();
+
+		CountingPartitionFunction func = new CountingPartitionFunction(new LongFlashSortPartitionFunction(input, numClasses));
+		int[] uncachedBounds = CyclePartitioner.partition(uncached, func);
+		assertTrue(func.calls > input.length);
+
+		func.calls = 0;
+		int[] cachedBounds = CyclePartitioner.partition(input, func, new PartitionOptions().setCacheClasses(true));
+
+		assertEquals("Every element should be classified exactly once.", input.length, func.calls);
+		assertArrayEquals(uncachedBounds, cachedBounds);
+		assertArrayEquals(uncached, input);
+	}
+
+	/* Counts the calls to getClass(). */
+	static final class CountingPartitionFunction implements LongPartitionFunction {
+		CountingPartitionFunction(LongPartitionFunction partitionFunction) {
+			this.partitionFunction = partitionFunction;
+		}
+
+		public int getNumClasses() {
+			return partitionFunction.getNumClasses();
+		}
+
+		public int getClass(long value) {
+			++calls;
+			return partitionFunction.getClass(value);
+		}
+
+		int calls;
+		private final LongPartitionFunction partitionFunction;
+	}
+}
@@ -0,0 +1,162 @@
+package mpigott.sort;
+
+import static mpigott.sort.PartitionChecks.*;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Tests partitioning keys along with parallel arrays of payloads.
+ *
+ * @author Mike Pigott
+ *
+ */
+public class PayloadPartitionTest {
+
+	@Test
+	public void payloadTest() {
+		final int numRows = 100000;
+		long[] keys = new long[numRows];
+		long[] originalKeys = new long[numRows];
+		double[] prices = new double[numRows];
+		int[] rows = new int[numRows];
+		String[] labels = new String[numRows];
+		createColumns(new Random(42), keys, originalKeys, prices, rows, labels);
+
+		LongCdfPartitionFunction func = new LongCdfPartitionFunction(keys, 100, 0.05, 0.01);
+		int[] classBounds = CyclePartitioner.partition(keys, func, new Payloads(prices, rows, labels));
+
+		checkClasses(keys.length, index -> func.getClass(keys[index]), classBounds);
+		checkRows(keys, originalKeys, prices, rows, labels);
+	}
+
+	@Test
+	public void optionsTest() {
+		final int numRows = 50000;
+		long[] keys = new long[numRows];
+		long[] originalKeys = new long[numRows];
+		double[] prices = new double[numRows];
+		int[] rows = new int[numRows];
+		String[] labels = new String[numRows];
+		createColumns(new Random(7), keys, originalKeys, prices, rows, labels);
+
+		LongFlashSortPartitionFunction func = new LongFlashSortPartitionFunction(keys, 256);
+		int[] classBounds = CyclePartitioner.partition(keys, func, new Payloads(prices, rows, labels),
+				new PartitionOptions().setCacheClasses(true).setClassBounds(PartitionOptions.ClassBounds.EXACT));
+		checkClasses(keys.length, index -> func.getClass(keys[index]), classBounds);
+		checkRows(keys, originalKeys, prices, rows, labels);
+
+		// A stable partition keeps the rows of each class in their original order.
+		createColumns(new Random(7), keys, originalKeys, prices, rows, labels);
+		classBounds = CyclePartitioner.partition(keys, func, new Payloads(prices, rows, labels), new PartitionOptions().setStable(true));
+		checkClasses(keys.length, index -> func.getClass(keys[index]), classBounds);
+		checkRows(keys, originalKeys, prices, rows, labels);
+
+		for (int classNum = 0; classNum < classBounds.length; ++classNum) {
+			for (int index = getLowerBound(classBounds, classNum) + 1; index <= classBounds[classNum]; ++index) {
+				assertTrue(rows[index - 1] < rows[index]);
+			}
+		}
+	}
+
+	@Test
+	public void parallelTest() {
+		final int numRows = 4 * ParallelPartitioner.MIN_PARALLEL_SIZE;
+		long[] keys = new long[numRows];
+		long[] originalKeys = new long[numRows];
+		double[] prices = new double[numRows];
+		int[] rows = new int[numRows];
+		String[] labels = new String[numRows];
+		createColumns(new Random(3), keys, originalKeys, prices, rows, labels);
+
+		LongFlashSortPartitionFunction func = new LongFlashSortPartitionFunction(keys, 256);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		int[] classBounds;
+		try {
+			classBounds = CyclePartitioner.partition(keys, func, new Payloads(prices, rows, labels), pool);
+		} finally {
+			pool.shutdown();
+		}
+
+		checkClasses(keys.length, index -> func.getClass(keys[index]), classBounds);
+		checkRows(keys, originalKeys, prices, rows, labels);
+	}
+
+	@Test
+	public void doubleKeysTest() {
+		Random random = new Random(5);
+		double[] keys = new double[20000];
+		short[] shorts = new short[keys.length];
+		boolean[] flags = new boolean[keys.length];
+		for (int row = 0; row < keys.length; ++row) {
+			shorts[row] = (short) random.nextInt();
+			keys[row] = shorts[row] / 7.0;
+			flags[row] = (shorts[row] % 2 == 0);
+		}
+
+		DoubleFlashSortPartitionFunction func = new DoubleFlashSortPartitionFunction(keys, 64);
+		int[] classBounds = CyclePartitioner.partition(keys, func, new Payloads(shorts, flags));
+		assertNotNull(classBounds);
+
+		for (int row = 0; row < keys.length; ++row) {
+			assertEquals(shorts[row] / 7.0, keys[row], 0.0);
+			assertEquals(shorts[row] % 2 == 0, flags[row]);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void mismatchedLengthTest() {
+		long[] keys = { 3, 1, 2 };
+		CyclePartitioner.partition(keys, new LongShiftPartitionFunction(1, 3, 4), new Payloads(new int[3], new double[2]));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shortPayloadTest() {
+		long[] keys = { 3, 1, 2 };
+		CyclePartitioner.partition(keys, new LongShiftPartitionFunction(1, 3, 4), new Payloads(new int[2]));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void notAnArrayTest() {
+		new Payloads(new int[3], "not an array");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void keysAsPayloadTest() {
+		long[] keys = { 3, 1, 2 };
+		CyclePartitioner.partition(keys, new LongShiftPartitionFunction(1, 3, 4), new Payloads(new int[3], keys));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void duplicatePayloadTest() {
+		double[] prices = new double[3];
+		new Payloads(prices, new int[3], prices);
+	}
+
+	/* Each row's payloads are derived from its original row number. */
+	private static void createColumns(Random random, long[] keys, long[] originalKeys, double[] prices, int[] rows, String[] labels) {
+		for (int row = 0; row < keys.length; ++row) {
+			keys[row] = (long) (Math.exp(random.nextGaussian()) * 1000000.0);
+			originalKeys[row] = keys[row];
+			prices[row] = row * 0.5;
+			rows[row] = row;
+			labels[row] = Integer.toString(row);
+		}
+	}
+
+	/* Checks every row's payloads moved with its key. */
+	private static void checkRows(long[] keys, long[] originalKeys, double[] prices, int[] rows, String[] labels) {
+		boolean[] seen = new boolean[keys.length];
+		for (int index = 0; index < keys.length; ++index) {
+			final int row = rows[index];
+			assertFalse(seen[row]);
+			seen[row] = true;
+			assertEquals(originalKeys[row], keys[index]);
+			assertEquals(row * 0.5, prices[index], 0.0);
+			assertEquals(Integer.toString(row), labels[index]);
+		}
+	}
+}
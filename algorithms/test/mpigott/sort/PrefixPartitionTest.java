@@ -0,0 +1,113 @@
+package mpigott.sort;
+
+import static mpigott.sort.PartitionChecks.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests partitioning and sorting <code>String</code> and <code>byte[]</code> keys by their prefixes.
+ *
+ * @author Mike Pigott
+ *
+ */
+public class PrefixPartitionTest {
+
+	@Test
+	public void prefixOrderTest() {
+		String[] keys = createKeys(new Random(42), 2000, "");
+		for (int index = 1; index < keys.length; ++index) {
+			final long first = PrefixPartitionFunction.getPrefix(keys[index - 1], 0);
+			final long second = PrefixPartitionFunction.getPrefix(keys[index], 0);
+			final int comparison = keys[index - 1].compareTo(keys[index]);
+			if (first != second) {
+				assertEquals(keys[index - 1] + " vs. " + keys[index], Long.signum(first - second) > 0, comparison > 0);
+			}
+		}
+
+		assertTrue(PrefixPartitionFunction.getPrefix(new byte[] { (byte) 0x80 }, 0) > PrefixPartitionFunction.getPrefix(new byte[] { 0x7F, 0x7F }, 0));
+		assertEquals(PrefixPartitionFunction.getPrefix("ab", 0), PrefixPartitionFunction.getPrefix("ab\0", 0));
+	}
+
+	@Test
+	public void commonStemTest() {
+		String[] keys = createKeys(new Random(7), 20000, "SYMBOL-");
+		PrefixPartitionFunction func = new PrefixPartitionFunction(keys, 256);
+		assertEquals(4, func.getDepth());
+		assertTrue(func.getNumClasses() > 1);
+
+		int[] classBounds = CyclePartitioner.partition(keys, key -> PrefixPartitionFunction.getPrefix(key, func.getDepth()), func);
+		checkClasses(keys.length, index -> func.getClass(keys[index]), classBounds);
+	}
+
+	@Test
+	public void identicalKeysTest() {
+		String[] keys = new String[100];
+		Arrays.fill(keys, "same-key");
+		PrefixPartitionFunction func = new PrefixPartitionFunction(keys, 16);
+		assertEquals(1, func.getNumClasses());
+		assertEquals(4, func.getDepth());
+	}
+
+	@Test
+	public void sortStringsTest() {
+		String[] keys = createKeys(new Random(1), 200000, "ID-000");
+		String[] expected = keys.clone();
+		Arrays.sort(expected);
+
+		FlashSort.sort(keys);
+		assertArrayEquals(expected, keys);
+	}
+
+	@Test
+	public void sortByteArraysTest() {
+		Random random = new Random(3);
+		byte[][] keys = new byte[100000][];
+		for (int index = 0; index < keys.length; ++index) {
+			keys[index] = new byte[random.nextInt(20)];
+			random.nextBytes(keys[index]);
+			if (keys[index].length > 10) {
+				Arrays.fill(keys[index], 0, 10, (byte) 0xFF);
+			}
+		}
+		byte[][] expected = keys.clone();
+		Arrays.sort(expected, ByteArrayElement::compare);
+
+		FlashSort.sort(keys);
+		for (int index = 0; index < keys.length; ++index) {
+			assertTrue("Key at " + index + " is out of order.", Arrays.equals(expected[index], keys[index]));
+		}
+	}
+
+	@Test
+	public void stringElementTest() {
+		List<StringElement> input = new ArrayList<StringElement>();
+		for (String key : createKeys(new Random(5), 20000, "")) {
+			input.add(new StringElement(key));
+		}
+
+		FlashSortPartitionFunction<StringElement, String> func = new FlashSortPartitionFunction<StringElement, String>(input, 100);
+		int[] classBounds = CyclePartitioner.partition(input, func);
+		checkClasses(input.size(), index -> func.getClass(input.get(index)), classBounds);
+	}
+
+	/* Random keys of up to 12 letters and digits after the stem. */
+	private static String[] createKeys(Random random, int numKeys, String stem) {
+		final String alphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+		String[] keys = new String[numKeys];
+		for (int index = 0; index < numKeys; ++index) {
+			StringBuilder key = new StringBuilder(stem);
+			final int length = random.nextInt(13);
+			for (int letter = 0; letter < length; ++letter) {
+				key.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			keys[index] = key.toString();
+		}
+		return keys;
+	}
+}
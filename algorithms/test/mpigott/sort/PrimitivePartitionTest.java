@@ -0,0 +1,380 @@
+package mpigott.sort;
+
+import static mpigott.sort.PartitionChecks.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the primitive-array overloads of the {@link CyclePartitioner}.
+ *
+ * @author Mike Pigott
+ *
+ */
+public class PrimitivePartitionTest {
+
+	@Test
+	public void intFlashSortTest() {
+		int[] input = new int[10000];
+		Random random = new Random(42);
+		for (int i = 0; i < input.length; ++i) {
+			input[i] = random.nextInt(20000) - 10000;
+		}
+		int[] copy = input.clone();
+
+		LongFlashSortPartitionFunction func = new LongFlashSortPartitionFunction(input, 100);
+		int[] classBounds = CyclePartitioner.partition(input, func);
+
+		assertNotNull(classBounds);
+		assertEquals(100, classBounds.length);
+		checkClasses(input.length, index -> func.getClass(input[index]), classBounds);
+		assertSamePermutation(copy, input);
+	}
+
+	@Test
+	public void longCdfTest() {
+		long[] input = new long[100000];
+		Random random = new Random(42);
+		for (int i = 0; i < input.length; ++i) {
+			input[i] = (long) (random.nextGaussian() * 1000000.0);
+		}
+		long[] copy = input.clone();
+
+		LongCdfPartitionFunction func = new LongCdfPartitionFunction(input, 1000, 0.05, 0.01);
+		int[] classBounds = CyclePartitioner.partition(input, func);
+
+		checkClasses(input.length, index -> func.getClass(input[index]), classBounds);
+
+		Arrays.sort(copy);
+		Arrays.sort(input);
+		assertArrayEquals(copy, input);
+	}
+
+	@Test
+	public void longShiftTest() {
+		// Neighboring keys beyond 2^53, which a double cannot tell apart.
+		long[] input = new long[20000];
+		Random random = new Random(42);
+		for (int i = 0; i < input.length; ++i) {
+			input[i] = (1L << 60) + random.nextInt(1024);
+		}
+		long[] copy = input.clone();
+
+		LongShiftPartitionFunction func = new LongShiftPartitionFunction(input, 1024);
+		assertEquals(1024, func.getNumClasses());
+
+		int[] classBounds = CyclePartitioner.partition(input, func);
+
+		assertNotNull(classBounds);
+		for (int classNum = 0; classNum < classBounds.length; ++classNum) {
+			for (int index = getLowerBound(classBounds, classNum); index <= classBounds[classNum]; ++index) {
+				assertEquals("Element at " + index + " is in the wrong class.", (1L << 60) + classNum, input[index]);
+			}
+		}
+
+		Arrays.sort(copy);
+		Arrays.sort(input);
+		assertArrayEquals(copy, input);
+	}
+
+	@Test
+	public void intShiftFullRangeTest() {
+		int[] input = { Integer.MAX_VALUE, 0, -1, Integer.MIN_VALUE, 1 << 30, -(1 << 30) };
+
+		// A power of two no larger than the request, over the whole range of ints.
+		LongShiftPartitionFunction func = new LongShiftPartitionFunction(input, 100);
+		assertEquals(64, func.getNumClasses());
+
+		int[] classBounds = CyclePartitioner.partition(input, func);
+		assertNotNull(classBounds);
+
+		int[] expected = { Integer.MIN_VALUE, -(1 << 30), -1, 0, 1 << 30, Integer.MAX_VALUE };
+		assertArrayEquals(expected, input);
+		assertEquals(0, func.getClass(Integer.MIN_VALUE));
+		assertEquals(63, func.getClass(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void longShiftFullRangeTest() {
+		long[] input = { Long.MAX_VALUE, 5L, Long.MIN_VALUE, -5L, 0L };
+
+		// The whole range of longs needs all 64 bits, so two classes are a shift of 63.
+		LongShiftPartitionFunction func = new LongShiftPartitionFunction(input, 2);
+		assertEquals(2, func.getNumClasses());
+		assertEquals(0, func.getClass(Long.MIN_VALUE));
+		assertEquals(0, func.getClass(-5L));
+		assertEquals(1, func.getClass(0L));
+		assertEquals(1, func.getClass(5L));
+		assertEquals(1, func.getClass(Long.MAX_VALUE));
+
+		int[] classBounds = CyclePartitioner.partition(input, func);
+		assertArrayEquals(new int[] { 1, 4 }, classBounds);
+		for (int index = 0; index < input.length; ++index) {
+			assertEquals((index <= classBounds[0]) ? 0 : 1, func.getClass(input[index]));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void longShiftOneClassTest() {
+		new LongShiftPartitionFunction(new long[] { Long.MIN_VALUE, 5L, Long.MAX_VALUE }, 1);
+	}
+
+	@Test
+	public void batchClassificationTest() {
+		long[] longs = new long[5000];
+		int[] ints = new int[longs.length];
+		double[] doubles = new double[longs.length];
+		float[] floats = new float[longs.length];
+		Random random = new Random(42);
+		for (int i = 0; i < longs.length; ++i) {
+			ints[i] = random.nextInt(1000000) - 500000;
+			longs[i] = ints[i];
+			doubles[i] = random.nextGaussian() * 1000.0;
+			floats[i] = (float) doubles[i];
+		}
+
+		LongPartitionFunction[] longFuncs = {
+				new LongFlashSortPartitionFunction(longs, 100),
+				new LongCdfPartitionFunction(longs, 50, 0.05, 0.01),
+				new LongShiftPartitionFunction(longs, 100) };
+		for (LongPartitionFunction func : longFuncs) {
+			int[] classes = new int[longs.length];
+			func.getClasses(longs, 10, longs.length, classes);
+			for (int i = 10; i < longs.length; ++i) {
+				assertEquals(func.getClass(longs[i]), classes[i - 10]);
+			}
+			func.getClasses(ints, 0, ints.length, classes);
+			for (int i = 0; i < ints.length; ++i) {
+				assertEquals(func.getClass(ints[i]), classes[i]);
+			}
+		}
+
+		DoublePartitionFunction[] doubleFuncs = {
+				new DoubleFlashSortPartitionFunction(doubles, 100),
+				new DoubleCdfPartitionFunction(doubles, 50, 0.05, 0.01) };
+		for (DoublePartitionFunction func : doubleFuncs) {
+			int[] classes = new int[doubles.length];
+			func.getClasses(doubles, 10, doubles.length, classes);
+			for (int i = 10; i < doubles.length; ++i) {
+				assertEquals(func.getClass(doubles[i]), classes[i - 10]);
+			}
+			func.getClasses(floats, 0, floats.length, classes);
+			for (int i = 0; i < floats.length; ++i) {
+				assertEquals(func.getClass(floats[i]), classes[i]);
+			}
+		}
+	}
+
+	@Test
+	public void floatFlashSortTest() {
+		float[] input = new float[5000];
+		Random random = new Random(42);
+		for (int i = 0; i < input.length; ++i) {
+			input[i] = random.nextFloat() * 5000.0f;
+		}
+		float[] copy = input.clone();
+
+		DoubleFlashSortPartitionFunction func = new DoubleFlashSortPartitionFunction(input, 50);
+		int[] classBounds = CyclePartitioner.partition(input, func);
+
+		checkClasses(input.length, index -> func.getClass(input[index]), classBounds);
+
+		Arrays.sort(copy);
+		Arrays.sort(input);
+		assertArrayEquals(copy, input, 0.0f);
+	}
+
+	@Test
+	public void doubleCdfTest() {
+		double[] input = new double[100000];
+		Random random = new Random(42);
+		for (int i = 0; i < input.length; ++i) {
+			input[i] = random.nextGaussian() * 9000.0;
+		}
+		double[] copy = input.clone();
+
+		DoubleCdfPartitionFunction func = new DoubleCdfPartitionFunction(input, 1000, 0.05, 0.01);
+		int[] classBounds = CyclePartitioner.partition(input, func);
+
+		checkClasses(input.length, index -> func.getClass(input[index]), classBounds);
+
+		Arrays.sort(copy);
+		Arrays.sort(input);
+		assertArrayEquals(copy, input, 0.0);
+	}
+
+	@Test
+	public void sameBoundsAsElementPartitionTest() {
+		double[] input = new double[10000];
+		Random random = new Random(7);
+		for (int i = 0; i < input.length; ++i) {
+			input[i] = random.nextDouble() * 300000.0;
+		}
+
+		ArrayList<NumericElement<Double>> elements = new ArrayList<NumericElement<Double>>(input.length);
+		for (int i = 0; i < input.length; ++i) {
+			elements.add(new NumericElement<Double>(input[i]));
+		}
+
+		int[] elementBounds = CyclePartitioner.partition(elements, new FlashSortPartitionFunction<NumericElement<Double>, Double>(elements, 40));
+		int[] primitiveBounds = CyclePartitioner.partition(input, new DoubleFlashSortPartitionFunction(input, 40));
+
+		assertArrayEquals(elementBounds, primitiveBounds);
+		for (int i = 0; i < input.length; ++i) {
+			assertEquals(elements.get(i).getValue().doubleValue(), input[i], 0.0);
+		}
+	}
+
+	@Test
+	public void sameClassesAsElementFunctionTest() {
+		double[] gaussian = new double[200000];
+		long[] whole = new long[gaussian.length];
+		double[] wholeDoubles = new double[whole.length];
+		Random random = new Random(42);
+		for (int i = 0; i < gaussian.length; ++i) {
+			gaussian[i] = random.nextGaussian() * 9000.0;
+			whole[i] = random.nextInt(1001);
+			wholeDoubles[i] = whole[i];
+		}
+
+		// Whole-number keys often land exactly on a class boundary, where the order of the arithmetic matters.
+		for (double[] keys : new double[][] { gaussian, wholeDoubles }) {
+			ArrayList<NumericElement<Double>> elements = new ArrayList<NumericElement<Double>>(keys.length);
+			for (double key : keys) {
+				elements.add(new NumericElement<Double>(key));
+			}
+
+			FlashSortPartitionFunction<NumericElement<Double>, Double> elementFunc = new FlashSortPartitionFunction<NumericElement<Double>, Double>(elements, 100);
+			DoubleFlashSortPartitionFunction func = new DoubleFlashSortPartitionFunction(keys, 100);
+			for (int i = 0; i < keys.length; ++i) {
+				assertEquals("Key " + keys[i], elementFunc.getClass(elements.get(i)), func.getClass(keys[i]));
+			}
+		}
+
+		ArrayList<NumericElement<Long>> elements = new ArrayList<NumericElement<Long>>(whole.length);
+		for (long key : whole) {
+			elements.add(new NumericElement<Long>(key));
+		}
+
+		FlashSortPartitionFunction<NumericElement<Long>, Long> elementFunc = new FlashSortPartitionFunction<NumericElement<Long>, Long>(elements, 100);
+		LongFlashSortPartitionFunction func = new LongFlashSortPartitionFunction(whole, 100);
+		for (int i = 0; i < whole.length; ++i) {
+			assertEquals("Key " + whole[i], elementFunc.getClass(elements.get(i)), func.getClass(whole[i]));
+		}
+	}
+
+	@Test
+	public void largeDoubleKeysTest() {
+		// The number of classes times the largest key would overflow to infinity.
+		double[] input = { 0.0, 1e306, 5e305, 1.0 };
+		DoubleFlashSortPartitionFunction func = new DoubleFlashSortPartitionFunction(input, 1000);
+		assertEquals(999, func.getClass(1e306));
+		assertEquals(500, func.getClass(5e305));
+		assertEquals(0, func.getClass(1.0));
+
+		int[] classBounds = CyclePartitioner.partition(input, func);
+		assertEquals(1000, classBounds.length);
+		assertArrayEquals(new double[] { 0.0, 1.0, 5e305, 1e306 }, input, 0.0);
+
+		// The range between the minimum and maximum keys overflows to infinity.
+		input = new double[] { 1e308, -1e308, 0.0, -5e307, 5e307 };
+		func = new DoubleFlashSortPartitionFunction(input, 4);
+		assertEquals(4, func.getNumClasses());
+		assertEquals(0, func.getClass(-1e308));
+		assertEquals(1, func.getClass(-5e307));
+		assertEquals(2, func.getClass(0.0));
+		assertEquals(3, func.getClass(5e307));
+		assertEquals(3, func.getClass(1e308));
+
+		int[] classes = new int[input.length];
+		func.getClasses(input, 0, input.length, classes);
+		assertArrayEquals(new int[] { 3, 0, 2, 1, 3 }, classes);
+
+		classBounds = CyclePartitioner.partition(input, func);
+		assertArrayEquals(new int[] { 0, 1, 2, 4 }, classBounds);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nanIsRejectedTest() {
+		new DoubleFlashSortPartitionFunction(new double[] { 1.0, Double.NaN, 3.0 }, 2);
+	}
+
+	@Test
+	public void heavyHitterTest() {
+		// 30% zeros, 10% 42s, and the rest spread out.
+		long[] input = new long[100000];
+		Random random = new Random(11);
+		for (int i = 0; i < input.length; ++i) {
+			final int choice = random.nextInt(10);
+			input[i] = (choice < 3) ? 0 : (choice == 3) ? 42 : random.nextInt(2000000) - 1000000;
+		}
+		long[] expected = input.clone();
+		Arrays.sort(expected);
+
+		LongCdfPartitionFunction func = new LongCdfPartitionFunction(input, 1000, 0.05, 0.01);
+		assertEquals(100 + 2 * 2, func.getNumClasses());
+
+		int[] classBounds = CyclePartitioner.partition(input, func, new PartitionOptions().setClassBounds(PartitionOptions.ClassBounds.EXACT));
+		int equalityClasses = 0;
+		for (int classNum = 0; classNum < classBounds.length; ++classNum) {
+			for (int index = getLowerBound(classBounds, classNum); index <= classBounds[classNum]; ++index) {
+				assertEquals("Key at " + index + " is in the wrong class.", classNum, func.getClass(input[index]));
+			}
+			if (func.isEqualityClass(classNum)) {
+				++equalityClasses;
+				final long key = input[classBounds[classNum]];
+				assertTrue((key == 0) || (key == 42));
+				for (int index = getLowerBound(classBounds, classNum); index <= classBounds[classNum]; ++index) {
+					assertEquals(key, input[index]);
+				}
+			} else {
+				assertTrue(classBounds[classNum] - getLowerBound(classBounds, classNum) < 4 * input.length / 100);
+			}
+		}
+		assertEquals(2, equalityClasses);
+
+		int[] classes = new int[input.length];
+		func.getClasses(input, 0, input.length, classes);
+		for (int i = 0; i < input.length; ++i) {
+			assertEquals(func.getClass(input[i]), classes[i]);
+		}
+
+		FlashSort.sort(input, func);
+		assertArrayEquals(expected, input);
+	}
+
+	@Test
+	public void signedZeroHeavyHitterTest() {
+		double[] input = new double[20000];
+		Random random = new Random(12);
+		for (int i = 0; i < input.length; ++i) {
+			final int choice = random.nextInt(4);
+			input[i] = (choice == 0) ? -0.0 : (choice == 1) ? 0.0 : random.nextGaussian();
+		}
+		double[] expected = input.clone();
+		Arrays.sort(expected);
+
+		DoubleCdfPartitionFunction func = new DoubleCdfPartitionFunction(input, 200, 0.05, 0.01);
+		assertEquals(func.getClass(-0.0) + 2, func.getClass(0.0));
+		assertTrue(func.isEqualityClass(func.getClass(-0.0)));
+		assertTrue(func.isEqualityClass(func.getClass(0.0)));
+		assertFalse(func.isEqualityClass(func.getClass(0.0) + 1));
+
+		FlashSort.sort(input, func);
+		for (int i = 0; i < input.length; ++i) {
+			assertEquals(Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(input[i]));
+		}
+	}
+
+	private static void assertSamePermutation(int[] expected, int[] actual) {
+		int[] sortedExpected = expected.clone();
+		int[] sortedActual = actual.clone();
+		Arrays.sort(sortedExpected);
+		Arrays.sort(sortedActual);
+		assertArrayEquals(sortedExpected, sortedActual);
+	}
+}
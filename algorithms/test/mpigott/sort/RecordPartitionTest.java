@@ -0,0 +1,122 @@
+package mpigott.sort;
+
+import static mpigott.sort.PartitionChecks.*;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Tests partitioning {@link FixedWidthRecords} in place.
+ *
+ * @author Mike Pigott
+ *
+ */
+public class RecordPartitionTest {
+
+	@Test
+	public void longKeyTest() {
+		// 16-byte records: an 8-byte key, followed by an 8-byte payload.
+		ByteBuffer buffer = ByteBuffer.allocateDirect(16 * 100000);
+		Random random = new Random(42);
+		for (int record = 0; record < 100000; ++record) {
+			long key = random.nextLong() % 1000000L;
+			buffer.putLong(key);
+			buffer.putLong(~key);
+		}
+		buffer.flip();
+
+		FixedWidthRecords records = new FixedWidthRecords(buffer, 16, 0);
+		LongFlashSortPartitionFunction func = new LongFlashSortPartitionFunction(records, 1000);
+		int[] classBounds = CyclePartitioner.partition(records, func);
+
+		assertNotNull(classBounds);
+		assertEquals(0, buffer.position());
+		for (int classNum = 0; classNum < classBounds.length; ++classNum) {
+			for (int index = getLowerBound(classBounds, classNum); index <= classBounds[classNum]; ++index) {
+				assertEquals("Record at " + index + " is in the wrong class.", classNum, func.getClass(records.getLongKey(index)));
+				assertEquals("Record at " + index + " lost its payload.", ~records.getLongKey(index), buffer.getLong(index * 16 + 8));
+			}
+		}
+	}
+
+	@Test
+	public void doubleKeyTest() {
+		// 13-byte little-endian records, with the key in the middle, after an offset of 4 bytes.
+		final int numRecords = 50000;
+		ByteBuffer buffer = ByteBuffer.allocate(3 + 13 * numRecords).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.position(3);
+		Random random = new Random(42);
+		for (int record = 0; record < numRecords; ++record) {
+			double key = random.nextGaussian();
+			buffer.putInt(record);
+			buffer.putDouble(key);
+			buffer.put((byte) record);
+		}
+		buffer.position(3);
+
+		FixedWidthRecords records = new FixedWidthRecords(buffer, 13, 4);
+		DoubleFlashSortPartitionFunction func = new DoubleFlashSortPartitionFunction(records, 100);
+		int[] classBounds = CyclePartitioner.partition(records, func, new PartitionOptions().setClassBounds(PartitionOptions.ClassBounds.EXACT));
+
+		assertNotNull(classBounds);
+		assertEquals(3, buffer.position());
+		boolean[] seen = new boolean[numRecords];
+		for (int classNum = 0; classNum < classBounds.length; ++classNum) {
+			for (int index = getLowerBound(classBounds, classNum); index <= classBounds[classNum]; ++index) {
+				assertEquals("Record at " + index + " is in the wrong class.", classNum, func.getClass(records.getDoubleKey(index)));
+
+				int id = buffer.getInt(3 + index * 13);
+				assertFalse("Record " + id + " appears twice.", seen[id]);
+				seen[id] = true;
+				assertEquals("Record " + id + " lost its last byte.", (byte) id, buffer.get(3 + index * 13 + 12));
+			}
+		}
+	}
+
+	@Test
+	public void parallelTest() {
+		final int numRecords = 4 * ParallelPartitioner.MIN_PARALLEL_SIZE;
+		ByteBuffer buffer = ByteBuffer.allocateDirect(24 * numRecords);
+		Random random = new Random(42);
+		for (int record = 0; record < numRecords; ++record) {
+			buffer.putLong(record);
+			buffer.putLong(random.nextInt(1 << 20));
+			buffer.putLong(-record);
+		}
+		buffer.flip();
+
+		FixedWidthRecords records = new FixedWidthRecords(buffer, 24, 8);
+		LongFlashSortPartitionFunction func = new LongFlashSortPartitionFunction(records, 256);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		int[] classBounds;
+		try {
+			classBounds = CyclePartitioner.partition(records, func, pool);
+		} finally {
+			pool.shutdown();
+		}
+
+		assertNotNull(classBounds);
+		assertEquals(numRecords - 1, classBounds[classBounds.length - 1]);
+		for (int classNum = 0; classNum < classBounds.length; ++classNum) {
+			for (int index = getLowerBound(classBounds, classNum); index <= classBounds[classNum]; ++index) {
+				assertEquals("Record at " + index + " is in the wrong class.", classNum, func.getClass(records.getLongKey(index)));
+				assertEquals(-buffer.getLong(index * 24), buffer.getLong(index * 24 + 16));
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void keyOutsideRecordTest() {
+		new FixedWidthRecords(ByteBuffer.allocate(64), 16, 12);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void partialRecordTest() {
+		new FixedWidthRecords(ByteBuffer.allocate(60), 16, 0);
+	}
+}
@@ -0,0 +1,158 @@
+package mpigott.sort;
+
+import static mpigott.sort.PartitionChecks.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the sample-sort splitter tree partition function.
+ *
+ * @author Mike Pigott
+ *
+ */
+public class SplitterTreePartitionTest {
+
+	@Test
+	public void heavyTailedTest() {
+		// A Pareto distribution: most values are near 1, and a few are in the millions.
+		Random random = new Random(42);
+		List<NumericElement<Double>> input = new ArrayList<NumericElement<Double>>();
+		for (int index = 0; index < 200000; ++index) {
+			input.add(new NumericElement<Double>(1.0 / Math.pow(1.0 - random.nextDouble(), 1.5)));
+		}
+
+		SplitterTreePartitionFunction<NumericElement<Double>, Double> func =
+				new SplitterTreePartitionFunction<NumericElement<Double>, Double>(input, 64);
+		assertEquals(64, func.getNumClasses());
+
+		int[] classBounds = CyclePartitioner.partition(input, func);
+		checkOrderedClasses(input, func, classBounds);
+
+		final int mean = input.size() / func.getNumClasses();
+		for (int classNum = 0; classNum < classBounds.length; ++classNum) {
+			final int classSize = classBounds[classNum] + 1 - getLowerBound(classBounds, classNum);
+			assertTrue("Class " + classNum + " has " + classSize + " elements.", (classSize > mean / 2) && (classSize < mean * 3 / 2));
+		}
+	}
+
+	@Test
+	public void noDistanceTest() {
+		Random random = new Random(7);
+		List<Word> input = new ArrayList<Word>();
+		for (int index = 0; index < 20000; ++index) {
+			char[] letters = new char[1 + random.nextInt(8)];
+			for (int letter = 0; letter < letters.length; ++letter) {
+				letters[letter] = (char) ('a' + random.nextInt(26));
+			}
+			input.add(new Word(new String(letters)));
+		}
+
+		SplitterTreePartitionFunction<Word, String> func = new SplitterTreePartitionFunction<Word, String>(input, 100, 16);
+		assertEquals(64, func.getNumClasses());
+
+		int[] classBounds = CyclePartitioner.partition(input, func, new PartitionOptions().setCacheClasses(true));
+		checkOrderedClasses(input, func, classBounds);
+	}
+
+	@Test
+	public void smallInputTest() {
+		List<NumericElement<Integer>> input = new ArrayList<NumericElement<Integer>>();
+		for (int value = 20; value > 0; --value) {
+			input.add(new NumericElement<Integer>(value));
+		}
+
+		SplitterTreePartitionFunction<NumericElement<Integer>, Integer> func =
+				new SplitterTreePartitionFunction<NumericElement<Integer>, Integer>(input, 4);
+
+		int[] classBounds = CyclePartitioner.partition(input, func);
+		checkOrderedClasses(input, func, classBounds);
+		assertArrayEquals(new int[] { 4, 9, 14, 19 }, classBounds);
+
+		assertEquals(1, new SplitterTreePartitionFunction<NumericElement<Integer>, Integer>(input, 1).getNumClasses());
+	}
+
+	@Test
+	public void duplicatesTest() {
+		List<NumericElement<Integer>> input = new ArrayList<NumericElement<Integer>>();
+		for (int index = 0; index < 10000; ++index) {
+			input.add(new NumericElement<Integer>(index % 3 == 0 ? index : 5));
+		}
+
+		SplitterTreePartitionFunction<NumericElement<Integer>, Integer> func =
+				new SplitterTreePartitionFunction<NumericElement<Integer>, Integer>(input, 16);
+
+		int[] classBounds = CyclePartitioner.partition(input, func);
+		checkOrderedClasses(input, func, classBounds);
+	}
+
+	@Test
+	public void reproducibleTest() {
+		Random random = new Random(11);
+		List<NumericElement<Double>> input = new ArrayList<NumericElement<Double>>();
+		for (int index = 0; index < 100000; ++index) {
+			input.add(new NumericElement<Double>(random.nextGaussian()));
+		}
+
+		// The same seed samples the same splitters, so every element gets the same class.
+		int[] firstClasses = getClasses(input, new SplitterTreePartitionFunction<NumericElement<Double>, Double>(input, 256, 8, new Random(3)));
+		assertArrayEquals(firstClasses, getClasses(input, new SplitterTreePartitionFunction<NumericElement<Double>, Double>(input, 256, 8, new Random(3))));
+		assertArrayEquals(getClasses(input, new SplitterTreePartitionFunction<NumericElement<Double>, Double>(input, 256)),
+				getClasses(input, new SplitterTreePartitionFunction<NumericElement<Double>, Double>(input, 256)));
+	}
+
+	private static <T extends Element<U>, U> int[] getClasses(List<T> input, PartitionFunction<T, U> func) {
+		int[] classes = new int[input.size()];
+		func.getClasses(input, 0, input.size(), classes);
+		return classes;
+	}
+
+	/* Checks each element is in its class, and every class precedes the next. */
+	private static <T extends Element<U>, U> void checkOrderedClasses(List<T> input, PartitionFunction<T, U> func, int[] classBounds) {
+		checkClasses(input.size(), index -> func.getClass(input.get(index)), classBounds);
+		assertEquals(func.getNumClasses(), classBounds.length);
+
+		T previousMax = null;
+		for (int classNum = 0; classNum < classBounds.length; ++classNum) {
+			T classMax = null;
+			for (int index = getLowerBound(classBounds, classNum); index <= classBounds[classNum]; ++index) {
+				T element = input.get(index);
+				assertTrue((previousMax == null) || (previousMax.compareTo(element) < 0));
+				if ((classMax == null) || (classMax.compareTo(element) < 0)) {
+					classMax = element;
+				}
+			}
+			if (classMax != null) {
+				previousMax = classMax;
+			}
+		}
+	}
+
+	/* An element with no meaningful distance. */
+	static final class Word implements Element<String> {
+		Word(String value) {
+			this.value = value;
+		}
+
+		@Override
+		public int compareTo(Element<String> other) {
+			return value.compareTo(other.getValue());
+		}
+
+		@Override
+		public double distance(Element<String> other) {
+			throw new UnsupportedOperationException("Words have no distance.");
+		}
+
+		@Override
+		public String getValue() {
+			return value;
+		}
+
+		private final String value;
+	}
+}
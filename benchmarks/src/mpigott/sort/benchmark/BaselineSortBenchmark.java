@@ -0,0 +1,65 @@
+package mpigott.sort.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The JDK's own sorts of the same primitive inputs, as the baseline
+ * for the {@link FlashSortPartitionBenchmark} and {@link CdfPartitionBenchmark}.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class BaselineSortBenchmark {
+
+	@Param({ "1000", "100000", "10000000", "100000000" })
+	public int size;
+
+	@Param({ "UNIFORM", "NORMAL", "ZIPF", "SORTED", "REVERSE_SORTED", "DUPLICATES" })
+	public Distribution distribution;
+
+	private double[] original;
+	private double[] keys;
+
+	@Setup(Level.Trial)
+	public void generate() {
+		original = distribution.generate(size);
+		keys = new double[size];
+	}
+
+	@Setup(Level.Invocation)
+	public void reset() {
+		System.arraycopy(original, 0, keys, 0, size);
+	}
+
+	@Benchmark
+	public double[] arraysSort() {
+		Arrays.sort(keys);
+		return keys;
+	}
+
+	@Benchmark
+	public double[] arraysParallelSort() {
+		Arrays.parallelSort(keys);
+		return keys;
+	}
+}
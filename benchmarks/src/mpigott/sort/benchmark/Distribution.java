@@ -0,0 +1,93 @@
+package mpigott.sort.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The key distributions the benchmarks are run against.  Each one is
+ * generated deterministically from a seed, so every benchmark (and every
+ * run) partitions and sorts exactly the same input.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+public enum Distribution {
+
+	/** Keys drawn uniformly from [0, size). */
+	UNIFORM {
+		void fill(double[] keys, Random random) {
+			for (int index = 0; index < keys.length; ++index) {
+				keys[index] = random.nextDouble() * keys.length;
+			}
+		}
+	},
+
+	/** Keys drawn from a normal distribution, with a standard deviation of size / 8. */
+	NORMAL {
+		void fill(double[] keys, Random random) {
+			final double deviation = keys.length / 8.0;
+			for (int index = 0; index < keys.length; ++index) {
+				keys[index] = random.nextGaussian() * deviation;
+			}
+		}
+	},
+
+	/** Keys drawn from a Zipf distribution (with an exponent of 1.1) over up to a million distinct ranks. */
+	ZIPF {
+		void fill(double[] keys, Random random) {
+			final int numRanks = Math.max(1, Math.min(keys.length, 1000000));
+			final double[] cdf = new double[numRanks];
+			double sum = 0.0;
+			for (int rank = 0; rank < numRanks; ++rank) {
+				sum += 1.0 / Math.pow(rank + 1, 1.1);
+				cdf[rank] = sum;
+			}
+			for (int index = 0; index < keys.length; ++index) {
+				int rank = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+				keys[index] = (rank < 0) ? -rank - 1 : rank;
+			}
+		}
+	},
+
+	/** Uniform keys, already in ascending order. */
+	SORTED {
+		void fill(double[] keys, Random random) {
+			UNIFORM.fill(keys, random);
+			Arrays.sort(keys);
+		}
+	},
+
+	/** Uniform keys, in descending order. */
+	REVERSE_SORTED {
+		void fill(double[] keys, Random random) {
+			SORTED.fill(keys, random);
+			for (int lower = 0, upper = keys.length - 1; lower < upper; ++lower, --upper) {
+				final double key = keys[lower];
+				keys[lower] = keys[upper];
+				keys[upper] = key;
+			}
+		}
+	},
+
+	/** Only sixteen distinct keys, so every key is repeated many times. */
+	DUPLICATES {
+		void fill(double[] keys, Random random) {
+			for (int index = 0; index < keys.length; ++index) {
+				keys[index] = random.nextInt(16);
+			}
+		}
+	};
+
+	/**
+	 * Generates <code>size</code> keys from this distribution.
+	 */
+	public double[] generate(int size) {
+		final double[] keys = new double[size];
+		fill(keys, new Random(SEED));
+		return keys;
+	}
+
+	abstract void fill(double[] keys, Random random);
+
+	private static final long SEED = 0x5EED;
+}
@@ -0,0 +1,99 @@
+package mpigott.sort.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import mpigott.sort.CdfPartitionFunction;
+import mpigott.sort.CyclePartitioner;
+import mpigott.sort.FlashSortPartitionFunction;
+import mpigott.sort.NumericElement;
+import mpigott.sort.SplitterTreePartitionFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Partitions lists of boxed {@link NumericElement}s with the flash sort, CDF and
+ * splitter tree partition functions, against <code>Collections.sort</code> of the
+ * same list.  The sizes stop at ten million, as a hundred million boxed elements
+ * do not fit in a reasonable heap.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class ElementPartitionBenchmark {
+
+	@Param({ "1000", "100000", "10000000" })
+	public int size;
+
+	@Param({ "UNIFORM", "NORMAL", "ZIPF", "SORTED", "REVERSE_SORTED", "DUPLICATES" })
+	public Distribution distribution;
+
+	@Param({ "256" })
+	public int numClasses;
+
+	private List<NumericElement<Double>> original;
+	private List<NumericElement<Double>> elements;
+	private FlashSortPartitionFunction<NumericElement<Double>, Double> flashSortFunction;
+	private CdfPartitionFunction<NumericElement<Double>, Double> cdfFunction;
+	private SplitterTreePartitionFunction<NumericElement<Double>, Double> splitterTreeFunction;
+
+	@Setup(Level.Trial)
+	public void generate() {
+		final double[] keys = distribution.generate(size);
+		original = new ArrayList<NumericElement<Double>>(size);
+		for (double key : keys) {
+			original.add(new NumericElement<Double>(key));
+		}
+		elements = new ArrayList<NumericElement<Double>>(original);
+		flashSortFunction = new FlashSortPartitionFunction<NumericElement<Double>, Double>(original, numClasses);
+		cdfFunction = new CdfPartitionFunction<NumericElement<Double>, Double>(original, Math.max(1, size / numClasses), 0.05, 0.01);
+		splitterTreeFunction = new SplitterTreePartitionFunction<NumericElement<Double>, Double>(original, numClasses);
+	}
+
+	@Setup(Level.Invocation)
+	public void reset() {
+		for (int index = 0; index < size; ++index) {
+			elements.set(index, original.get(index));
+		}
+	}
+
+	@Benchmark
+	public int[] flashSortPartition() {
+		return CyclePartitioner.partition(elements, flashSortFunction);
+	}
+
+	@Benchmark
+	public int[] cdfPartition() {
+		return CyclePartitioner.partition(elements, cdfFunction);
+	}
+
+	@Benchmark
+	public int[] splitterTreePartition() {
+		return CyclePartitioner.partition(elements, splitterTreeFunction);
+	}
+
+	@Benchmark
+	public List<NumericElement<Double>> collectionsSort() {
+		Collections.sort(elements);
+		return elements;
+	}
+}
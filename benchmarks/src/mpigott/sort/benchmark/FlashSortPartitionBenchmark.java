@@ -0,0 +1,83 @@
+package mpigott.sort.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import mpigott.sort.CyclePartitioner;
+import mpigott.sort.DoubleFlashSortPartitionFunction;
+import mpigott.sort.FlashSort;
+import mpigott.sort.PartitionOptions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Partitions (and fully sorts) primitive keys with the {@link DoubleFlashSortPartitionFunction},
+ * across key distributions, input sizes and class counts.  Compare against the
+ * {@link BaselineSortBenchmark} with the same size and distribution.
+ *
+ * The partition function is built once per trial; only the partitioning is measured.
+ *
+ * @author  Mike Pigott
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class FlashSortPartitionBenchmark {
+
+	@Param({ "1000", "100000", "10000000", "100000000" })
+	public int size;
+
+	@Param({ "UNIFORM", "NORMAL", "ZIPF", "SORTED", "REVERSE_SORTED", "DUPLICATES" })
+	public Distribution distribution;
+
+	@Param({ "16", "256", "4096" })
+	public int numClasses;
+
+	private double[] original;
+	private double[] keys;
+	private DoubleFlashSortPartitionFunction partitionFunction;
+	private PartitionOptions exactBounds;
+
+	@Setup(Level.Trial)
+	public void generate() {
+		original = distribution.generate(size);
+		keys = new double[size];
+		partitionFunction = new DoubleFlashSortPartitionFunction(original, numClasses);
+		exactBounds = new PartitionOptions().setClassBounds(PartitionOptions.ClassBounds.EXACT);
+	}
+
+	@Setup(Level.Invocation)
+	public void reset() {
+		System.arraycopy(original, 0, keys, 0, size);
+	}
+
+	@Benchmark
+	public int[] partition() {
+		return CyclePartitioner.partition(keys, partitionFunction);
+	}
+
+	@Benchmark
+	public int[] partitionWithExactBounds() {
+		return CyclePartitioner.partition(keys, partitionFunction, exactBounds);
+	}
+
+	@Benchmark
+	public double[] sort() {
+		FlashSort.sort(keys, partitionFunction);
+		return keys;
+	}
+}